@@ -0,0 +1,41 @@
+package org.jax.phenopacketgenerator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic {@link PgModel}s for benchmarks.
+ */
+final class BenchmarkModels {
+
+    private BenchmarkModels() {
+        // private no-op
+    }
+
+    /**
+     * @param nFeatures number of phenotypic features, every fifth feature is excluded
+     * @return QC-valid model with a VCF file
+     */
+    static PgModel makeModel(int nFeatures) {
+        List<PgOntologyClass> phenotypes = new ArrayList<>(nFeatures);
+        for (int i = 0; i < nFeatures; i++) {
+            phenotypes.add(PgOntologyClass.newBuilder()
+                    .setId(String.format("HP:%07d", i + 1))
+                    .setLabel("Phenotypic feature " + i)
+                    .setNotObserved(i % 5 == 4)
+                    .build());
+        }
+        PgModel model = new PgModel(phenotypes);
+        model.setPhenopacketId("PP:1");
+        model.setProbandId("Proband 1");
+        model.setBiocurator("HPO:benchmark");
+        model.setIsoAge("P6Y5M");
+        model.setSex("MALE");
+        model.setVcfPath("/path/to/example.vcf");
+        model.setGenomeAssembly("hg38");
+        model.setHpoVersion("2019-11-08");
+        model.setEcoVersion("2019-10-16");
+        model.setPhenopacketVersion("1.0.0");
+        return model;
+    }
+}
@@ -0,0 +1,50 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QC of {@link PgModel} and retrieval of its phenotypes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgModelBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int nFeatures;
+
+    private PgModel model;
+
+    private List<PgOntologyClass> phenotypes;
+
+    @Setup
+    public void setUp() {
+        model = BenchmarkModels.makeModel(nFeatures);
+        phenotypes = model.getPhenotypes();
+    }
+
+    @Benchmark
+    public PgModel qc() throws PGException {
+        model.qc();
+        return model;
+    }
+
+    @Benchmark
+    public List<PgOntologyClass> getPhenotypes() {
+        return model.getPhenotypes();
+    }
+
+    /**
+     * Model construction followed by the first read of phenotypes, as done for each case of a batch run.
+     */
+    @Benchmark
+    public List<PgOntologyClass> buildAndGetPhenotypes() {
+        return new PgModel(phenotypes).getPhenotypes();
+    }
+}
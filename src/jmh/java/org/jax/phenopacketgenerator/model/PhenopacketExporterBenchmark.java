@@ -0,0 +1,90 @@
+package org.jax.phenopacketgenerator.model;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import org.jax.phenopacketgenerator.io.PhenopacketJson;
+import org.openjdk.jmh.annotations.*;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of {@link PgModel} into {@link Phenopacket} and printing of the phenopacket as JSON.
+ * <p>
+ * The features of the model are the same in each invocation, so {@link #encode()} measures the steady state of bulk
+ * export where the {@link PhenopacketFragments} of all terms are cached.
+ * <p>
+ * The <code>writeJson*</code> benchmarks compare writing of a JSON file through a <code>String</code> with streaming
+ * by {@link PhenopacketJson}, the output is discarded to leave out the disk. Run with <code>-prof gc</code> to see the
+ * allocation per phenopacket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhenopacketExporterBenchmark {
+
+    private static final JsonFormat.Printer PRINTER = JsonFormat.printer();
+
+    @Param({"5", "50", "500"})
+    public int nFeatures;
+
+    private PhenopacketExporter exporter;
+
+    private Phenopacket phenopacket;
+
+    @Setup
+    public void setUp() {
+        exporter = new PhenopacketExporter(BenchmarkModels.makeModel(nFeatures));
+        phenopacket = exporter.encode();
+    }
+
+    @Benchmark
+    public Phenopacket encode() {
+        return exporter.encode();
+    }
+
+    @Benchmark
+    public String printJson() throws InvalidProtocolBufferException {
+        return PRINTER.print(phenopacket);
+    }
+
+    @Benchmark
+    public String encodeAndPrintJson() throws InvalidProtocolBufferException {
+        return PRINTER.print(exporter.encode());
+    }
+
+    /**
+     * The way JSON files were written before {@link PhenopacketJson}, the whole document is built as a String first.
+     */
+    @Benchmark
+    public void writeJsonString() throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new DiscardingOutputStream(), StandardCharsets.UTF_8))) {
+            writer.write(PRINTER.print(phenopacket));
+        }
+    }
+
+    @Benchmark
+    public void writeJsonStreaming() throws IOException {
+        try (OutputStream os = new DiscardingOutputStream()) {
+            PhenopacketJson.write(phenopacket, os, true);
+        }
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            // discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discard
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare parsing of the OBO file by phenol's loader with the parallel reading of the {@link CompactOntology} using
+ * increasing number of threads. Unlike {@link OntologyLoadBenchmark}, the JVM is warmed up, so that the scaling of the
+ * parser itself is measured.
+ * <p>
+ * Path to <code>hp.obo</code> is taken from <code>hpo.obo</code> system property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OboParseBenchmark {
+
+    private Path oboPath;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        oboPath = Paths.get(System.getProperty("hpo.obo", "hp.obo"));
+    }
+
+    @Benchmark
+    public Ontology parsePhenol() throws IOException {
+        try (InputStream is = Files.newInputStream(oboPath)) {
+            return Utils.deserializeOntology(is);
+        }
+    }
+
+    @Benchmark
+    public CompactOntology readCompact(Pool pool) throws IOException {
+        return CompactOntology.read(oboPath, pool.pool);
+    }
+
+    /**
+     * The thread count is a parameter of this state only, so that {@link #parsePhenol()} is not repeated for each count.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        @Param({"1", "2", "4", "8", "16"})
+        public int threads;
+
+        private ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare time to get the HPO ontology at app startup: cold parsing of the OBO file versus loading of the
+ * {@link OntologySnapshot}. Each measurement runs in a fresh JVM without warmup to mimic the app launch.
+ * <p>
+ * Path to <code>hp.obo</code> is taken from <code>hpo.obo</code> system property. The snapshot is kept in the temporary
+ * directory between the forks, so that only the first fork pays for parsing the OBO file during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class OntologyLoadBenchmark {
+
+    private Path oboPath;
+
+    private OntologySnapshotCache snapshotCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        oboPath = Paths.get(System.getProperty("hpo.obo", "hp.obo"));
+        Path appHomeDir = Files.createDirectories(Paths.get(System.getProperty("java.io.tmpdir"), "pg-benchmark"));
+        snapshotCache = new OntologySnapshotCache(appHomeDir);
+        Path snapshotPath = snapshotCache.getSnapshotPath();
+        OntologySnapshot.SourceKey key = OntologySnapshot.SourceKey.of(oboPath);
+        if (!Files.isRegularFile(snapshotPath)
+                || !OntologySnapshot.readSourceKey(snapshotPath).map(key::equals).orElse(false)) {
+            try (InputStream is = Files.newInputStream(oboPath)) {
+                OntologySnapshot.write(Utils.deserializeOntology(is), key, snapshotPath);
+            }
+        }
+    }
+
+    @Benchmark
+    public Ontology parseObo() throws IOException {
+        try (InputStream is = Files.newInputStream(oboPath)) {
+            return Utils.deserializeOntology(is);
+        }
+    }
+
+    @Benchmark
+    public Ontology loadSnapshot() {
+        return snapshotCache.load(oboPath).orElseThrow(() -> new IllegalStateException("Snapshot is stale"));
+    }
+}
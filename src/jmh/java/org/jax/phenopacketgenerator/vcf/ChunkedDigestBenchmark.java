@@ -0,0 +1,93 @@
+package org.jax.phenopacketgenerator.vcf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link ChunkedDigest} using increasing number of threads with SHA-256 of the whole file computed on a single
+ * thread. The file is written once per trial, so it is likely in the page cache and the benchmark measures hashing
+ * rather than the disk.
+ * <p>
+ * Size of the file in MiB is taken from <code>digest.file.mib</code> system property, 512 by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkedDigestBenchmark {
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int mib = Integer.getInteger("digest.file.mib", 512);
+        file = Files.createTempFile("digest-benchmark", ".vcf.gz");
+        byte[] block = new byte[1 << 20];
+        Random random = new Random(42);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            for (int i = 0; i < mib; i++) {
+                random.nextBytes(block);
+                os.write(block);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] sha256SingleThread() throws IOException, NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[1 << 20];
+        try (InputStream is = new DigestInputStream(Files.newInputStream(file), md)) {
+            while (is.read(buffer) >= 0) {
+                // the stream updates the digest
+            }
+        }
+        return md.digest();
+    }
+
+    @Benchmark
+    public ChunkedDigest chunked(Pool pool) throws IOException, InterruptedException {
+        return ChunkedDigest.compute(file, pool.executor, pool.threads);
+    }
+
+    /**
+     * The thread count is a parameter of this state only, so that {@link #sha256SingleThread()} is not repeated for
+     * each count.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        private ExecutorService executor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.jax.phenopacketgenerator;
+
+import ch.qos.logback.classic.Level;
+import org.jax.phenopacketgenerator.batch.*;
+import org.jax.phenopacketgenerator.io.PhenopacketFormat;
+import org.jax.phenopacketgenerator.io.PhenopacketWriter;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.jax.phenopacketgenerator.model.ModelValidator;
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.jax.phenopacketgenerator.ontology.OntologyImageCache;
+import org.jax.phenopacketgenerator.vcf.VcfHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless entry point for converting a case table into phenopackets without the GUI.
+ * <p>
+ * Run as <code>java -jar Phenopacket-Generator.jar batch --cases cases.tsv --out outdir</code>. Path to
+ * <code>hp.obo</code> and the biocurator ID default to the values set in the GUI. An archive of existing phenopackets
+ * is QCed and exported again with <code>--phenopackets indir</code> instead of <code>--cases</code>, and
+ * <code>--watch indir</code> keeps exporting the case tables dropped into a directory until the process is stopped.
+ *
+ * @see CaseTableReader for the format of the case table
+ */
+public class BatchMain {
+
+    /**
+     * The first argument that switches {@link Main} into the headless mode.
+     */
+    public static final String BATCH_COMMAND = "batch";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchMain.class);
+
+    /**
+     * Options that do not take a value.
+     */
+    private static final Set<String> FLAGS = new HashSet<>(Arrays.asList("--gzip", "--compact", "--keep-redundant", "--validate"));
+
+    /**
+     * Name of the file in the output directory that lists case tables already exported by <code>--watch</code>.
+     */
+    private static final String WATCH_STATE_FILE_NAME = ".pg-watch-state.tsv";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar Phenopacket-Generator.jar batch --cases <cases.tsv|cases.csv> --out <dir|file> [options]",
+            "       java -jar Phenopacket-Generator.jar batch --phenopackets <dir> --out <dir|file> [options]",
+            "       java -jar Phenopacket-Generator.jar batch --watch <dir> --out <dir> [options]",
+            "Options:",
+            "  --phenopackets <dir>    import the .json, .json.gz, .pb and .pb.gz phenopackets from <dir> and its",
+            "                          subdirectories, QC them against the HPO and export them again",
+            "  --watch <dir>           export each case table (*.tsv, *.csv) that is new or changes in <dir> until",
+            "                          stopped, tables already exported are listed in <out>/" + WATCH_STATE_FILE_NAME,
+            "  --quiet-period <ms>     time without changes of a watched table before it is read (default: 2000)",
+            "  --format <fmt>          json: one JSON file per phenopacket in <dir> (default)",
+            "                          ndjson: all phenopackets in a single newline-delimited JSON <file>",
+            "                          pb: all phenopackets in a single length-delimited protobuf <file>",
+            "                          pb-dir: one length-delimited protobuf file per phenopacket in <dir>",
+            "  --gzip                  compress the output, files of the json and pb-dir formats are named *.json.gz",
+            "                          and *.pb.gz",
+            "  --compact               print JSON files of the json format without indentation",
+            "  --validate              only validate the cases, --out is a TSV <file> with all issues of all cases",
+            "  --keep-redundant        keep observed terms implied by a more specific observed term and excluded terms",
+            "                          implied by a more general excluded term (removed by default)",
+            "  --vcf <file.vcf.gz>     multi-sample VCF file shared by all cases, each case is joined to its sample by",
+            "                          the sample_id column or by the proband ID",
+            "  --hpo <hp.obo>          path to HPO OBO file (default: path set in the GUI)",
+            "  --biocurator <id>       biocurator ID (default: ID set in the GUI)",
+            "  --threads <n>           number of worker threads (default: number of cores)");
+
+    private BatchMain() {
+        // private no-op
+    }
+
+    public static void main(String[] args) {
+        configureLogging();
+        try {
+            System.exit(run(args));
+        } catch (PGException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        } catch (Exception e) {
+            LOGGER.error("Batch run failed", e);
+            System.exit(2);
+        }
+    }
+
+    static int run(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        PhenopacketGeneratorConfiguration configuration = new PhenopacketGeneratorConfiguration();
+        Path appHomeDir = configuration.appHomeDir();
+        Properties pgProperties = configuration.pgProperties(configuration.configFilePath(appHomeDir));
+        Properties appProperties = loadApplicationProperties();
+        PgMetrics.start(appProperties, appHomeDir);
+        try {
+            return run(options, appHomeDir, pgProperties, appProperties);
+        } finally {
+            PgMetrics.stop();
+        }
+    }
+
+    private static int run(Map<String, String> options, Path appHomeDir, Properties pgProperties,
+                           Properties appProperties) throws Exception {
+
+        Path output = Paths.get(require(options, "--out"));
+        PhenopacketFormat format = PhenopacketFormat.fromString(options.getOrDefault("--format", "json"));
+        boolean gzip = options.containsKey("--gzip");
+        boolean compact = options.containsKey("--compact");
+        boolean keepRedundant = options.containsKey("--keep-redundant");
+        String hpoPath = options.getOrDefault("--hpo", pgProperties.getProperty(OptionalResources.ONTOLOGY_PATH_PROPERTY));
+        if (hpoPath == null) {
+            throw new PGException("Path to hp.obo is not set, use --hpo");
+        }
+        String biocurator = options.getOrDefault("--biocurator", pgProperties.getProperty(OptionalResources.BIOCURATOR_ID_PROPERTY, ""));
+        int nThreads = Integer.parseInt(options.getOrDefault("--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        CompactOntology ontology = loadOntology(Paths.get(hpoPath), new OntologyImageCache(appHomeDir));
+        if (options.containsKey("--phenopackets")) {
+            if (options.containsKey("--cases") || options.containsKey("--validate") || options.containsKey("--vcf")) {
+                throw new IllegalArgumentException("--phenopackets cannot be combined with --cases, --validate or --vcf");
+            }
+            return reexport(Paths.get(options.get("--phenopackets")), output, format, gzip, compact, keepRedundant,
+                    ontology, nThreads);
+        }
+        if (options.containsKey("--watch")) {
+            if (options.containsKey("--cases") || options.containsKey("--validate")) {
+                throw new IllegalArgumentException("--watch cannot be combined with --cases or --validate");
+            }
+            return watch(Paths.get(options.get("--watch")), output, format, gzip, compact, keepRedundant,
+                    createModelFactory(options, ontology, biocurator, appProperties),
+                    Duration.ofMillis(Long.parseLong(options.getOrDefault("--quiet-period", "2000"))), ontology,
+                    nThreads);
+        }
+        Path casesPath = Paths.get(require(options, "--cases"));
+        CaseModelFactory modelFactory = createModelFactory(options, ontology, biocurator, appProperties);
+        try {
+            if (options.containsKey("--validate")) {
+                return validate(casesPath, output, modelFactory, ontology, nThreads);
+            }
+            return export(casesPath, output, format, gzip, compact, keepRedundant, modelFactory, ontology, nThreads);
+        } finally {
+            modelFactory.getVcfCohort().ifPresent(BatchMain::logUnjoinedSamples);
+        }
+    }
+
+    private static int export(Path casesPath, Path output, PhenopacketFormat format, boolean gzip, boolean compact,
+                              boolean keepRedundant, CaseModelFactory modelFactory, CompactOntology ontology,
+                              int nThreads) throws Exception {
+        AncestorClosure closure = keepRedundant ? null : AncestorClosure.of(ontology);
+
+        LOGGER.info("Exporting cases from `{}` to `{}` as {} using {} threads", casesPath, output, format, nThreads);
+        BatchSummary summary;
+        try (CaseTableReader reader = new CaseTableReader(casesPath);
+             PhenopacketWriter writer = format.open(output, gzip, compact)) {
+            summary = new BatchExporter(modelFactory, writer, nThreads, closure).run(reader);
+        }
+        LOGGER.info("{}", summary);
+        return summary.getFailed() == 0 ? 0 : 3;
+    }
+
+    private static CaseModelFactory createModelFactory(Map<String, String> options, CompactOntology ontology,
+                                                       String biocurator, Properties appProperties)
+            throws IOException, PGException {
+        CaseModelFactory modelFactory = new CaseModelFactory(ontology,
+                appProperties.getProperty("eco.version"),
+                appProperties.getProperty(Main.PG_PHENOPACKET_VERSION_PROP_KEY),
+                biocurator);
+        if (options.containsKey("--vcf")) {
+            modelFactory = modelFactory.withVcfCohort(readVcfCohort(Paths.get(options.get("--vcf"))));
+        }
+        return modelFactory;
+    }
+
+    private static int watch(Path inputDir, Path output, PhenopacketFormat format, boolean gzip, boolean compact,
+                             boolean keepRedundant, CaseModelFactory modelFactory, Duration quietPeriod,
+                             CompactOntology ontology, int nThreads) throws Exception {
+        if (format != PhenopacketFormat.JSON && format != PhenopacketFormat.PB_DIR) {
+            throw new IllegalArgumentException("--watch writes one file per phenopacket, use --format json or pb-dir");
+        }
+        if (!Files.isDirectory(inputDir)) {
+            throw new PGException("`" + inputDir + "` is not a directory");
+        }
+        AncestorClosure closure = keepRedundant ? null : AncestorClosure.of(ontology);
+        // stopped by Ctrl+C or SIGTERM, the tables being exported are finished, the state is saved and the output is
+        // closed before the JVM exits
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread shutdownHook = null;
+        try (PhenopacketWriter writer = format.open(output, gzip, compact);
+             CaseFolderWatcher watcher = new CaseFolderWatcher(inputDir, output.resolve(WATCH_STATE_FILE_NAME),
+                     quietPeriod, new BatchExporter(modelFactory, writer, nThreads, closure), nThreads)) {
+            shutdownHook = new Thread(() -> {
+                try {
+                    watcher.stop();
+                    stopped.await();
+                } catch (IOException e) {
+                    LOGGER.warn("Error stopping the watcher", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "watch-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+            watcher.run();
+        } finally {
+            stopped.countDown();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is shutting down
+        }
+        return 0;
+    }
+
+    private static int reexport(Path inputDir, Path output, PhenopacketFormat format, boolean gzip, boolean compact,
+                                boolean keepRedundant, CompactOntology ontology, int nThreads) throws Exception {
+        if (!Files.isDirectory(inputDir)) {
+            throw new PGException("`" + inputDir + "` is not a directory");
+        }
+        if (output.toAbsolutePath().normalize().startsWith(inputDir.toAbsolutePath().normalize())) {
+            // the exported phenopackets would be imported again
+            throw new PGException("Output `" + output + "` must not be inside `" + inputDir + "`");
+        }
+        AncestorClosure closure = AncestorClosure.of(ontology);
+        ModelValidator validator = ModelValidator.newBuilder()
+                .setOntology(ontology)
+                .setClosure(closure)
+                .build();
+
+        LOGGER.info("Importing phenopackets from `{}` to `{}` as {} using {} threads", inputDir, output, format, nThreads);
+        BatchSummary summary;
+        try (PhenopacketWriter writer = format.open(output, gzip, compact)) {
+            summary = new BatchImporter(validator, writer, nThreads, keepRedundant ? null : closure).run(inputDir);
+        }
+        LOGGER.info("{}", summary);
+        return summary.getFailed() == 0 ? 0 : 3;
+    }
+
+    private static VcfCohort readVcfCohort(Path vcfPath) throws IOException, PGException {
+        VcfHeader header = VcfHeader.read(vcfPath);
+        LOGGER.info("VCF file `{}` has {} samples, assembly {}", vcfPath, header.getSampleIds().size(),
+                header.getAssembly().orElse("unknown"));
+        return new VcfCohort(vcfPath.toAbsolutePath().toString(), header);
+    }
+
+    private static void logUnjoinedSamples(VcfCohort cohort) {
+        List<String> unjoined = cohort.getUnjoinedSampleIds();
+        if (!unjoined.isEmpty()) {
+            LOGGER.warn("{} samples of the VCF file have no case, e.g. {}", unjoined.size(),
+                    String.join(", ", unjoined.subList(0, Math.min(5, unjoined.size()))));
+        }
+    }
+
+    private static int validate(Path casesPath, Path reportPath, CaseModelFactory modelFactory,
+                                CompactOntology ontology, int nThreads) throws Exception {
+        ModelValidator validator = ModelValidator.newBuilder()
+                .setOntology(ontology)
+                .setClosure(AncestorClosure.of(ontology))
+                .build();
+        LOGGER.info("Validating cases from `{}` into `{}` using {} threads", casesPath, reportPath, nThreads);
+        ValidationSummary summary;
+        try (CaseTableReader reader = new CaseTableReader(casesPath);
+             ValidationReportWriter reportWriter = new ValidationReportWriter(reportPath)) {
+            summary = new BatchValidator(modelFactory, validator, reportWriter, nThreads).run(reader);
+        }
+        LOGGER.info("{}", summary);
+        return summary.getInvalid() == 0 ? 0 : 3;
+    }
+
+    /**
+     * The batch needs just labels and the hierarchy, so the compact projection is used instead of phenol's ontology. The
+     * projection is memory-mapped from an image in the app home, which is shared by all batch processes on the machine.
+     */
+    static CompactOntology loadOntology(Path oboPath, OntologyImageCache imageCache) throws IOException {
+        long start = System.nanoTime();
+        CompactOntology ontology = imageCache.loadOrBuild(oboPath);
+        LOGGER.info("{} HPO in {} ms", ontology.isMapped() ? "Mapped" : "Read", (System.nanoTime() - start) / 1_000_000);
+        return ontology;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument `" + arg + "`");
+            }
+            if (FLAGS.contains(arg)) {
+                options.put(arg, "true");
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for `" + arg + "`");
+            }
+            options.put(arg, args[++i]);
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> options, String option) {
+        String value = options.get(option);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required option `" + option + "`");
+        }
+        return value;
+    }
+
+    private static Properties loadApplicationProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream is = BatchMain.class.getResourceAsStream("/application.properties")) {
+            properties.load(is);
+        }
+        return properties;
+    }
+
+    /**
+     * Spring Boot does not configure logging in the headless mode, logback's default is to log everything on DEBUG.
+     */
+    private static void configureLogging() {
+        org.slf4j.Logger root = LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        if (root instanceof ch.qos.logback.classic.Logger) {
+            ((ch.qos.logback.classic.Logger) root).setLevel(Level.INFO);
+        }
+    }
+}
@@ -8,14 +8,19 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import org.jax.phenopacketgenerator.gui.MainController;
-import org.springframework.boot.SpringApplication;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.ResourceBundle;
@@ -31,19 +36,38 @@ public class Main extends Application {
 
     public static final String PG_PHENOPACKET_VERSION_PROP_KEY = "pg.phenopacket.version";
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
+
     private ConfigurableApplicationContext context;
 
     public static void main(String[] args) {
-        launch(args);
+        if (args.length > 0 && BatchMain.BATCH_COMMAND.equals(args[0])) {
+            BatchMain.main(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            launch(args);
+        }
     }
 
 
+    /**
+     * Log duration of a startup phase together with the time elapsed since the JVM start.
+     */
+    private static void logPhase(String phase, long startNanos) {
+        LOGGER.info("Startup phase `{}` took {} ms ({} ms since JVM start)", phase,
+                (System.nanoTime() - startNanos) / 1_000_000, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * Start loading the ontology and build the Spring context. This runs on the launcher thread while the JavaFX
+     * toolkit starts, and the ontology keeps loading on its own thread while the context and then the GUI are built.
+     */
     @Override
     public void init() throws Exception {
         super.init();
+        long start = System.nanoTime();
         // export app's version into System properties
+        Properties properties = new Properties();
         try (InputStream is = getClass().getResourceAsStream("/application.properties")) {
-            Properties properties = new Properties();
             properties.load(is);
 
             // pg.name
@@ -58,13 +82,27 @@ public class Main extends Application {
             String ppVersion = properties.getProperty(PG_PHENOPACKET_VERSION_PROP_KEY, "N/A");
             System.setProperty(PG_PHENOPACKET_VERSION_PROP_KEY, ppVersion);
         }
+        logPhase("read application properties", start);
+
+        start = System.nanoTime();
+        Path appHomeDir = new PhenopacketGeneratorConfiguration().appHomeDir();
+        // before the preload, so that the ontology parse is measured
+        PgMetrics.start(properties, appHomeDir);
+        OntologyPreloader preloader = OntologyPreloader.start(appHomeDir);
+        logPhase("start ontology preload", start);
+
+        start = System.nanoTime();
+        context = new SpringApplicationBuilder(Main.class)
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton("ontologyPreloader", preloader))
+                .run();
+        logPhase("create Spring context", start);
     }
 
     @Override
     public void start(Stage window) throws Exception {
         Locale.setDefault(new Locale("en", "US"));
-        context = SpringApplication.run(Main.class);
 
+        long start = System.nanoTime();
         // Apply CSS
         Application.setUserAgentStylesheet(Application.STYLESHEET_MODENA);
         StyleManager.getInstance().addUserAgentStylesheet("phenopacketgenerator.css");
@@ -72,9 +110,12 @@ public class Main extends Application {
 
         Parent rootNode = FXMLLoader.load(MainController.class.getResource("main.fxml"), resourceBundle,
                 new JavaFXBuilderFactory(), context::getBean);
+        logPhase("load FXML", start);
+        start = System.nanoTime();
         window.setTitle("Phenopacket Generator"); // todo -- set from properties file
         window.setScene(new Scene(rootNode));
         window.show();
+        logPhase("show main window", start);
         /*
         window.getIcons().add(new Image(getClass().getResourceAsStream("/img/app-icon.png")));
         */
@@ -93,8 +134,9 @@ public class Main extends Application {
         try (OutputStream os = Files.newOutputStream(configFilePath)) {
             pgProperties.store(os, "Phenopacket generator properties");
         }
-        // close the context
+        // close the context, this also shuts down the executors
         context.close();
+        PgMetrics.stop();
     }
 
 
@@ -0,0 +1,79 @@
+package org.jax.phenopacketgenerator;
+
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.jax.phenopacketgenerator.ontology.OntologyImageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the ontology on a dedicated thread as soon as the application starts, before Spring context and GUI exist.
+ * <p>
+ * The path to <code>hp.obo</code> is read from the user's configuration file. The {@link CompactOntology} is mapped
+ * from the {@link OntologyImageCache}, which is rebuilt from the OBO file if it is stale. The full phenol ontology is
+ * not loaded, the text mining dialog loads it when it is opened. The result is delivered through
+ * {@link #getOntology()}, which completes with an empty {@link Optional} if the path is not set or the file does not
+ * exist, and exceptionally if loading fails.
+ */
+public final class OntologyPreloader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologyPreloader.class);
+
+    private final Path oboPath;
+
+    private final CompletableFuture<Optional<CompactOntology>> ontology = new CompletableFuture<>();
+
+    private OntologyPreloader(Path oboPath) {
+        this.oboPath = oboPath;
+    }
+
+    /**
+     * Start loading the ontology in the background.
+     *
+     * @param appHomeDir application home directory with the configuration file and the ontology image
+     * @return preloader whose {@link #getOntology()} completes once the ontology is loaded
+     */
+    public static OntologyPreloader start(Path appHomeDir) {
+        PhenopacketGeneratorConfiguration configuration = new PhenopacketGeneratorConfiguration();
+        Properties pgProperties = configuration.pgProperties(configuration.configFilePath(appHomeDir));
+        String ontologyPath = pgProperties.getProperty(OptionalResources.ONTOLOGY_PATH_PROPERTY);
+        OntologyPreloader preloader = new OntologyPreloader(ontologyPath == null ? null : Paths.get(ontologyPath));
+        if (preloader.oboPath == null || !preloader.oboPath.toFile().isFile()) {
+            preloader.ontology.complete(Optional.empty());
+            return preloader;
+        }
+        OntologyImageCache imageCache = new OntologyImageCache(appHomeDir);
+        Thread thread = new Thread(() -> preloader.load(imageCache), "ontology-preload");
+        thread.setDaemon(true);
+        thread.start();
+        return preloader;
+    }
+
+    private void load(OntologyImageCache imageCache) {
+        long start = System.nanoTime();
+        try {
+            CompactOntology loaded = imageCache.loadOrBuild(oboPath);
+            LOGGER.info("Loaded HPO in {} ms", (System.nanoTime() - start) / 1_000_000);
+            ontology.complete(Optional.of(loaded));
+        } catch (IOException | RuntimeException e) {
+            ontology.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return path to the OBO file or <code>null</code> if the path is not set
+     */
+    public Path getOboPath() {
+        return oboPath;
+    }
+
+    public CompletableFuture<Optional<CompactOntology>> getOntology() {
+        return ontology;
+    }
+}
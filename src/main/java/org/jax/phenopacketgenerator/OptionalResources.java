@@ -2,10 +2,16 @@ package org.jax.phenopacketgenerator;
 
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.jax.phenopacketgenerator.ontology.TermSearchIndex;
+import org.jax.phenopacketgenerator.textmining.OfflineTermMiner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 
 /**
  * This class is a POJO for resources that are necessary for full functionality of Phenopacket generator but might not
@@ -18,24 +24,134 @@ public final class OptionalResources {
     public static final String DEFAULT_HPO_FILE_NAME = "hp.obo";
     public static final String BIOCURATOR_ID_PROPERTY = "biocurator.id";
     public static final String ONTOLOGY_PATH_PROPERTY = "hp.obo.path";
+    /**
+     * Text mining engine, either {@link #SCIGRAPH_ENGINE} or {@link #OFFLINE_ENGINE}.
+     */
+    public static final String TEXT_MINING_ENGINE_PROPERTY = "text.mining.engine";
+    public static final String SCIGRAPH_ENGINE = "scigraph";
+    public static final String OFFLINE_ENGINE = "offline";
     private static final Logger LOGGER = LoggerFactory.getLogger(OptionalResources.class);
 
+    /**
+     * The compact ontology is the only copy of the ontology kept in memory. The full phenol ontology is needed by the
+     * HPO text mining dialog only, which loads it from the {@link #getOboPath() OBO file} when it is opened.
+     */
     // default value does not harm here
-    private final ObjectProperty<Ontology> ontology = new SimpleObjectProperty<>(this, "ontology");
+    private final ObjectProperty<CompactOntology> ontology = new SimpleObjectProperty<>(this, "ontology");
 
-    public Ontology getOntology() {
-        return ontology.get();
+    /**
+     * Resources derived from the ontology are replaced together by a single write, so that a reader never mixes
+     * resources of two ontology versions.
+     */
+    private volatile DerivedResources derived = DerivedResources.EMPTY;
+
+    /**
+     * @return compact projection of the current ontology for term lookups or <code>null</code> if the ontology is not
+     * set
+     */
+    public CompactOntology getCompactOntology() {
+        return derived.compactOntology;
     }
 
 
-    public void setOntology(Ontology ontology) {
-        this.ontology.set(ontology);
+    /**
+     * @return path to the OBO file of the current ontology or <code>null</code> if the ontology is not set
+     */
+    public Path getOboPath() {
+        return derived.oboPath;
     }
 
 
-    public ObjectProperty<Ontology> ontologyProperty() {
+    /**
+     * @return term miner built from the current ontology or <code>null</code> if the ontology is not set
+     */
+    public OfflineTermMiner getOfflineTermMiner() {
+        return derived.offlineTermMiner;
+    }
+
+
+    /**
+     * @return search index of the current ontology or <code>null</code> if the ontology is not set
+     */
+    public TermSearchIndex getTermSearchIndex() {
+        return derived.termSearchIndex;
+    }
+
+
+    /**
+     * @return ancestor closure of the current ontology or <code>null</code> if the ontology is not set
+     */
+    public AncestorClosure getAncestorClosure() {
+        return derived.ancestorClosure;
+    }
+
+
+    /**
+     * @param oboPath  path to the OBO file the <code>ontology</code> has been read from
+     * @param ontology the ontology or <code>null</code> if no ontology is available
+     * @throws IOException if the ontology is invalid, the current ontology is kept then
+     */
+    public void setOntology(Path oboPath, CompactOntology ontology) throws IOException {
+        swapOntology(ontology == null
+                ? DerivedResources.EMPTY
+                : DerivedResources.of(oboPath, ontology));
+    }
+
+
+    /**
+     * Swap in resources prepared by {@link DerivedResources#of(Path, CompactOntology)}. Preparing the resources
+     * takes a while and is best done in the background, the swap itself is cheap and can be done on the FX thread.
+     */
+    public void swapOntology(DerivedResources resources) {
+        // resources derived from the ontology are ready before the listeners learn about the new ontology
+        this.derived = resources;
+        this.ontology.set(resources.compactOntology);
+    }
+
+
+    public ObjectProperty<CompactOntology> ontologyProperty() {
         return ontology;
     }
 
 
+    /**
+     * The ontology together with the resources derived from it.
+     */
+    public static final class DerivedResources {
+
+        private static final DerivedResources EMPTY = new DerivedResources(null, null, null, null, null);
+
+        private final Path oboPath;
+
+        private final CompactOntology compactOntology;
+
+        private final OfflineTermMiner offlineTermMiner;
+
+        private final TermSearchIndex termSearchIndex;
+
+        private final AncestorClosure ancestorClosure;
+
+        private DerivedResources(Path oboPath, CompactOntology compactOntology, OfflineTermMiner offlineTermMiner,
+                                 TermSearchIndex termSearchIndex, AncestorClosure ancestorClosure) {
+            this.oboPath = oboPath;
+            this.compactOntology = compactOntology;
+            this.offlineTermMiner = offlineTermMiner;
+            this.termSearchIndex = termSearchIndex;
+            this.ancestorClosure = ancestorClosure;
+        }
+
+        /**
+         * @param oboPath         path to the OBO file the <code>compactOntology</code> has been read from
+         * @param compactOntology the ontology
+         * @throws IOException if the <em>is a</em> relation of the ontology has a cycle
+         */
+        public static DerivedResources of(Path oboPath, CompactOntology compactOntology) throws IOException {
+            return new DerivedResources(oboPath, compactOntology, OfflineTermMiner.fromOntology(compactOntology),
+                    TermSearchIndex.of(compactOntology), AncestorClosure.of(compactOntology));
+        }
+
+        public CompactOntology getCompactOntology() {
+            return compactOntology;
+        }
+    }
 }
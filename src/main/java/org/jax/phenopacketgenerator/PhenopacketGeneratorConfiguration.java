@@ -1,5 +1,7 @@
 package org.jax.phenopacketgenerator;
 
+import org.jax.phenopacketgenerator.concurrent.PgExecutors;
+import org.jax.phenopacketgenerator.ontology.OntologySnapshotCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -17,7 +19,6 @@ import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Configuration
 public class PhenopacketGeneratorConfiguration {
@@ -30,8 +31,32 @@ public class PhenopacketGeneratorConfiguration {
     }
 
     @Bean
-    public ExecutorService executorService() {
-        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    public String textMiningEngine(Environment environment) {
+        return environment.getProperty(OptionalResources.TEXT_MINING_ENGINE_PROPERTY, OptionalResources.SCIGRAPH_ENGINE);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PgExecutors pgExecutors(Environment environment) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new PgExecutors(environment.getProperty(PgExecutors.CPU_THREADS_PROPERTY, Integer.class, cores),
+                environment.getProperty(PgExecutors.IO_THREADS_PROPERTY, Integer.class, 4 * cores),
+                environment.getProperty(PgExecutors.VIRTUAL_THREADS_PROPERTY, Boolean.class, false));
+    }
+
+    /**
+     * Executor for parsing, encoding and other CPU-bound tasks. Shut down by {@link PgExecutors#close()}.
+     */
+    @Bean(destroyMethod = "")
+    public ExecutorService cpuExecutor(PgExecutors pgExecutors) {
+        return pgExecutors.getCpuExecutor();
+    }
+
+    /**
+     * Executor for file and network tasks, e.g. text mining. Shut down by {@link PgExecutors#close()}.
+     */
+    @Bean(destroyMethod = "")
+    public ExecutorService ioExecutor(PgExecutors pgExecutors) {
+        return pgExecutors.getIoExecutor();
     }
 
     @Bean
@@ -39,6 +64,11 @@ public class PhenopacketGeneratorConfiguration {
         return new OptionalResources();
     }
 
+    @Bean
+    public OntologySnapshotCache ontologySnapshotCache(Path appHomeDir) {
+        return new OntologySnapshotCache(appHomeDir);
+    }
+
     @Bean
     public String phenopacketsVersion(Environment env) {
         return env.getProperty(Main.PG_PHENOPACKET_VERSION_PROP_KEY);
@@ -1,17 +1,70 @@
 package org.jax.phenopacketgenerator;
 
+import io.micrometer.core.instrument.Timer;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
 import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class Utils {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Timer PARSE_TIMER = PgMetrics.timer("pg.ontology.parse", "Parsing of HPO OBO file");
+
     private Utils() {
         // private no-op
     }
 
     public static Ontology deserializeOntology(InputStream is) {
-        return OntologyLoader.loadOntology(is);
+        long start = System.nanoTime();
+        try {
+            return OntologyLoader.loadOntology(is);
+        } finally {
+            PgMetrics.recordSince(PARSE_TIMER, start);
+        }
+    }
+
+    /**
+     * Compute SHA-256 digest of the file content.
+     *
+     * @param path path to file
+     * @return lowercase hex-encoded digest
+     * @throws IOException if the file cannot be read
+     */
+    public static String sha256Hex(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream is = Files.newInputStream(path)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
     }
 }
@@ -0,0 +1,143 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.concurrent.PgExecutors;
+import org.jax.phenopacketgenerator.io.PhenopacketWriter;
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.PhenopacketExporter;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts rows of a case table into phenopackets using all available cores.
+ * <p>
+ * The table is read on the calling thread while QC, encoding and writing run on a worker pool. The number of cases
+ * in flight is limited, so that the cases of the table are not all held in memory at once. Only the phenopacket IDs
+ * seen so far are kept until the table is done, to detect duplicates.
+ * <p>
+ * A case with the phenopacket ID of an earlier case of the table fails, so that it does not overwrite or duplicate the
+ * phenopacket of the earlier case.
+ */
+public class BatchExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchExporter.class);
+
+    /**
+     * Number of cases per worker thread that may wait in the queue.
+     */
+    private static final int CASES_PER_THREAD = 16;
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final CaseModelFactory modelFactory;
+    private final PhenopacketWriter writer;
+    private final int nThreads;
+    /**
+     * Closure for detection of conflicting and redundant phenotypes, <code>null</code> if redundant phenotypes should be
+     * kept.
+     */
+    private final AncestorClosure closure;
+
+    public BatchExporter(CaseModelFactory modelFactory, PhenopacketWriter writer, int nThreads) {
+        this(modelFactory, writer, nThreads, null);
+    }
+
+    /**
+     * @param closure if not <code>null</code>, cases with conflicting phenotypes fail and redundant phenotypes are
+     *                removed before export
+     */
+    public BatchExporter(CaseModelFactory modelFactory, PhenopacketWriter writer, int nThreads, AncestorClosure closure) {
+        this.modelFactory = modelFactory;
+        this.writer = writer;
+        this.nThreads = nThreads;
+        this.closure = closure;
+    }
+
+    /**
+     * Export all cases from the <code>reader</code>. Failing cases are logged and counted, they do not stop the batch.
+     *
+     * @param reader case table
+     * @return summary of the run
+     * @throws IOException          if reading of the case table fails
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public BatchSummary run(CaseTableReader reader) throws IOException, InterruptedException {
+        final ExecutorService executor = PgExecutors.newCpuBoundExecutor("batch", nThreads, nThreads * CASES_PER_THREAD);
+        final Semaphore inFlight = new Semaphore(nThreads * CASES_PER_THREAD);
+        final AtomicLong exported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final long start = System.nanoTime();
+        final Map<String, Long> phenopacketIdLines = new HashMap<>();
+        try {
+            CaseRow row;
+            while ((row = reader.next()) != null) {
+                String duplicate = checkDuplicate(row, phenopacketIdLines);
+                if (duplicate != null) {
+                    failed.incrementAndGet();
+                    LOGGER.warn("Line {}: {}", row.getLineNumber(), duplicate);
+                    continue;
+                }
+                inFlight.acquire();
+                final CaseRow current = row;
+                executor.execute(() -> {
+                    try {
+                        exportCase(current);
+                        long n = exported.incrementAndGet();
+                        if (n % PROGRESS_INTERVAL == 0) {
+                            LOGGER.info("Exported {} cases", n);
+                        }
+                    } catch (PGException | IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        LOGGER.warn("Line {}: {}", current.getLineNumber(), e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return new BatchSummary(exported.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs on the reading thread, so that the first of the cases with the same ID is the one that is exported.
+     *
+     * @param phenopacketIdLines line numbers of the phenopacket IDs of the table seen so far
+     * @return message if another case of the table has the same phenopacket ID, <code>null</code> otherwise
+     */
+    static String checkDuplicate(CaseRow row, Map<String, Long> phenopacketIdLines) {
+        String id = row.getPhenopacketId();
+        if (id.trim().isEmpty()) {
+            // reported by the QC
+            return null;
+        }
+        Long firstLine = phenopacketIdLines.putIfAbsent(id, row.getLineNumber());
+        return firstLine == null ? null : String.format("Phenopacket ID `%s` is already used on line %d", id, firstLine);
+    }
+
+    /**
+     * Export a single case on the calling thread.
+     */
+    void exportCase(CaseRow row) throws PGException, IOException {
+        PgModel model = modelFactory.toModel(row);
+        if (closure == null) {
+            model.qc();
+        } else {
+            model.qc(closure);
+            model.removePhenotypes(model.getRedundantPhenotypes(closure));
+        }
+        PhenopacketExporter exporter = new PhenopacketExporter(model);
+        writer.write(exporter.encode());
+    }
+}
@@ -0,0 +1,126 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.concurrent.PgExecutors;
+import org.jax.phenopacketgenerator.io.PhenopacketWriter;
+import org.jax.phenopacketgenerator.model.ModelValidator;
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.PhenopacketExporter;
+import org.jax.phenopacketgenerator.model.PhenopacketImporter;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Imports an archive of phenopackets, QCs them against the current ontology and exports them again using all available
+ * cores.
+ * <p>
+ * The directory is walked lazily on the calling thread while parsing, QC, encoding and writing run on a worker pool.
+ * As in {@link BatchExporter}, the number of files in flight is limited, so that memory use does not depend on the
+ * size of the archive. A phenopacket with the ID of a phenopacket imported before fails, so that it does not
+ * overwrite or duplicate the earlier one.
+ *
+ * @see PhenopacketImporter
+ */
+public class BatchImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchImporter.class);
+
+    /**
+     * Number of files per worker thread that may wait in the queue.
+     */
+    private static final int FILES_PER_THREAD = 16;
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final ModelValidator validator;
+    private final PhenopacketWriter writer;
+    private final int nThreads;
+    /**
+     * Closure for removal of redundant phenotypes, <code>null</code> if redundant phenotypes should be kept.
+     */
+    private final AncestorClosure closure;
+
+    /**
+     * @param validator phenopackets with errors found by the validator fail
+     * @param closure   if not <code>null</code>, redundant phenotypes are removed before export
+     */
+    public BatchImporter(ModelValidator validator, PhenopacketWriter writer, int nThreads, AncestorClosure closure) {
+        this.validator = validator;
+        this.writer = writer;
+        this.nThreads = nThreads;
+        this.closure = closure;
+    }
+
+    /**
+     * Import all <code>.json</code>, <code>.json.gz</code> and <code>.pb</code> files from the <code>directory</code>
+     * and its subdirectories. Failing files are logged and counted, they do not stop the batch.
+     *
+     * @param directory archive of phenopackets
+     * @return summary of the run
+     * @throws IOException          if the directory cannot be walked
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public BatchSummary run(Path directory) throws IOException, InterruptedException {
+        final ExecutorService executor = PgExecutors.newCpuBoundExecutor("import", nThreads, nThreads * FILES_PER_THREAD);
+        final Semaphore inFlight = new Semaphore(nThreads * FILES_PER_THREAD);
+        final AtomicLong exported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final long start = System.nanoTime();
+        final Set<String> phenopacketIds = ConcurrentHashMap.newKeySet();
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                final Path file = iterator.next();
+                if (!PhenopacketImporter.isPhenopacketFile(file) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        importFile(file, phenopacketIds);
+                        long n = exported.incrementAndGet();
+                        if (n % PROGRESS_INTERVAL == 0) {
+                            LOGGER.info("Imported {} phenopackets", n);
+                        }
+                    } catch (PGException | IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        LOGGER.warn("{}: {}", file, e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return new BatchSummary(exported.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    private void importFile(Path file, Set<String> phenopacketIds) throws PGException, IOException {
+        PgModel model = PhenopacketImporter.read(file);
+        // an empty ID is reported by the QC
+        if (!model.getPhenopacketId().isEmpty() && !phenopacketIds.add(model.getPhenopacketId())) {
+            throw new PGException(String.format("Phenopacket ID `%s` is already used by another file",
+                    model.getPhenopacketId()));
+        }
+        model.qc(validator);
+        if (closure != null) {
+            model.removePhenotypes(model.getRedundantPhenotypes(closure));
+        }
+        writer.write(new PhenopacketExporter(model).encode());
+    }
+}
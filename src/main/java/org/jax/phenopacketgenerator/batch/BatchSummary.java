@@ -0,0 +1,42 @@
+package org.jax.phenopacketgenerator.batch;
+
+/**
+ * Outcome of a batch run.
+ */
+public class BatchSummary {
+
+    private final long exported;
+    private final long failed;
+    private final long elapsedNanos;
+
+    public BatchSummary(long exported, long failed, long elapsedNanos) {
+        this.exported = exported;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getExported() {
+        return exported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return number of processed (exported and failed) cases per second
+     */
+    public double getCasesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (exported + failed) * 1_000_000_000. / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exported %d cases, %d failed in %.2f s (%.1f cases/s)",
+                exported, failed, elapsedNanos / 1_000_000_000., getCasesPerSecond());
+    }
+}
@@ -0,0 +1,140 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.concurrent.PgExecutors;
+import org.jax.phenopacketgenerator.model.ModelValidator;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validates all rows of a case table using all available cores and reports every issue of every case, without
+ * exporting anything.
+ * <p>
+ * The table is read on the calling thread, which also checks that phenopacket IDs are unique, while the models are
+ * validated on a worker pool. As in {@link BatchExporter}, the number of cases in flight is limited.
+ */
+public class BatchValidator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchValidator.class);
+
+    /**
+     * Number of cases per worker thread that may wait in the queue.
+     */
+    private static final int CASES_PER_THREAD = 16;
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final CaseModelFactory modelFactory;
+    private final ModelValidator validator;
+    private final ValidationReportWriter reportWriter;
+    private final int nThreads;
+
+    public BatchValidator(CaseModelFactory modelFactory, ModelValidator validator, ValidationReportWriter reportWriter,
+                          int nThreads) {
+        this.modelFactory = modelFactory;
+        this.validator = validator;
+        this.reportWriter = reportWriter;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Validate all cases from the <code>reader</code> and write their issues to the report.
+     *
+     * @param reader case table
+     * @return summary of the run
+     * @throws IOException          if reading of the case table or writing of the report fails
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public ValidationSummary run(CaseTableReader reader) throws IOException, InterruptedException {
+        final ExecutorService executor = PgExecutors.newCpuBoundExecutor("validation", nThreads, nThreads * CASES_PER_THREAD);
+        final Semaphore inFlight = new Semaphore(nThreads * CASES_PER_THREAD);
+        final Map<String, Long> phenopacketIdLines = new HashMap<>();
+        final AtomicLong cases = new AtomicLong();
+        final AtomicLong invalid = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong warnings = new AtomicLong();
+        final AtomicReference<IOException> reportError = new AtomicReference<>();
+        final long start = System.nanoTime();
+        try {
+            CaseRow row;
+            while ((row = reader.next()) != null && reportError.get() == null) {
+                final CaseRow current = row;
+                final ValidationIssue duplicate = checkDuplicate(current, phenopacketIdLines);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        List<ValidationIssue> issues = validate(current, duplicate);
+                        long nErrors = issues.stream()
+                                .filter(issue -> issue.getSeverity() == ValidationIssue.Severity.ERROR)
+                                .count();
+                        errors.addAndGet(nErrors);
+                        warnings.addAndGet(issues.size() - nErrors);
+                        if (nErrors > 0) {
+                            invalid.incrementAndGet();
+                        }
+                        reportWriter.write(current.getLineNumber(), current.getPhenopacketId(), issues);
+                        long n = cases.incrementAndGet();
+                        if (n % PROGRESS_INTERVAL == 0) {
+                            LOGGER.info("Validated {} cases", n);
+                        }
+                    } catch (IOException e) {
+                        reportError.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        cases.incrementAndGet();
+                        invalid.incrementAndGet();
+                        LOGGER.warn("Line {}: {}", current.getLineNumber(), e.getMessage(), e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        if (reportError.get() != null) {
+            throw reportError.get();
+        }
+        return new ValidationSummary(cases.get(), invalid.get(), errors.get(), warnings.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs on the reading thread, so that the first of the cases with the same ID is the one that is not reported.
+     *
+     * @return issue if another case of the table has the same phenopacket ID, <code>null</code> otherwise
+     */
+    private static ValidationIssue checkDuplicate(CaseRow row, Map<String, Long> phenopacketIdLines) {
+        String id = row.getPhenopacketId();
+        if (id.trim().isEmpty()) {
+            // reported as missing ID
+            return null;
+        }
+        Long firstLine = phenopacketIdLines.putIfAbsent(id, row.getLineNumber());
+        return firstLine == null
+                ? null
+                : ValidationIssue.of(ValidationIssue.Type.DUPLICATE_PHENOPACKET_ID, "phenopacket_id",
+                String.format("Phenopacket ID `%s` is already used on line %d", id, firstLine));
+    }
+
+    private List<ValidationIssue> validate(CaseRow row, ValidationIssue duplicate) {
+        PgModel model = modelFactory.toModelForValidation(row);
+        List<ValidationIssue> issues = new ArrayList<>(validator.validate(model));
+        if (duplicate != null) {
+            issues.add(0, duplicate);
+        }
+        modelFactory.getVcfCohort().ifPresent(cohort -> issues.addAll(cohort.validate(row, model)));
+        return issues;
+    }
+}
@@ -0,0 +1,263 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.concurrent.PgExecutors;
+import org.jax.phenopacketgenerator.model.PGException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches a directory for case tables dropped by other systems, e.g. a LIMS, and exports the cases of each new or
+ * changed table as phenopackets.
+ * <p>
+ * A table is processed once it has not changed for a quiet period, so that a table that is being copied is not read
+ * half-written. Tables are processed in parallel on a worker pool, the cases of a table one after another as in
+ * {@link BatchExporter}. Processed tables are recorded in a {@link WatchState} file, and on start the tables that are
+ * already in the directory are processed unless the state file lists them with the same size and modification time.
+ * A table that fails is recorded as well and is processed again only when it changes.
+ * <p>
+ * Only files named <code>*.tsv</code> or <code>*.csv</code> directly in the directory are processed, hidden files are
+ * ignored.
+ */
+public final class CaseFolderWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaseFolderWatcher.class);
+
+    /**
+     * Number of tables per worker thread that may wait in the queue.
+     */
+    private static final int FILES_PER_THREAD = 16;
+
+    private final Path inputDir;
+
+    private final WatchState state;
+
+    private final long quietMillis;
+
+    private final BatchExporter exporter;
+
+    private final int nThreads;
+
+    private final WatchService watchService;
+
+    /**
+     * Tables waiting for the end of their quiet period, by the time in millis when it ends. Accessed only by the thread
+     * running {@link #run()}.
+     */
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    /**
+     * Tables being processed by the workers, a table that changes meanwhile waits until the workers are done with it.
+     */
+    private final Set<Path> inProgress = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong processedFiles = new AtomicLong();
+    private final AtomicLong exportedCases = new AtomicLong();
+    private final AtomicLong failedCases = new AtomicLong();
+
+    /**
+     * @param inputDir    directory to watch
+     * @param stateFile   file with the tables processed so far, created if it does not exist
+     * @param quietPeriod time without changes of a table after which the table is processed
+     * @param exporter    exporter of single cases
+     * @param nThreads    number of tables processed at the same time
+     * @throws IOException if the directory cannot be watched or the state file cannot be read
+     */
+    public CaseFolderWatcher(Path inputDir, Path stateFile, Duration quietPeriod, BatchExporter exporter, int nThreads)
+            throws IOException {
+        this.inputDir = inputDir.toAbsolutePath();
+        this.state = WatchState.load(stateFile);
+        this.quietMillis = quietPeriod.toMillis();
+        this.exporter = exporter;
+        this.nThreads = nThreads;
+        this.watchService = this.inputDir.getFileSystem().newWatchService();
+        try {
+            this.inputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Process the tables in the directory and then each new or changed table, until the watcher is
+     * {@link #stop() stopped}. The tables being processed are finished and the state is saved before returning.
+     *
+     * @throws IOException          if the directory cannot be listed or the state cannot be saved
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void run() throws IOException, InterruptedException {
+        final ExecutorService executor = PgExecutors.newCpuBoundExecutor("watch", nThreads, nThreads * FILES_PER_THREAD);
+        final Semaphore inFlight = new Semaphore(nThreads * FILES_PER_THREAD);
+        LOGGER.info("Watching `{}` for case tables, {} tables processed before", inputDir, state.size());
+        try {
+            scan();
+            while (true) {
+                WatchKey key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                submitQuietFiles(executor, inFlight);
+                saveState();
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching `{}`", inputDir);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            state.save();
+            LOGGER.info("Processed {} case tables, exported {} cases, {} failed", processedFiles.get(),
+                    exportedCases.get(), failedCases.get());
+        }
+    }
+
+    /**
+     * Add all tables in the directory to the pending tables, the tables already processed are skipped later.
+     */
+    private void scan() throws IOException {
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir)) {
+            for (Path file : files) {
+                if (isCaseTable(file)) {
+                    pending.putIfAbsent(file, now);
+                }
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey key) throws IOException {
+        long quietUntil = System.currentTimeMillis() + quietMillis;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOGGER.debug("Lost events of `{}`, scanning the directory", inputDir);
+                scan();
+                continue;
+            }
+            Path file = inputDir.resolve((Path) event.context());
+            if (isCaseTable(file)) {
+                pending.put(file, quietUntil);
+            }
+        }
+        if (!key.reset()) {
+            // e.g. the directory has been deleted, there is nothing to watch anymore
+            LOGGER.warn("Directory `{}` is no longer accessible", inputDir);
+            throw new ClosedWatchServiceException();
+        }
+    }
+
+    private void submitQuietFiles(ExecutorService executor, Semaphore inFlight) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            Path file = entry.getKey();
+            if (entry.getValue() > now || inProgress.contains(file)) {
+                continue;
+            }
+            WatchState.Stamp stamp;
+            try {
+                stamp = WatchState.Stamp.of(file);
+            } catch (IOException e) {
+                // removed or replaced by a directory
+                iterator.remove();
+                continue;
+            }
+            if (now - stamp.getLastModified() < quietMillis) {
+                // changed without an event yet, e.g. on a network file system
+                entry.setValue(stamp.getLastModified() + quietMillis);
+                continue;
+            }
+            iterator.remove();
+            String name = file.getFileName().toString();
+            if (state.isProcessed(name, stamp)) {
+                continue;
+            }
+            inFlight.acquire();
+            inProgress.add(file);
+            executor.execute(() -> {
+                try {
+                    state.markProcessed(name, stamp, process(file));
+                } finally {
+                    inProgress.remove(file);
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return status of the table for the state file
+     */
+    private String process(Path file) {
+        long exported = 0;
+        long failed = 0;
+        Map<String, Long> phenopacketIdLines = new HashMap<>();
+        try (CaseTableReader reader = new CaseTableReader(file)) {
+            CaseRow row;
+            while ((row = reader.next()) != null) {
+                String duplicate = BatchExporter.checkDuplicate(row, phenopacketIdLines);
+                if (duplicate != null) {
+                    failed++;
+                    LOGGER.warn("{} line {}: {}", file.getFileName(), row.getLineNumber(), duplicate);
+                    continue;
+                }
+                try {
+                    exporter.exportCase(row);
+                    exported++;
+                } catch (PGException | IOException | RuntimeException e) {
+                    failed++;
+                    LOGGER.warn("{} line {}: {}", file.getFileName(), row.getLineNumber(), e.getMessage());
+                }
+            }
+        } catch (PGException | IOException | RuntimeException e) {
+            LOGGER.warn("{}: {}", file.getFileName(), e.getMessage());
+            return "error";
+        } finally {
+            processedFiles.incrementAndGet();
+            exportedCases.addAndGet(exported);
+            failedCases.addAndGet(failed);
+        }
+        LOGGER.info("{}: exported {} cases, {} failed", file.getFileName(), exported, failed);
+        return failed == 0 ? "ok" : "failed";
+    }
+
+    private void saveState() {
+        try {
+            state.save();
+        } catch (IOException e) {
+            // tried again after the next table
+            LOGGER.warn("Unable to save state of the watcher", e);
+        }
+    }
+
+    private static boolean isCaseTable(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return !name.startsWith(".") && (name.endsWith(".tsv") || name.endsWith(".csv"));
+    }
+
+    /**
+     * Stop watching the directory, {@link #run()} returns once the tables being processed are done. May be called
+     * from any thread, e.g. a shutdown hook.
+     */
+    public void stop() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Same as {@link #stop()}, closing a stopped watcher has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+}
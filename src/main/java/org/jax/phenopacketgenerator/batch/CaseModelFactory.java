@@ -0,0 +1,179 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.ModelValidator;
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.PgOntologyClass;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+
+/**
+ * Turns {@link CaseRow}s into {@link PgModel}s. HPO term labels are looked up in the {@link CompactOntology}. Instances are
+ * thread-safe.
+ */
+public class CaseModelFactory {
+
+    /**
+     * HPO IDs are separated by <code>;</code> or <code>|</code>, not by <code>,</code>, which separates the columns of
+     * CSV tables.
+     */
+    private static final Pattern HPO_ID_SEPARATOR = Pattern.compile("[;|]");
+
+    private final CompactOntology ontology;
+    private final String hpoVersion;
+    private final String ecoVersion;
+    private final String phenopacketVersion;
+    private final String biocurator;
+    /**
+     * VCF file shared by all cases or <code>null</code> if each case names its own VCF file.
+     */
+    private final VcfCohort vcfCohort;
+
+    public CaseModelFactory(CompactOntology ontology, String ecoVersion, String phenopacketVersion, String biocurator) {
+        this(ontology, ecoVersion, phenopacketVersion, biocurator, null);
+    }
+
+    private CaseModelFactory(CompactOntology ontology, String ecoVersion, String phenopacketVersion, String biocurator,
+                             VcfCohort vcfCohort) {
+        this.ontology = ontology;
+        this.hpoVersion = ontology.getVersion().orElse("unknown HPO version");
+        this.ecoVersion = ecoVersion;
+        this.phenopacketVersion = phenopacketVersion;
+        this.biocurator = biocurator;
+        this.vcfCohort = vcfCohort;
+    }
+
+    /**
+     * @return factory that joins each case to its sample of the shared VCF file of the <code>cohort</code>
+     */
+    public CaseModelFactory withVcfCohort(VcfCohort cohort) {
+        return new CaseModelFactory(ontology, ecoVersion, phenopacketVersion, biocurator, cohort);
+    }
+
+    public Optional<VcfCohort> getVcfCohort() {
+        return Optional.ofNullable(vcfCohort);
+    }
+
+    /**
+     * @param row case table row
+     * @return model with data from the <code>row</code>, the model has not been QCed yet
+     * @throws PGException if the row contains HPO ID that is not present in the ontology or if the case cannot be
+     *                     joined to the shared VCF file
+     */
+    public PgModel toModel(CaseRow row) throws PGException {
+        PgModel model = toModel(row, parsePhenotypes(row.getHpoIds()));
+        if (vcfCohort != null) {
+            List<ValidationIssue> issues = vcfCohort.validate(row, model);
+            if (ModelValidator.hasErrors(issues)) {
+                throw new PGException(issues.stream()
+                        .filter(issue -> issue.getSeverity() == ValidationIssue.Severity.ERROR)
+                        .map(ValidationIssue::getMessage)
+                        .collect(Collectors.joining("; ")));
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Unlike {@link #toModel(CaseRow)}, the HPO IDs are kept as they are in the <code>row</code>, including unknown,
+     * obsolete and alternative IDs, so that {@link org.jax.phenopacketgenerator.model.ModelValidator} can report all
+     * of them. Labels of unknown and obsolete terms are empty.
+     *
+     * @param row case table row
+     * @return model with data from the <code>row</code>
+     */
+    public PgModel toModelForValidation(CaseRow row) {
+        return toModel(row, parseRawPhenotypes(row.getHpoIds()));
+    }
+
+    private PgModel toModel(CaseRow row, List<PgOntologyClass> phenotypes) {
+        PgModel model = new PgModel(phenotypes);
+        model.setProbandId(row.getProbandId());
+        model.setPhenopacketId(row.getPhenopacketId());
+        model.setSex(normalizeSex(row.getSex()));
+        model.setIsoAge(row.getIsoAge());
+        if (!row.getVcfPath().isEmpty()) {
+            model.setVcfPath(row.getVcfPath());
+            // left unset if missing, the QC reports it
+            model.setGenomeAssembly(row.getGenomeAssembly().isEmpty() ? null : row.getGenomeAssembly());
+        }
+        model.setBiocurator(biocurator);
+        model.setHpoVersion(hpoVersion);
+        model.setEcoVersion(ecoVersion);
+        model.setPhenopacketVersion(phenopacketVersion);
+        if (vcfCohort != null) {
+            vcfCohort.join(row, model);
+        }
+        return model;
+    }
+
+    private List<PgOntologyClass> parsePhenotypes(String hpoIds) throws PGException {
+        List<PgOntologyClass> phenotypes = new ArrayList<>();
+        for (String token : HPO_ID_SEPARATOR.split(hpoIds)) {
+            String id = token.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            boolean excluded = id.startsWith("!");
+            if (excluded) {
+                id = id.substring(1).trim();
+            }
+            int term = ontology.indexOf(id);
+            if (term < 0) {
+                throw new PGException((ontology.isObsolete(id) ? "Obsolete HPO ID `" : "Unknown HPO ID `") + id + "`");
+            }
+            phenotypes.add(PgOntologyClass.newBuilder()
+                    .setId(ontology.getTermId(term))
+                    .setLabel(ontology.getLabel(term))
+                    .setNotObserved(excluded)
+                    .build());
+        }
+        return phenotypes;
+    }
+
+    private List<PgOntologyClass> parseRawPhenotypes(String hpoIds) {
+        List<PgOntologyClass> phenotypes = new ArrayList<>();
+        for (String token : HPO_ID_SEPARATOR.split(hpoIds)) {
+            String id = token.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            boolean excluded = id.startsWith("!");
+            if (excluded) {
+                id = id.substring(1).trim();
+            }
+            int term = ontology.indexOf(id);
+            phenotypes.add(PgOntologyClass.newBuilder()
+                    .setId(id)
+                    .setLabel(term < 0 ? "" : ontology.getLabel(term))
+                    .setNotObserved(excluded)
+                    .build());
+        }
+        return phenotypes;
+    }
+
+    private static String normalizeSex(String sex) {
+        switch (sex.trim().toUpperCase()) {
+            case "M":
+            case "MALE":
+                return "MALE";
+            case "F":
+            case "FEMALE":
+                return "FEMALE";
+            case "U":
+            case "UNKNOWN":
+                return "UNKNOWN";
+            case "":
+                return "";
+            default:
+                // not exported, kept for the validation report
+                return sex.trim();
+        }
+    }
+}
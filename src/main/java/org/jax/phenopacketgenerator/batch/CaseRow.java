@@ -0,0 +1,139 @@
+package org.jax.phenopacketgenerator.batch;
+
+/**
+ * POJO with the raw values of a single row of the case table.
+ */
+public class CaseRow {
+
+    private final long lineNumber;
+    private final String probandId;
+    private final String phenopacketId;
+    private final String sex;
+    private final String isoAge;
+    private final String hpoIds;
+    private final String vcfPath;
+    private final String genomeAssembly;
+    private final String sampleId;
+
+    private CaseRow(Builder builder) {
+        this.lineNumber = builder.lineNumber;
+        this.probandId = builder.probandId;
+        this.phenopacketId = builder.phenopacketId;
+        this.sex = builder.sex;
+        this.isoAge = builder.isoAge;
+        this.hpoIds = builder.hpoIds;
+        this.vcfPath = builder.vcfPath;
+        this.genomeAssembly = builder.genomeAssembly;
+        this.sampleId = builder.sampleId;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 1-based line number of the row in the case table
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getProbandId() {
+        return probandId;
+    }
+
+    public String getPhenopacketId() {
+        return phenopacketId;
+    }
+
+    public String getSex() {
+        return sex;
+    }
+
+    public String getIsoAge() {
+        return isoAge;
+    }
+
+    /**
+     * @return HPO term IDs separated by <code>;</code> or <code>|</code>. Excluded terms are prefixed by <code>!</code>
+     */
+    public String getHpoIds() {
+        return hpoIds;
+    }
+
+    public String getVcfPath() {
+        return vcfPath;
+    }
+
+    public String getGenomeAssembly() {
+        return genomeAssembly;
+    }
+
+    /**
+     * @return ID of the proband's sample in the VCF file, empty if the sample ID is the proband ID
+     */
+    public String getSampleId() {
+        return sampleId;
+    }
+
+    public static class Builder {
+        private long lineNumber;
+        private String probandId = "";
+        private String phenopacketId = "";
+        private String sex = "";
+        private String isoAge = "";
+        private String hpoIds = "";
+        private String vcfPath = "";
+        private String genomeAssembly = "";
+        private String sampleId = "";
+
+        public Builder setLineNumber(long lineNumber) {
+            this.lineNumber = lineNumber;
+            return this;
+        }
+
+        public Builder setProbandId(String probandId) {
+            this.probandId = probandId;
+            return this;
+        }
+
+        public Builder setPhenopacketId(String phenopacketId) {
+            this.phenopacketId = phenopacketId;
+            return this;
+        }
+
+        public Builder setSex(String sex) {
+            this.sex = sex;
+            return this;
+        }
+
+        public Builder setIsoAge(String isoAge) {
+            this.isoAge = isoAge;
+            return this;
+        }
+
+        public Builder setHpoIds(String hpoIds) {
+            this.hpoIds = hpoIds;
+            return this;
+        }
+
+        public Builder setVcfPath(String vcfPath) {
+            this.vcfPath = vcfPath;
+            return this;
+        }
+
+        public Builder setGenomeAssembly(String genomeAssembly) {
+            this.genomeAssembly = genomeAssembly;
+            return this;
+        }
+
+        public Builder setSampleId(String sampleId) {
+            this.sampleId = sampleId;
+            return this;
+        }
+
+        public CaseRow build() {
+            return new CaseRow(this);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.PGException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Streaming reader of a case table, one {@link CaseRow} at a time.
+ * <p>
+ * The first line is a header with column names. Recognized columns (in any order, case-insensitive) are:
+ * <ul>
+ * <li><code>proband_id</code></li>
+ * <li><code>phenopacket_id</code></li>
+ * <li><code>sex</code> - <code>MALE</code>, <code>FEMALE</code> or empty</li>
+ * <li><code>age</code> - ISO8601 duration, e.g. <code>P6Y5M</code></li>
+ * <li><code>hpo_ids</code> - e.g. <code>HP:0001744;!HP:0030242</code>, excluded terms are prefixed by <code>!</code></li>
+ * <li><code>vcf_path</code></li>
+ * <li><code>assembly</code></li>
+ * <li><code>sample_id</code> - ID of the proband's sample in the VCF file if it differs from the proband ID</li>
+ * </ul>
+ * Columns are separated by tab, unless the file name ends with <code>.csv</code>. CSV fields may be enclosed in double
+ * quotes. A byte order mark at the start of the file is ignored. Empty lines and lines starting with <code>#</code>
+ * are skipped.
+ */
+public class CaseTableReader implements Closeable {
+
+    private static final Map<String, String> COLUMN_ALIASES = makeColumnAliases();
+
+    /**
+     * Byte order mark that Excel writes at the start of a UTF-8 file.
+     */
+    private static final char BOM = '\uFEFF';
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final Map<String, Integer> columns;
+    private long lineNumber = 0;
+
+    public CaseTableReader(Path caseTablePath) throws IOException, PGException {
+        this(Files.newBufferedReader(caseTablePath),
+                caseTablePath.getFileName().toString().toLowerCase().endsWith(".csv") ? ',' : '\t');
+    }
+
+    public CaseTableReader(BufferedReader reader, char delimiter) throws IOException, PGException {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        String header = nextLine();
+        if (header == null) {
+            throw new PGException("Case table is empty");
+        }
+        this.columns = parseHeader(split(header));
+    }
+
+    private static Map<String, String> makeColumnAliases() {
+        Map<String, String> aliases = new HashMap<>();
+        aliases.put("proband_id", "proband_id");
+        aliases.put("proband", "proband_id");
+        aliases.put("phenopacket_id", "phenopacket_id");
+        aliases.put("sex", "sex");
+        aliases.put("age", "age");
+        aliases.put("iso_age", "age");
+        aliases.put("hpo_ids", "hpo_ids");
+        aliases.put("hpo", "hpo_ids");
+        aliases.put("phenotypes", "hpo_ids");
+        aliases.put("vcf_path", "vcf_path");
+        aliases.put("vcf", "vcf_path");
+        aliases.put("assembly", "assembly");
+        aliases.put("genome_assembly", "assembly");
+        aliases.put("sample_id", "sample_id");
+        aliases.put("sample", "sample_id");
+        return aliases;
+    }
+
+    private static Map<String, Integer> parseHeader(List<String> header) throws PGException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase().replace(' ', '_');
+            String column = COLUMN_ALIASES.get(name);
+            if (column != null) {
+                columns.put(column, i);
+            }
+        }
+        for (String required : Arrays.asList("proband_id", "phenopacket_id", "hpo_ids")) {
+            if (!columns.containsKey(required)) {
+                throw new PGException("Case table is missing required column `" + required + "`");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return next row or <code>null</code> if there are no more rows
+     * @throws IOException if reading fails
+     */
+    public CaseRow next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = split(line);
+        return CaseRow.newBuilder()
+                .setLineNumber(lineNumber)
+                .setProbandId(field(fields, "proband_id"))
+                .setPhenopacketId(field(fields, "phenopacket_id"))
+                .setSex(field(fields, "sex"))
+                .setIsoAge(field(fields, "age"))
+                .setHpoIds(field(fields, "hpo_ids"))
+                .setVcfPath(field(fields, "vcf_path"))
+                .setGenomeAssembly(field(fields, "assembly"))
+                .setSampleId(field(fields, "sample_id"))
+                .build();
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BOM) {
+                line = line.substring(1);
+            }
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer idx = columns.get(column);
+        if (idx == null || idx >= fields.size()) {
+            return "";
+        }
+        return fields.get(idx).trim();
+    }
+
+    private List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (delimiter == ',' && c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    // escaped quote
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
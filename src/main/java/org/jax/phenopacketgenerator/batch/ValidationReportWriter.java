@@ -0,0 +1,69 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes issues found by {@link BatchValidator} as a tab-separated table with one issue per line:
+ * <pre>
+ * line  phenopacket_id  severity  type  field  message
+ * </pre>
+ * <code>line</code> is the line of the case in the case table, <code>type</code> is a
+ * {@link ValidationIssue.Type} constant. Cases are written in the order they are validated, which is not necessarily
+ * the order of the case table, sort by <code>line</code> if needed. Tabs and line breaks in values are replaced by
+ * spaces.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class ValidationReportWriter implements Closeable {
+
+    private static final String HEADER = "line\tphenopacket_id\tseverity\ttype\tfield\tmessage";
+
+    private final Writer writer;
+
+    public ValidationReportWriter(Path reportPath) throws IOException {
+        this(Files.newBufferedWriter(reportPath));
+    }
+
+    public ValidationReportWriter(Writer writer) throws IOException {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        this.writer.write(HEADER);
+        this.writer.write('\n');
+    }
+
+    /**
+     * Write issues of a single case.
+     */
+    public synchronized void write(long lineNumber, String phenopacketId, List<ValidationIssue> issues) throws IOException {
+        for (ValidationIssue issue : issues) {
+            writer.write(Long.toString(lineNumber));
+            writer.write('\t');
+            writer.write(clean(phenopacketId));
+            writer.write('\t');
+            writer.write(issue.getSeverity().name());
+            writer.write('\t');
+            writer.write(issue.getType().name());
+            writer.write('\t');
+            writer.write(clean(issue.getField()));
+            writer.write('\t');
+            writer.write(clean(issue.getMessage()));
+            writer.write('\n');
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
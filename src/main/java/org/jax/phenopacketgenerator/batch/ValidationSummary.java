@@ -0,0 +1,57 @@
+package org.jax.phenopacketgenerator.batch;
+
+/**
+ * Outcome of a validation run.
+ */
+public class ValidationSummary {
+
+    private final long cases;
+    private final long invalid;
+    private final long errors;
+    private final long warnings;
+    private final long elapsedNanos;
+
+    public ValidationSummary(long cases, long invalid, long errors, long warnings, long elapsedNanos) {
+        this.cases = cases;
+        this.invalid = invalid;
+        this.errors = errors;
+        this.warnings = warnings;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCases() {
+        return cases;
+    }
+
+    /**
+     * @return number of cases with at least one error
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getWarnings() {
+        return warnings;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return number of validated cases per second
+     */
+    public double getCasesPerSecond() {
+        return elapsedNanos == 0 ? 0 : cases * 1_000_000_000. / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Validated %d cases, %d invalid (%d errors, %d warnings) in %.2f s (%.1f cases/s)",
+                cases, invalid, errors, warnings, elapsedNanos / 1_000_000_000., getCasesPerSecond());
+    }
+}
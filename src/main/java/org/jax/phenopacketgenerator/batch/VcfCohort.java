@@ -0,0 +1,123 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.jax.phenopacketgenerator.vcf.VcfHeader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A multi-sample VCF file shared by all cases of a case table, e.g. a trio or a joint-called cohort. Each case is
+ * joined to its sample by the <code>sample_id</code> column, or by the proband ID if the column is empty, and its
+ * phenopacket references the shared file.
+ * <p>
+ * The header is read once, the join is a lookup in a hash set of the sample IDs. Instances are thread-safe.
+ */
+public class VcfCohort {
+
+    private final String vcfPath;
+
+    /**
+     * {@link #vcfPath} for comparisons with the paths of the cases.
+     */
+    private final Path normalizedPath;
+
+    private final VcfHeader header;
+
+    private final Set<String> sampleIds;
+
+    /**
+     * Samples joined to at least one case.
+     */
+    private final Set<String> joinedSampleIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param vcfPath absolute path to the VCF file as written into the phenopackets
+     * @param header  header of the file
+     */
+    public VcfCohort(String vcfPath, VcfHeader header) {
+        this.vcfPath = vcfPath;
+        this.normalizedPath = Paths.get(vcfPath).toAbsolutePath().normalize();
+        this.header = header;
+        this.sampleIds = new HashSet<>(header.getSampleIds());
+    }
+
+    public VcfHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Reference the shared VCF file and the sample of the case from the model. The genome assembly of the case takes
+     * precedence over the assembly indicated by the header.
+     */
+    void join(CaseRow row, PgModel model) {
+        String sampleId = row.getSampleId().isEmpty() ? row.getProbandId() : row.getSampleId();
+        model.setVcfPath(vcfPath);
+        model.setVcfSampleId(sampleId);
+        model.setGenomeAssembly(row.getGenomeAssembly().isEmpty()
+                ? header.getAssembly().orElse(null)
+                : row.getGenomeAssembly());
+        if (sampleIds.contains(sampleId)) {
+            joinedSampleIds.add(sampleId);
+        }
+    }
+
+    /**
+     * @param row   the case
+     * @param model model of the case {@link #join(CaseRow, PgModel) joined} to the VCF file
+     * @return problems of the join, empty list if there are none
+     */
+    List<ValidationIssue> validate(CaseRow row, PgModel model) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        if (!row.getVcfPath().isEmpty() && !isSharedFile(row.getVcfPath())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.CONFLICTING_VCF, "vcf_path",
+                    String.format("Case has its own VCF file `%s`, but all cases share `%s`", row.getVcfPath(), vcfPath)));
+        }
+        if (!sampleIds.contains(model.getVcfSampleId())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.SAMPLE_NOT_IN_VCF, "sample_id",
+                    String.format("Sample `%s` is not in the VCF file", model.getVcfSampleId())));
+        }
+        String assembly = header.getAssembly().orElse(null);
+        if (assembly != null && model.getGenomeAssembly() != null
+                && !VcfHeader.isSameAssembly(assembly, model.getGenomeAssembly())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.ASSEMBLY_MISMATCH, "assembly",
+                    String.format("Genome assembly is `%s`, but the VCF header indicates `%s`", model.getGenomeAssembly(),
+                            assembly)));
+        }
+        return issues;
+    }
+
+    /**
+     * @param path path of a case, relative paths are resolved against the working directory as the path of the shared
+     *             file is
+     * @return <code>true</code> if the path leads to the shared VCF file, e.g. through a link or a different spelling
+     */
+    private boolean isSharedFile(String path) {
+        try {
+            Path other = Paths.get(path).toAbsolutePath().normalize();
+            return other.equals(normalizedPath)
+                    || Files.exists(other) && Files.exists(normalizedPath) && Files.isSameFile(other, normalizedPath);
+        } catch (InvalidPathException | IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return samples of the VCF file that have not been joined to any case so far, in the order of the header
+     */
+    public List<String> getUnjoinedSampleIds() {
+        List<String> unjoined = new ArrayList<>();
+        for (String sampleId : header.getSampleIds()) {
+            if (!joinedSampleIds.contains(sampleId)) {
+                unjoined.add(sampleId);
+            }
+        }
+        return unjoined;
+    }
+}
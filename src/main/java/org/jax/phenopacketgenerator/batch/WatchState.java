@@ -0,0 +1,171 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Case files already processed by {@link CaseFolderWatcher}, so that a restarted watcher processes only files that are
+ * new or have changed since.
+ * <p>
+ * A file is identified by its name, size and modification time. The state is kept in a small tab-separated file with
+ * one line per case file, which is replaced atomically by {@link #save()}. Instances are thread-safe.
+ */
+final class WatchState {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchState.class);
+
+    private static final String HEADER = "#file\tsize\tlast_modified\tstatus";
+
+    private final Path stateFile;
+
+    /**
+     * Processed files by name, guarded by <code>this</code>.
+     */
+    private final Map<String, Entry> entries;
+
+    private boolean dirty;
+
+    private WatchState(Path stateFile, Map<String, Entry> entries) {
+        this.stateFile = stateFile;
+        this.entries = entries;
+    }
+
+    /**
+     * @return state stored in the <code>stateFile</code>, empty state if the file does not exist yet
+     * @throws IOException if the file exists, but cannot be read
+     */
+    static WatchState load(Path stateFile) throws IOException {
+        Map<String, Entry> entries = new TreeMap<>();
+        if (Files.exists(stateFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t");
+                    try {
+                        entries.put(fields[0], new Entry(Stamp.of(Long.parseLong(fields[1]), Long.parseLong(fields[2])),
+                                fields.length > 3 ? fields[3] : ""));
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        LOGGER.warn("Ignoring invalid line `{}` of `{}`", line, stateFile);
+                    }
+                }
+            }
+        }
+        return new WatchState(stateFile, entries);
+    }
+
+    /**
+     * @return <code>true</code> if the file has been processed with this size and modification time
+     */
+    synchronized boolean isProcessed(String fileName, Stamp stamp) {
+        Entry entry = entries.get(fileName);
+        return entry != null && entry.stamp.equals(stamp);
+    }
+
+    /**
+     * @param status outcome of the processing, for people reading the state file
+     */
+    synchronized void markProcessed(String fileName, Stamp stamp, String status) {
+        entries.put(fileName, new Entry(stamp, status));
+        dirty = true;
+    }
+
+    /**
+     * Write the state if it has changed since it was loaded or saved.
+     *
+     * @throws IOException if writing fails, the previous state file is kept then
+     */
+    synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                writer.write(String.join("\t", e.getKey(), String.valueOf(entry.stamp.size),
+                        String.valueOf(entry.stamp.lastModified), entry.status));
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        dirty = false;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Size and modification time of a file.
+     */
+    static final class Stamp {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private Stamp(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static Stamp of(long size, long lastModified) {
+            return new Stamp(size, lastModified);
+        }
+
+        /**
+         * @throws NoSuchFileException if the file has been removed
+         */
+        static Stamp of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Stamp stamp = (Stamp) o;
+            return size == stamp.size && lastModified == stamp.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Stamp stamp;
+
+        private final String status;
+
+        private Entry(Stamp stamp, String status) {
+            this.stamp = stamp;
+            this.status = status;
+        }
+    }
+}
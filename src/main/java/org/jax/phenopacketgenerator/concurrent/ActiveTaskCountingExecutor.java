@@ -0,0 +1,62 @@
+package org.jax.phenopacketgenerator.concurrent;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ExecutorService} decorator that counts running tasks, for executors that do not expose the count themselves.
+ */
+class ActiveTaskCountingExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    ActiveTaskCountingExecutor(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            active.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
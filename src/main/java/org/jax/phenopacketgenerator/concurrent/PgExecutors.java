@@ -0,0 +1,225 @@
+package org.jax.phenopacketgenerator.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors of the application, separated by the kind of work so that one kind cannot starve the other:
+ * <ul>
+ * <li><b>CPU-bound</b> executor for ontology parsing, encoding and similar work, with one thread per core</li>
+ * <li><b>IO-bound</b> executor for file and network work, e.g. remote text mining, with more threads than cores.
+ * Virtual threads are used instead if requested and the JDK supports them</li>
+ * </ul>
+ * Pools have bounded queues, a task submitted to a full queue is rejected with {@link RejectedExecutionException}.
+ * Queue depth, active tasks, pool size, completed and rejected tasks are recorded by {@link PgMetrics}, tagged by the
+ * executor name.
+ * <p>
+ * The executors are shut down by {@link #close()}.
+ */
+public final class PgExecutors implements AutoCloseable {
+
+    public static final String CPU_THREADS_PROPERTY = "pg.executor.cpu.threads";
+
+    public static final String IO_THREADS_PROPERTY = "pg.executor.io.threads";
+
+    /**
+     * Set to <code>true</code> to run IO-bound tasks on virtual threads, if the JDK supports them.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "pg.executor.virtual.threads";
+
+    public static final String CPU_EXECUTOR_NAME = "cpu";
+
+    public static final String IO_EXECUTOR_NAME = "io";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PgExecutors.class);
+
+    /**
+     * Number of tasks per thread that may wait in the queue of the application executors.
+     */
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+
+    /**
+     * Idle threads of IO-bound pools are released after this time.
+     */
+    private static final long IO_KEEP_ALIVE_SECONDS = 30;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService cpuExecutor;
+
+    private final ExecutorService ioExecutor;
+
+    /**
+     * @param cpuThreads     number of threads of the CPU-bound executor
+     * @param ioThreads      maximum number of threads of the IO-bound executor
+     * @param virtualThreads run IO-bound tasks on virtual threads if the JDK supports them
+     */
+    public PgExecutors(int cpuThreads, int ioThreads, boolean virtualThreads) {
+        this.cpuExecutor = newCpuBoundExecutor(CPU_EXECUTOR_NAME, cpuThreads, cpuThreads * QUEUED_TASKS_PER_THREAD);
+        Optional<ExecutorService> virtual = virtualThreads
+                ? newVirtualThreadExecutor(IO_EXECUTOR_NAME)
+                : Optional.empty();
+        if (virtualThreads && !virtual.isPresent()) {
+            LOGGER.info("Virtual threads are not supported by this JVM, using a pool of {} threads for IO", ioThreads);
+        }
+        this.ioExecutor = virtual.orElseGet(() ->
+                newIoBoundExecutor(IO_EXECUTOR_NAME, ioThreads, ioThreads * QUEUED_TASKS_PER_THREAD));
+    }
+
+    /**
+     * @return executor for CPU-bound tasks
+     */
+    public ExecutorService getCpuExecutor() {
+        return cpuExecutor;
+    }
+
+    /**
+     * @return executor for tasks blocked on files or network most of the time
+     */
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Create a fixed pool of daemon threads for CPU-bound work.
+     *
+     * @param name          name of the executor, used in thread names and metric tags
+     * @param threads       number of threads
+     * @param queueCapacity maximum number of waiting tasks
+     * @return the executor
+     */
+    public static ExecutorService newCpuBoundExecutor(String name, int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(name), rejectionHandler(name));
+        return monitor(executor, name);
+    }
+
+    /**
+     * Create a pool of daemon threads for work that is blocked most of the time. Threads are started on demand up to
+     * <code>maxThreads</code> and released when idle.
+     *
+     * @param name          name of the executor, used in thread names and metric tags
+     * @param maxThreads    maximum number of threads
+     * @param queueCapacity maximum number of waiting tasks
+     * @return the executor
+     */
+    public static ExecutorService newIoBoundExecutor(String name, int maxThreads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                IO_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(name), rejectionHandler(name));
+        executor.allowCoreThreadTimeOut(true);
+        return monitor(executor, name);
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task. The executor is looked up reflectively, so
+     * that the application still runs on JDKs without virtual threads.
+     *
+     * @param name name of the executor, used in metric tags
+     * @return the executor or an empty optional if the JDK does not support virtual threads
+     */
+    public static Optional<ExecutorService> newVirtualThreadExecutor(String name) {
+        ExecutorService executor;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return Optional.empty();
+        }
+        // there is no queue, each task runs on its own thread right away
+        ActiveTaskCountingExecutor counting = new ActiveTaskCountingExecutor(executor);
+        Gauge.builder("pg.executor.active", counting, ActiveTaskCountingExecutor::getActiveCount)
+                .description("Number of running tasks")
+                .tag("name", name)
+                .register(PgMetrics.registry());
+        LOGGER.debug("Using virtual threads for executor `{}`", name);
+        return Optional.of(counting);
+    }
+
+    /**
+     * Shut down the executor, wait for running tasks to finish for a while and interrupt them afterwards.
+     *
+     * @param executor the executor
+     * @param name     name of the executor for logging
+     */
+    public static void shutdown(ExecutorService executor, String name) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Tasks of executor `{}` did not finish in {} s, interrupting", name, SHUTDOWN_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService monitor(ThreadPoolExecutor executor, String name) {
+        Gauge.builder("pg.executor.queued", executor, e -> e.getQueue().size())
+                .description("Number of tasks waiting in the queue")
+                .tag("name", name)
+                .register(PgMetrics.registry());
+        Gauge.builder("pg.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Approximate number of running tasks")
+                .tag("name", name)
+                .register(PgMetrics.registry());
+        Gauge.builder("pg.executor.pool.size", executor, ThreadPoolExecutor::getPoolSize)
+                .description("Number of threads in the pool")
+                .tag("name", name)
+                .register(PgMetrics.registry());
+        FunctionCounter.builder("pg.executor.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .description("Approximate number of completed tasks")
+                .tag("name", name)
+                .register(PgMetrics.registry());
+        return executor;
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(String name) {
+        Counter rejected = PgMetrics.counter("pg.executor.rejected", "Tasks rejected by a full executor", "name", name);
+        return (task, executor) -> {
+            rejected.increment();
+            throw new RejectedExecutionException(String.format("Executor `%s` is %s", name,
+                    executor.isShutdown() ? "shut down" : "full"));
+        };
+    }
+
+    /**
+     * Shut down both executors.
+     */
+    @Override
+    public void close() {
+        shutdown(ioExecutor, IO_EXECUTOR_NAME);
+        shutdown(cpuExecutor, CPU_EXECUTOR_NAME);
+        LOGGER.debug("Executors shut down");
+    }
+
+    /**
+     * Creates daemon threads named <code>pg-&lt;name&gt;-&lt;number&gt;</code>.
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private NamedThreadFactory(String name) {
+            this.prefix = "pg-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.jax.phenopacketgenerator.gui;
+
+import javafx.beans.property.*;
+import javafx.concurrent.Task;
+import org.jax.phenopacketgenerator.model.PhenopacketExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exports phenopackets in the background, one after another in the order of submission, so that writing e.g. to a
+ * slow network share does not block the GUI. The user can keep editing and submit further exports in the meantime.
+ * <p>
+ * The {@link #messageProperty() message}, {@link #progressProperty() progress} and {@link #runningProperty() running}
+ * properties describe the exports submitted since the queue was last idle. A failed export is reported in a dialog and
+ * the queue continues with the next export.
+ * <p>
+ * An export whose data is not complete yet, e.g. because the checksum of the VCF file is still being computed, is
+ * {@link #reserve(File) reserved}. It counts as submitted, so that the queue is running and the progress includes it,
+ * and it is queued once it is {@link Reservation#submit(PhenopacketExporter) submitted}.
+ * <p>
+ * All methods must be called on the FX thread, which is also where the properties change.
+ */
+public final class ExportQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportQueue.class);
+
+    private final ExecutorService executor;
+
+    private final Queue<ExportTask> waiting = new ArrayDeque<>();
+
+    private final ReadOnlyStringWrapper message = new ReadOnlyStringWrapper(this, "message", "");
+
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress", 0);
+
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(this, "running", false);
+
+    private ExportTask current;
+
+    /**
+     * Number of exports submitted since the queue was last idle.
+     */
+    private int submitted;
+
+    /**
+     * Number of exports finished since the queue was last idle.
+     */
+    private int finished;
+
+    /**
+     * Number of reservations that are neither submitted nor cancelled, the queue is not idle while there are any.
+     */
+    private int reserved;
+
+    /**
+     * @param executor executor for the exports, an executor for IO-bound tasks is suitable
+     */
+    public ExportQueue(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queue the export of a phenopacket. The <code>exporter</code> holds a copy of the data, so the model can be
+     * changed right away.
+     *
+     * @param exporter exporter of the phenopacket
+     * @param file     file chosen by the user, see {@link PhenopacketExporter#export(File)}
+     */
+    public void submit(PhenopacketExporter exporter, File file) {
+        waiting.add(new ExportTask(exporter, file));
+        submitted++;
+        if (current == null) {
+            startNext();
+        } else {
+            updateStatus();
+        }
+    }
+
+    /**
+     * Reserve a place for an export whose data is not complete yet. The export counts as submitted until the
+     * reservation is submitted or cancelled.
+     *
+     * @param file file chosen by the user
+     * @return the reservation, which must be either submitted or cancelled
+     */
+    public Reservation reserve(File file) {
+        submitted++;
+        reserved++;
+        running.set(true);
+        if (current == null) {
+            progress.set((double) finished / submitted);
+            message.set(String.format("Preparing export to %s", file.getName()));
+        } else {
+            updateStatus();
+        }
+        return new Reservation(file);
+    }
+
+    private void startNext() {
+        current = waiting.poll();
+        if (current == null) {
+            if (reserved == 0) {
+                // idle, the next export starts a new round
+                submitted = 0;
+                finished = 0;
+                running.set(false);
+            }
+            return;
+        }
+        running.set(true);
+        updateStatus();
+        ExportTask task = current;
+        task.setOnSucceeded(e -> {
+            message.set(wroteMessage(task.getValue()));
+            finish();
+        });
+        task.setOnFailed(e -> fail(task, task.getException()));
+        try {
+            executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // the IO pool is full or shut down, the task never runs and its handlers are never called
+            fail(task, e);
+        }
+    }
+
+    private void fail(ExportTask task, Throwable error) {
+        LOGGER.warn("Error occurred during phenopacket export to `{}`", task.file, error);
+        message.set(String.format("Export to %s failed", task.file.getName()));
+        finish();
+        PopUps.showException("Error", "Error occurred during phenopacket export", error.getMessage(),
+                error instanceof Exception ? (Exception) error : new RuntimeException(error));
+    }
+
+    private void finish() {
+        finished++;
+        progress.set((double) finished / submitted);
+        startNext();
+    }
+
+    private void updateStatus() {
+        progress.set((double) finished / submitted);
+        message.set(submitted == 1
+                ? String.format("Exporting %s", current.file.getName())
+                : String.format("Exporting %s (%d of %d)", current.file.getName(), finished + 1, submitted));
+    }
+
+    private static String wroteMessage(Path path) {
+        String abspath = path.toAbsolutePath().toString();
+        int L = abspath.length();
+        if (L < 85) {
+            return String.format("Wrote to %s", abspath);
+        }
+        return String.format("Wrote to %s...%s", abspath.substring(0, 30), abspath.substring(L - 30));
+    }
+
+    /**
+     * @return status of the current export or result of the last one
+     */
+    public ReadOnlyStringProperty messageProperty() {
+        return message.getReadOnlyProperty();
+    }
+
+    /**
+     * @return fraction of the finished exports
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * @return <code>true</code> while there are exports that have not finished
+     */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    /**
+     * Place of an export reserved by {@link #reserve(File)}.
+     */
+    public final class Reservation {
+
+        private final File file;
+
+        private boolean done;
+
+        private Reservation(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Queue the export, see {@link ExportQueue#submit(PhenopacketExporter, File)}.
+         */
+        public void submit(PhenopacketExporter exporter) {
+            release();
+            waiting.add(new ExportTask(exporter, file));
+            if (current == null) {
+                startNext();
+            } else {
+                updateStatus();
+            }
+        }
+
+        /**
+         * Drop the export, it counts as finished. The caller tells the user why.
+         */
+        public void cancel() {
+            release();
+            message.set(String.format("Export to %s cancelled", file.getName()));
+            finished++;
+            progress.set((double) finished / submitted);
+            if (current == null) {
+                startNext();
+            }
+        }
+
+        private void release() {
+            if (done) {
+                throw new IllegalStateException("Export to " + file + " has been submitted or cancelled already");
+            }
+            done = true;
+            reserved--;
+        }
+    }
+
+    private static final class ExportTask extends Task<Path> {
+
+        private final PhenopacketExporter exporter;
+
+        private final File file;
+
+        private ExportTask(PhenopacketExporter exporter, File file) {
+            this.exporter = exporter;
+            this.file = file;
+        }
+
+        @Override
+        protected Path call() throws Exception {
+            return exporter.export(file);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.jax.phenopacketgenerator.gui;
 
 import com.google.common.collect.ImmutableList;
 import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -12,12 +14,29 @@ import javafx.scene.control.*;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
+import org.jax.phenopacketgenerator.OntologyPreloader;
 import org.jax.phenopacketgenerator.OptionalResources;
-import org.jax.phenopacketgenerator.Utils;
 import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.jax.phenopacketgenerator.ontology.OboFileWatcher;
+import org.jax.phenopacketgenerator.ontology.OntologyDiff;
+import org.jax.phenopacketgenerator.ontology.OntologySnapshotCache;
+import org.jax.phenopacketgenerator.ontology.TermSearchIndex;
 import org.jax.phenopacketgenerator.model.PgModel;
 import org.jax.phenopacketgenerator.model.PgOntologyClass;
 import org.jax.phenopacketgenerator.model.PhenopacketExporter;
+import org.jax.phenopacketgenerator.model.PhenopacketImporter;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.jax.phenopacketgenerator.textmining.OfflineTermMiner;
+import org.jax.phenopacketgenerator.textmining.TimedTermMiner;
+import org.jax.phenopacketgenerator.vcf.ChunkedDigest;
+import org.jax.phenopacketgenerator.vcf.VcfHeader;
+import org.controlsfx.control.textfield.AutoCompletionBinding;
+import org.controlsfx.control.textfield.TextFields;
+import org.monarchinitiative.hpotextmining.core.miners.TermMiner;
+import org.monarchinitiative.hpotextmining.core.miners.scigraph.SciGraphTermMiner;
 import org.monarchinitiative.hpotextmining.gui.controller.HpoTextMining;
 import org.monarchinitiative.hpotextmining.gui.controller.Main;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
@@ -28,18 +47,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Properties;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Component
@@ -49,11 +71,38 @@ public class MainController {
     private static final String INVALID_STYLE = "-fx-border-color: red; -fx-border-width: 2px;";
     private static final String VALID_STYLE = "-fx-border-color: green; -fx-border-width: 2px;";
     private static final String EMPTY_STYLE = "";
+    /**
+     * Number of terms offered by the HPO search field.
+     */
+    private static final int MAX_SEARCH_SUGGESTIONS = 15;
+    /**
+     * The OBO file is reloaded after it has not changed for this long.
+     */
+    private static final Duration OBO_QUIET_PERIOD = Duration.ofSeconds(2);
 
     private final OptionalResources optionalResources;
     private final Properties pgProperties;
-    private final ExecutorService executorService;
+    /**
+     * Executor for CPU-bound tasks, e.g. parsing of the ontology.
+     */
+    private final ExecutorService cpuExecutor;
+
+    /**
+     * Executor for tasks blocked on files or network, e.g. text mining.
+     */
+    private final ExecutorService ioExecutor;
+    private final ExportQueue exportQueue;
+    private final OntologySnapshotCache snapshotCache;
+    private final OntologyPreloader ontologyPreloader;
+    /**
+     * <code>true</code> while the full ontology for the text mining dialog is being loaded.
+     */
+    private final BooleanProperty loadingTextMiningOntology = new SimpleBooleanProperty(this, "loadingTextMiningOntology");
     private final URL scigraphMiningUrl;
+    /**
+     * Default text mining engine, the user's choice stored in {@link #pgProperties} takes precedence.
+     */
+    private final String textMiningEngine;
     /**
      * valid assemblies for VCF file.
      */
@@ -65,10 +114,15 @@ public class MainController {
 
     private final String EMPTY_STRING = "";
 
+    /**
+     * Ages the age combo boxes can show.
+     */
+    private static final Pattern YEARS_MONTHS_DAYS = Pattern.compile("P(?:(\\d+)Y)?(?:(\\d+)M)?(?:(\\d+)D)?");
+
     /**
      * valid values for sex combobox
      */
-    private final List<String> sexValues = ImmutableList.of("UNKOWN", "FEMALE", "MALE");
+    private final List<String> sexValues = ImmutableList.of("UNKNOWN", "FEMALE", "MALE");
     private final ObservableList<PgOntologyClass> phenotypes = FXCollections.observableList(new ArrayList<>());
     private final String phenopacketsVersion;
     private final String ecoVersion;
@@ -88,9 +142,45 @@ public class MainController {
 
     private String vcfFileAbsolutePath = null;
 
+    /**
+     * Header of the VCF file at {@link #vcfFileAbsolutePath}, <code>null</code> until the header has been read or if it
+     * is not readable, accessed on the FX thread only.
+     */
+    private VcfHeader vcfHeader;
+
+    /**
+     * Sample of the proband in the VCF file of an opened phenopacket, <code>null</code> if the sample is the proband ID
+     * or the VCF file has been chosen by the user, accessed on the FX thread only.
+     */
+    private String vcfSampleId;
+
+    /**
+     * Checksum of the VCF file at {@link #vcfFileAbsolutePath}, computed in the background while the user edits the
+     * phenopacket, accessed on the FX thread only.
+     */
+    private CompletableFuture<ChunkedDigest> vcfChecksum;
+
+    /**
+     * Checksum of the VCF file of an opened phenopacket, which is exported again as it is if the file cannot be read
+     * here, <code>null</code> if the checksum is computed, accessed on the FX thread only.
+     */
+    private String importedVcfChecksum;
+
+    /**
+     * Path to the OBO file of the ontology that is or is about to be shown, accessed on the FX thread only.
+     */
+    private Path ontologyPath;
+
+    /**
+     * Watches {@link #ontologyPath} for changes, accessed on the FX thread only.
+     */
+    private OboFileWatcher oboFileWatcher;
+
     @FXML
     private Button hpoTextMiningButton;
     @FXML
+    private TextField hpoSearchTextField;
+    @FXML
     private Button exportPhenopacketButton;
     @FXML
     private Label phenotypeSummaryLabel;
@@ -103,20 +193,33 @@ public class MainController {
     @FXML
     private Label exportPhenopacketLabel;
     @FXML
+    private ProgressIndicator exportProgressIndicator;
+    @FXML
     private Label statusLabel;
+    @FXML
+    private CheckMenuItem offlineTextMiningMenuItem;
 
 
     @Autowired
     public MainController(OptionalResources optionalResources,
                           Properties pgProperties,
-                          ExecutorService executorService,
+                          ExecutorService cpuExecutor,
+                          ExecutorService ioExecutor,
+                          OntologySnapshotCache snapshotCache,
+                          OntologyPreloader ontologyPreloader,
                           URL scigraphMiningUrl,
+                          String textMiningEngine,
                           String phenopacketsVersion,
                           String ecoVersion) {
         this.optionalResources = optionalResources;
         this.pgProperties = pgProperties;
-        this.executorService = executorService;
+        this.cpuExecutor = cpuExecutor;
+        this.ioExecutor = ioExecutor;
+        this.exportQueue = new ExportQueue(ioExecutor);
+        this.snapshotCache = snapshotCache;
+        this.ontologyPreloader = ontologyPreloader;
         this.scigraphMiningUrl = scigraphMiningUrl;
+        this.textMiningEngine = textMiningEngine;
         this.phenopacketsVersion = phenopacketsVersion;
         this.ecoVersion = ecoVersion;
         ImmutableList.Builder<Integer> builder = new ImmutableList.Builder<>();
@@ -138,10 +241,17 @@ public class MainController {
         genomeBuildComboBox.getItems().addAll(assemblies);
         sexComboBox.getItems().addAll(sexValues);
         sexComboBox.setValue("UNKNOWN");
+        offlineTextMiningMenuItem.setSelected(isOfflineTextMining());
         probandIdTextfield.setPromptText("ID for proband/patient");
         phenopacketIdTextfield.setPromptText("ID for Phenopacket");
-        hpoTextMiningButton.disableProperty().bind(optionalResources.ontologyProperty().isNull());
+        hpoTextMiningButton.disableProperty().bind(optionalResources.ontologyProperty().isNull()
+                .or(loadingTextMiningOntology));
         exportPhenopacketButton.disableProperty().bind(optionalResources.ontologyProperty().isNull());
+        hpoSearchTextField.disableProperty().bind(optionalResources.ontologyProperty().isNull());
+        initializeHpoSearch();
+        exportPhenopacketLabel.textProperty().bind(exportQueue.messageProperty());
+        exportProgressIndicator.visibleProperty().bind(exportQueue.runningProperty());
+        exportProgressIndicator.progressProperty().bind(exportQueue.progressProperty());
         optionalResources.ontologyProperty().isNull().addListener((obs, oldValue, newValue) -> {
             if (newValue) {
                 statusLabel.setText("Need to set path to hp.obo file (See edit menu)");
@@ -152,8 +262,8 @@ public class MainController {
             }
         });
 
-        // run the initialization task on a separate thread
-        StartupTask task = new StartupTask(optionalResources, pgProperties);
+        // hand over the ontology that has been loading since the application start
+        StartupTask task = new StartupTask(optionalResources, ontologyPreloader);
         statusLabel.textProperty().bind(task.messageProperty());
         daysCombo.getItems().addAll(days);
         daysCombo.setPromptText("Days");
@@ -162,8 +272,53 @@ public class MainController {
         yearsCombo.getItems().addAll(years);
         yearsCombo.setPromptText("Years");
         // we don't have to watch the task's status after completion
-        task.setOnSucceeded(e -> statusLabel.textProperty().unbind());
-        executorService.submit(task);
+        task.setOnSucceeded(e -> {
+            statusLabel.textProperty().unbind();
+            ontologyPath = ontologyPreloader.getOboPath();
+            if (ontologyPath != null) {
+                watchOntology(ontologyPath);
+            }
+        });
+        ioExecutor.submit(task);
+    }
+
+    /**
+     * Offer matching HPO terms while the user types into {@link #hpoSearchTextField} and add the selected term to the
+     * phenotypes as an observed term.
+     */
+    private void initializeHpoSearch() {
+        AutoCompletionBinding<Term> binding = TextFields.bindAutoCompletion(hpoSearchTextField,
+                request -> {
+                    TermSearchIndex index = optionalResources.getTermSearchIndex();
+                    return index == null
+                            ? Collections.emptyList()
+                            : index.search(request.getUserText(), MAX_SEARCH_SUGGESTIONS);
+                },
+                new StringConverter<Term>() {
+                    @Override
+                    public String toString(Term term) {
+                        return String.format("%s [%s]", term.getName(), term.getId().getValue());
+                    }
+
+                    @Override
+                    public Term fromString(String string) {
+                        return null;
+                    }
+                });
+        binding.setVisibleRowCount(MAX_SEARCH_SUGGESTIONS);
+        binding.setOnAutoCompleted(e -> {
+            Term term = e.getCompletion();
+            boolean present = phenotypes.stream().anyMatch(pt -> pt.getId().equals(term.getId().getValue()));
+            if (!present) {
+                phenotypes.add(PgOntologyClass.newBuilder()
+                        .setId(term.getId().getValue())
+                        .setLabel(term.getName())
+                        .setNotObserved(false)
+                        .build());
+            }
+            // the binding sets the completion text after the event, clear the field afterwards
+            Platform.runLater(hpoSearchTextField::clear);
+        });
     }
 
     /**
@@ -199,13 +354,16 @@ public class MainController {
     }
 
     /**
-     * @param ontology {@link Ontology} needed for mapping
+     * @param ontology {@link CompactOntology} needed for mapping
      * @return {@link Function} mapping {@link PgOntologyClass} to {@link Main.PhenotypeTerm} instance
      */
-    private static Function<PgOntologyClass, Main.PhenotypeTerm> ontologyClassToPhenotypeTerm(Ontology ontology) {
+    private static Function<PgOntologyClass, Main.PhenotypeTerm> ontologyClassToPhenotypeTerm(CompactOntology ontology) {
         return oc -> {
-            TermId id = TermId.of(oc.getId());
-            Term term = ontology.getTermMap().get(id);
+            // phenotype terms are identified by the term ID, the term needs just the primary ID and the label
+            int index = ontology.indexOf(oc.getId());
+            Term term = index < 0
+                    ? Term.of(TermId.of(oc.getId()), oc.getLabel())
+                    : Term.of(TermId.of(ontology.getTermId(index)), ontology.getLabel(index));
             return new Main.PhenotypeTerm(term, !oc.getNotObserved());
         };
     }
@@ -244,47 +402,220 @@ public class MainController {
         PgModel pgmodel = new PgModel(phenotypes);
         if (vcfFileAbsolutePath != null) {
             pgmodel.setVcfPath(vcfFileAbsolutePath);
-            String assembly = genomeBuildComboBox.getValue() == null ? "hg19" : genomeBuildComboBox.getValue();
-            pgmodel.setGenomeAssembly(assembly);
+            pgmodel.setVcfChecksum(importedVcfChecksum);
+            // QC fails if the assembly is neither chosen nor detected from the VCF header
+            pgmodel.setGenomeAssembly(genomeBuildComboBox.getValue());
         }
         pgmodel.setBiocurator(pgProperties.getProperty(OptionalResources.BIOCURATOR_ID_PROPERTY, EMPTY_STRING));
         String id = probandIdTextfield.getText();
         String ppacketid = phenopacketIdTextfield.getText();
         pgmodel.setProbandId(id);
+        if (vcfSampleId != null) {
+            pgmodel.setVcfSampleId(vcfSampleId);
+        } else if (vcfHeader != null && vcfHeader.getSampleIds().contains(id)) {
+            pgmodel.setVcfSampleId(id);
+        }
         pgmodel.setPhenopacketId(ppacketid);
-        String hpoVersion = optionalResources.getOntology().getMetaInfo().getOrDefault("version", "unknown HPO version");
+        String hpoVersion = optionalResources.getCompactOntology().getVersion().orElse("unknown HPO version");
         pgmodel.setHpoVersion(hpoVersion);
         pgmodel.setEcoVersion(ecoVersion);
         pgmodel.setPhenopacketVersion(this.phenopacketsVersion);
         pgmodel.setIsoAge(getIso8601AgeString());
         pgmodel.setSex(sexComboBox.getValue());
+        AncestorClosure closure = optionalResources.getAncestorClosure();
         try {
-            pgmodel.qc();
+            pgmodel.qc(closure);
         } catch (PGException e) {
             PopUps.showException("Exception", "Error in phenopacket creation", e.getLocalizedMessage(), e);
             return;
         }
+        if (vcfHeader != null) {
+            List<ValidationIssue> vcfIssues = vcfHeader.validate(pgmodel);
+            if (!vcfIssues.isEmpty()) {
+                String messages = vcfIssues.stream().map(ValidationIssue::getMessage).collect(Collectors.joining("\n"));
+                if (!PopUps.getBooleanFromUser(messages + "\n\nExport the phenopacket anyway?",
+                        "The phenopacket does not match the VCF file", "VCF file")) {
+                    return;
+                }
+            }
+        }
+        List<PgOntologyClass> redundant = pgmodel.getRedundantPhenotypes(closure);
+        if (!redundant.isEmpty()) {
+            String terms = redundant.stream()
+                    .map(pt -> String.format("%s%s [%s]", pt.getNotObserved() ? "NOT " : "", pt.getLabel(), pt.getId()))
+                    .collect(Collectors.joining("\n"));
+            boolean remove = PopUps.getBooleanFromUser(
+                    "The following terms are implied by more specific observed or more general excluded terms:\n"
+                            + terms + "\n\nRemove them from the phenopacket?",
+                    String.format("%d redundant HPO terms", redundant.size()), "Redundant HPO terms");
+            if (remove) {
+                pgmodel.removePhenotypes(redundant);
+                phenotypes.removeAll(redundant);
+            }
+        }
 
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Export as Phenopacket (JSON) file");
+        FileChooser.ExtensionFilter extPb = new FileChooser.ExtensionFilter("Phenopacket protobuf file (*.pb)", "*.pb");
+        FileChooser.ExtensionFilter extGz = new FileChooser.ExtensionFilter("Compressed phenopacket JSON file (*.json.gz)", "*.json.gz");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Phenopacket JSON file (*.json)", "*.json"), extGz, extPb);
         File f = chooser.showSaveDialog(exportPhenopacketButton.getScene().getWindow());
         if (f == null) {
             PopUps.showInfoMessage("Could not retrieve path to save phenopacket", "Warning");
             return;
         }
-        PhenopacketExporter exporter = new PhenopacketExporter(pgmodel);
-        exporter.export(f);
-        String abspath = f.getAbsolutePath();
-        int L = abspath.length();
-        String message;
-        if (L < 85) {
-            message = String.format("Wrote to %s", abspath);
+        if (chooser.getSelectedExtensionFilter() == extPb && !f.getName().toLowerCase().endsWith(".pb")) {
+            f = new File(f.getAbsolutePath() + ".pb");
+        } else if (chooser.getSelectedExtensionFilter() == extGz && !f.getName().toLowerCase().endsWith(".json.gz")) {
+            f = new File(f.getAbsolutePath() + (f.getName().toLowerCase().endsWith(".json") ? ".gz" : ".json.gz"));
+        }
+        exportWithVcfChecksum(pgmodel, f);
+    }
+
+    /**
+     * Read an existing phenopacket in the background and fill the main window in with its data, so that the
+     * phenopacket can be corrected and exported again.
+     */
+    @FXML
+    void openPhenopacket() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Open phenopacket");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Phenopacket file (*.json, *.json.gz, *.pb)", "*.json", "*.json.gz", "*.pb"));
+        File f = chooser.showOpenDialog(contentPane.getScene().getWindow());
+        if (f == null) {
+            return;
+        }
+        statusLabel.setText("Reading " + f.getName());
+        ioExecutor.submit(() -> {
+            try {
+                PgModel model = PhenopacketImporter.read(f.toPath());
+                Platform.runLater(() -> showPhenopacket(f, model));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Error reading phenopacket `{}`", f, e);
+                Platform.runLater(() -> PopUps.showException("Open phenopacket",
+                        "Could not read " + f.getName(), e.getLocalizedMessage(), e));
+            }
+        });
+    }
+
+    private void showPhenopacket(File f, PgModel model) {
+        phenotypes.setAll(model.getPhenotypes());
+        probandIdTextfield.setText(model.getProbandId());
+        phenopacketIdTextfield.setText(model.getPhenopacketId());
+        sexComboBox.setValue(model.hasSexData() ? model.getSex() : "UNKNOWN");
+        boolean ageShown = showAge(model.getIsoAge());
+        vcfFileAbsolutePath = model.getVcfPath();
+        vcfHeader = null;
+        vcfSampleId = model.getVcfSampleId();
+        importedVcfChecksum = null;
+        if (vcfChecksum != null) {
+            vcfChecksum.cancel(false);
+            vcfChecksum = null;
+        }
+        if (model.hasVcf()) {
+            vcfFileLabel.setText(vcfDisplayString(vcfFileAbsolutePath));
+            genomeBuildComboBox.setValue(model.getGenomeAssembly());
+            if (isReadableFile(vcfFileAbsolutePath)) {
+                scanVcfHeader(vcfFileAbsolutePath);
+                computeVcfChecksum(vcfFileAbsolutePath);
+            } else {
+                // e.g. the file is on another machine, its checksum cannot be computed here
+                importedVcfChecksum = model.getVcfChecksum();
+            }
         } else {
-            message = String.format("Wrote to %s...%s",
-                    abspath.substring(0, 30),
-                    abspath.substring(L - 30));
+            vcfFileLabel.setText(EMPTY_STRING);
+            genomeBuildComboBox.setValue(null);
+        }
+        statusLabel.setText(String.format("Opened %s with %d phenotypes", f.getName(), phenotypes.size()));
+        if (!ageShown) {
+            PopUps.showInfoMessage(String.format("Age `%s` cannot be shown in years, months and days, please enter it again",
+                    model.getIsoAge()), "Age");
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the age is not in the form shown by the combo boxes, which are then cleared
+     */
+    private boolean showAge(String isoAge) {
+        yearsCombo.setValue(null);
+        monthsCombo.setValue(null);
+        daysCombo.setValue(null);
+        if (isoAge == null || isoAge.isEmpty()) {
+            return true;
+        }
+        Matcher matcher = YEARS_MONTHS_DAYS.matcher(isoAge);
+        if (!matcher.matches()) {
+            return false;
+        }
+        try {
+            setAgeComponent(yearsCombo, matcher.group(1));
+            setAgeComponent(monthsCombo, matcher.group(2));
+            setAgeComponent(daysCombo, matcher.group(3));
+            return true;
+        } catch (IllegalArgumentException e) {
+            yearsCombo.setValue(null);
+            monthsCombo.setValue(null);
+            daysCombo.setValue(null);
+            return false;
+        }
+    }
+
+    private static void setAgeComponent(ComboBox<Integer> combo, String value) {
+        if (value == null) {
+            return;
+        }
+        int n = Integer.parseInt(value);
+        if (!combo.getItems().contains(n)) {
+            throw new IllegalArgumentException("Age component out of range: " + n);
         }
-        this.exportPhenopacketLabel.setText(message);
+        combo.setValue(n);
+    }
+
+    /**
+     * Attach the checksum of the VCF file to the model and queue the export. If the checksum is not computed yet, the
+     * export is reserved in the queue and submitted once it is. A checksum that failed, or whose file has changed since,
+     * is computed again. If the computation is cancelled because the user has chosen another VCF file meanwhile, the
+     * export is dropped, and if it fails, the user decides whether to export without the checksum.
+     */
+    private void exportWithVcfChecksum(PgModel pgmodel, File f) {
+        if (vcfChecksum == null) {
+            // the exporter copies the data, the user can go on editing while the phenopacket is being written
+            exportQueue.submit(new PhenopacketExporter(pgmodel), f);
+            return;
+        }
+        if (vcfChecksum.isDone() && (vcfChecksum.isCompletedExceptionally() || !vcfChecksum.join().isCurrent())) {
+            LOGGER.info("Computing checksum of VCF file `{}` again", vcfFileAbsolutePath);
+            computeVcfChecksum(vcfFileAbsolutePath);
+        }
+        if (!vcfChecksum.isDone()) {
+            statusLabel.setText("Computing checksum of the VCF file, the export starts when it is done");
+        }
+        String vcfPath = vcfFileAbsolutePath;
+        CompletableFuture<ChunkedDigest> checksum = vcfChecksum;
+        ExportQueue.Reservation reservation = exportQueue.reserve(f);
+        checksum.whenComplete((digest, e) -> Platform.runLater(() -> {
+            if (digest != null) {
+                pgmodel.setVcfChecksum(digest.getChecksum());
+                reservation.submit(new PhenopacketExporter(pgmodel));
+            } else if (checksum.isCancelled()) {
+                LOGGER.info("Export to `{}` cancelled together with the checksum of `{}`", f, vcfPath);
+                reservation.cancel();
+                PopUps.showInfoMessage(String.format("The export to %s has been cancelled, because another VCF file "
+                        + "was chosen before the checksum of %s was computed. Please export the phenopacket again.",
+                        f.getName(), vcfPath), "Export cancelled");
+            } else {
+                LOGGER.warn("Error computing checksum of VCF file `{}`", vcfPath, e);
+                if (PopUps.getBooleanFromUser(String.format("The checksum of %s could not be computed: %s\n\n"
+                                + "Export the phenopacket without the checksum?", vcfPath, e.getMessage()),
+                        "Checksum of the VCF file failed", "VCF file")) {
+                    reservation.submit(new PhenopacketExporter(pgmodel));
+                } else {
+                    reservation.cancel();
+                }
+            }
+        }));
     }
 
     /**
@@ -300,21 +631,48 @@ public class MainController {
         alert.showAndWait();
     }
 
+    /**
+     * Load the full ontology the text mining dialog needs in the background and open the dialog. The ontology is not
+     * kept once the dialog is closed, the application itself uses the compact ontology.
+     */
     @FXML
     private void hpoTextMiningButtonAction() {
         String conversationTitle = "HPO text mining analysis";
-        Ontology ontology = this.optionalResources.getOntology();
-        if (ontology == null) {
+        Path oboPath = optionalResources.getOboPath();
+        if (oboPath == null) {
             PopUps.showInfoMessage("Need to set location to hp.obo ontology file first!", "Error");
             return;
         }
+        loadingTextMiningOntology.set(true);
+        cpuExecutor.submit(() -> {
+            try {
+                Ontology ontology = snapshotCache.loadOrParse(oboPath);
+                Platform.runLater(() -> {
+                    loadingTextMiningOntology.set(false);
+                    showTextMining(conversationTitle, ontology);
+                });
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Error loading HPO file at `{}` for text mining", oboPath, e);
+                Platform.runLater(() -> {
+                    loadingTextMiningOntology.set(false);
+                    PopUps.showException(conversationTitle, "Error loading HPO file", e.getMessage(), e);
+                });
+            }
+        });
+    }
+
+    private void showTextMining(String conversationTitle, Ontology ontology) {
         try {
+            OfflineTermMiner offlineTermMiner = optionalResources.getOfflineTermMiner();
+            TermMiner termMiner = isOfflineTextMining() && offlineTermMiner != null
+                    ? new TimedTermMiner(offlineTermMiner, OptionalResources.OFFLINE_ENGINE)
+                    : new TimedTermMiner(new SciGraphTermMiner(scigraphMiningUrl), OptionalResources.SCIGRAPH_ENGINE);
             HpoTextMining hpoTextMining = HpoTextMining.builder()
-                    .withSciGraphUrl(scigraphMiningUrl)
+                    .withTermMiner(termMiner)
                     .withOntology(ontology)
-                    .withExecutorService(executorService)
+                    .withExecutorService(ioExecutor)
                     .withPhenotypeTerms(phenotypes.stream()
-                            .map(ontologyClassToPhenotypeTerm(optionalResources.getOntology()))
+                            .map(ontologyClassToPhenotypeTerm(optionalResources.getCompactOntology()))
                             .collect(Collectors.toSet()))
                     .build();
 
@@ -337,6 +695,21 @@ public class MainController {
         }
     }
 
+    private boolean isOfflineTextMining() {
+        return OptionalResources.OFFLINE_ENGINE.equals(
+                pgProperties.getProperty(OptionalResources.TEXT_MINING_ENGINE_PROPERTY, textMiningEngine));
+    }
+
+    /**
+     * Runs after user toggles Edit/Use offline text mining and stores the choice of the text mining engine.
+     */
+    @FXML
+    void offlineTextMiningMenuItemAction() {
+        pgProperties.setProperty(OptionalResources.TEXT_MINING_ENGINE_PROPERTY, offlineTextMiningMenuItem.isSelected()
+                ? OptionalResources.OFFLINE_ENGINE
+                : OptionalResources.SCIGRAPH_ENGINE);
+    }
+
     /**
      * Runs after user clicks Settings/Set biocurator MenuItem and asks user to provide the ID.
      */
@@ -370,23 +743,124 @@ public class MainController {
         }
         final Path hpoPath = Paths.get(f.getAbsolutePath());
         statusLabel.setText("Loading ontology...");
-        executorService.submit(() -> {
-            /*
-            Deserialize ontology and set it to optional resources. This should trigger enabling hpoTextMiningButton
-            that was disabled.
-             */
-            try (InputStream is = Files.newInputStream(hpoPath)) {
-                Ontology ontology = Utils.deserializeOntology(is);
-                optionalResources.setOntology(ontology);
-                // only store path to ontology if parsing went well
-                pgProperties.setProperty(OptionalResources.ONTOLOGY_PATH_PROPERTY, hpoPath.toFile().getAbsolutePath());
-                Platform.runLater(() -> { statusLabel.setText("Ontology loaded"); statusLabel.setStyle(VALID_STYLE); } );
-            } catch (IOException e) {
+        ontologyPath = hpoPath;
+        stopWatchingOntology();
+        loadOntology(hpoPath);
+    }
+
+    /**
+     * Parse the OBO file in the background and compare it with the current ontology. The new ontology is then swapped
+     * in on the FX thread by {@link #swapOntology}.
+     */
+    private void loadOntology(Path hpoPath) {
+        cpuExecutor.submit(() -> {
+            try {
+                CompactOntology compact = CompactOntology.read(hpoPath);
+                OptionalResources.DerivedResources resources = OptionalResources.DerivedResources.of(hpoPath, compact);
+                CompactOntology previous = optionalResources.getCompactOntology();
+                OntologyDiff diff = previous == null ? null : OntologyDiff.of(previous, compact);
+                Platform.runLater(() -> swapOntology(hpoPath, resources, previous, diff));
+            } catch (IOException | RuntimeException e) {
                 LOGGER.warn("Error parsing OBO file at `{}`", hpoPath, e);
+                Platform.runLater(() -> {
+                    statusLabel.setText(String.format("Error loading HPO file: %s", e.getMessage()));
+                    statusLabel.setStyle(INVALID_STYLE);
+                });
             }
         });
     }
 
+    /**
+     * Make the loaded ontology current and remap the phenotypes entered by the user, runs on the FX thread.
+     *
+     * @param previous the ontology the <code>diff</code> has been computed against
+     */
+    private void swapOntology(Path hpoPath, OptionalResources.DerivedResources resources, CompactOntology previous,
+                              OntologyDiff diff) {
+        if (!hpoPath.equals(ontologyPath)) {
+            // the user has chosen another file in the meantime
+            return;
+        }
+        CompactOntology current = optionalResources.getCompactOntology();
+        if (current != previous) {
+            // another load finished first, this is rare and the diff is quick to redo
+            diff = current == null ? null : OntologyDiff.of(current, resources.getCompactOntology());
+        }
+        optionalResources.swapOntology(resources);
+        // only store path to ontology if parsing went well
+        pgProperties.setProperty(OptionalResources.ONTOLOGY_PATH_PROPERTY, hpoPath.toFile().getAbsolutePath());
+        if (oboFileWatcher == null) {
+            watchOntology(hpoPath);
+        }
+        statusLabel.setText(diff == null || diff.isEmpty()
+                ? "Ontology loaded"
+                : String.format("Ontology loaded, %d terms changed", diff.getChanges().size()));
+        statusLabel.setStyle(VALID_STYLE);
+        if (diff == null) {
+            return;
+        }
+        LOGGER.info("Swapped ontology loaded from `{}`: {}", hpoPath, diff);
+        List<OntologyDiff.TermChange> affected = new ArrayList<>();
+        for (PgOntologyClass phenotype : phenotypes) {
+            diff.getChange(phenotype.getId()).ifPresent(affected::add);
+        }
+        if (!affected.isEmpty()) {
+            phenotypes.setAll(remapPhenotypes(phenotypes, diff));
+            PopUps.showInfoMessage(String.format("The ontology has changed, %d of the phenotypes were updated:\n%s",
+                    affected.size(), affected.stream().map(Object::toString).collect(Collectors.joining("\n"))),
+                    "Ontology reloaded");
+        }
+    }
+
+    /**
+     * @return phenotypes with the IDs and labels of the current ontology. A term replaced by a term that is already
+     * present is dropped, obsolete terms without a replacement are kept for the user to resolve.
+     */
+    private static List<PgOntologyClass> remapPhenotypes(List<PgOntologyClass> phenotypes, OntologyDiff diff) {
+        Map<String, PgOntologyClass> remapped = new LinkedHashMap<>();
+        for (PgOntologyClass phenotype : phenotypes) {
+            Optional<OntologyDiff.TermChange> change = diff.getChange(phenotype.getId());
+            PgOntologyClass updated = !change.isPresent() || !change.get().getCurrentId().isPresent()
+                    ? phenotype
+                    : PgOntologyClass.newBuilder()
+                    .setId(change.get().getCurrentId().get())
+                    .setLabel(change.get().getCurrentLabel().orElse(phenotype.getLabel()))
+                    .setNotObserved(phenotype.getNotObserved())
+                    .build();
+            remapped.putIfAbsent(updated.getId(), updated);
+        }
+        return new ArrayList<>(remapped.values());
+    }
+
+    /**
+     * Reload the ontology whenever the OBO file changes, e.g. when a new HPO release is downloaded over it.
+     */
+    private void watchOntology(Path hpoPath) {
+        stopWatchingOntology();
+        try {
+            oboFileWatcher = OboFileWatcher.start(hpoPath, OBO_QUIET_PERIOD, path -> Platform.runLater(() -> {
+                if (path.equals(ontologyPath)) {
+                    statusLabel.setText("Reloading ontology...");
+                    loadOntology(path);
+                }
+            }));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to watch OBO file at `{}`", hpoPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void stopWatchingOntology() {
+        if (oboFileWatcher != null) {
+            try {
+                oboFileWatcher.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing OBO file watcher", e);
+            }
+            oboFileWatcher = null;
+        }
+    }
+
     @FXML
     void setPathToVcfFile() {
         FileChooser chooser = new FileChooser();
@@ -402,16 +876,79 @@ public class MainController {
             return;
         }
         this.vcfFileAbsolutePath = f.getAbsolutePath();
-        String displayString;
-        if (vcfFileAbsolutePath.length() < 100) {
-            displayString = vcfFileAbsolutePath;
+        this.vcfHeader = null;
+        this.vcfSampleId = null;
+        this.importedVcfChecksum = null;
+        this.vcfFileLabel.setText(vcfDisplayString(vcfFileAbsolutePath));
+        scanVcfHeader(vcfFileAbsolutePath);
+        computeVcfChecksum(vcfFileAbsolutePath);
+    }
+
+    private void computeVcfChecksum(String vcfPath) {
+        if (vcfChecksum != null) {
+            // checksum of a file that is no longer needed
+            vcfChecksum.cancel(false);
+        }
+        vcfChecksum = ChunkedDigest.computeAsync(Paths.get(vcfPath), ioExecutor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return <code>true</code> if the VCF path of an opened phenopacket is a file that can be read here, the path may
+     * also be a URI of a file on another machine
+     */
+    private static boolean isReadableFile(String vcfPath) {
+        try {
+            Path path = Paths.get(vcfPath);
+            return Files.isRegularFile(path) && Files.isReadable(path);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static String vcfDisplayString(String vcfPath) {
+        if (vcfPath.length() < 100) {
+            return vcfPath;
         } else {
-            int L = vcfFileAbsolutePath.length();
-            String firstpart = vcfFileAbsolutePath.substring(0, 40);
-            String lastPart = vcfFileAbsolutePath.substring(L - 40);
-            displayString = String.format("%s.......%s", firstpart, lastPart);
+            int L = vcfPath.length();
+            String firstpart = vcfPath.substring(0, 40);
+            String lastPart = vcfPath.substring(L - 40);
+            return String.format("%s.......%s", firstpart, lastPart);
+        }
+    }
+
+    /**
+     * Read the header of the VCF file in the background, then select the genome assembly it indicates and fill in the
+     * proband ID of a single-sample VCF file if the ID is not set yet.
+     */
+    private void scanVcfHeader(String vcfPath) {
+        ioExecutor.submit(() -> {
+            try {
+                VcfHeader header = VcfHeader.read(Paths.get(vcfPath));
+                Platform.runLater(() -> showVcfHeader(vcfPath, header));
+            } catch (IOException | PGException | RuntimeException e) {
+                LOGGER.warn("Error reading header of VCF file `{}`", vcfPath, e);
+                Platform.runLater(() -> {
+                    if (vcfPath.equals(vcfFileAbsolutePath)) {
+                        vcfFileLabel.setText(String.format("%s (unreadable: %s)", vcfDisplayString(vcfPath), e.getMessage()));
+                    }
+                });
+            }
+        });
+    }
+
+    private void showVcfHeader(String vcfPath, VcfHeader header) {
+        if (!vcfPath.equals(vcfFileAbsolutePath)) {
+            // the user has chosen another file in the meantime
+            return;
+        }
+        this.vcfHeader = header;
+        header.getAssembly().ifPresent(genomeBuildComboBox::setValue);
+        List<String> samples = header.getSampleIds();
+        if (samples.size() == 1 && probandIdTextfield.getText().trim().isEmpty()) {
+            probandIdTextfield.setText(samples.get(0));
         }
-        this.vcfFileLabel.setText(displayString);
+        vcfFileLabel.setText(String.format("%s (%s, %d sample%s)", vcfDisplayString(vcfPath),
+                header.getAssembly().orElse("unknown assembly"), samples.size(), samples.size() == 1 ? "" : "s"));
     }
 
     @FXML
@@ -1,18 +1,18 @@
 package org.jax.phenopacketgenerator.gui;
 
 import javafx.concurrent.Task;
+import org.jax.phenopacketgenerator.OntologyPreloader;
 import org.jax.phenopacketgenerator.OptionalResources;
-import org.jax.phenopacketgenerator.Utils;
-import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Initialization of the GUI resources is being done here. Information from {@link Properties} parsed from
@@ -21,6 +21,9 @@ import java.util.Properties;
  * <li>Human phenotype ontology OBO file</li>
  * </ul>
  * <p>
+ * The ontology itself is loaded by {@link OntologyPreloader}, which starts before the Spring context and the GUI are
+ * built. This task waits for the result and sets it to {@link OptionalResources}.
+ * <p>
  * Changes made by user are stored for the next run in {@link org.jax.phenopacketgenerator.Main#stop()} method.
  *
  * @author <a href="mailto:daniel.danis@jax.org">Daniel Danis</a>
@@ -33,16 +36,16 @@ public final class StartupTask extends Task<Void> {
 
     private final OptionalResources optionalResources;
 
-    private final Properties pgProperties;
+    private final OntologyPreloader preloader;
 
 
-    public StartupTask(OptionalResources optionalResources, Properties pgProperties) {
+    public StartupTask(OptionalResources optionalResources, OntologyPreloader preloader) {
         this.optionalResources = optionalResources;
-        this.pgProperties = pgProperties;
+        this.preloader = preloader;
     }
 
     /**
-     * Read {@link Properties} and initialize app resources in the {@link OptionalResources}:
+     * Wait for the ontology and initialize app resources in the {@link OptionalResources}:
      *
      * <ul>
      * <li>HPO ontology</li>
@@ -55,35 +58,36 @@ public final class StartupTask extends Task<Void> {
     protected Void call() throws Exception {
         // HPO
         /*
-        This is the place where we deserialize HPO ontology if we know path to the OBO file.
         We need to make sure to set ontology property of `optionalResources` to null if loading fails.
         This way we ensure that GUI elements dependent on ontology presence (labels, buttons) stay disabled
         and that the user will be notified about the fact that the ontology is missing.
          */
-        String ontologyPath = pgProperties.getProperty(OptionalResources.ONTOLOGY_PATH_PROPERTY);
-        if (ontologyPath != null) {
-            final Path hpOboPath = Paths.get(ontologyPath);
-            if (hpOboPath.toFile().isFile()) {
-                String msg = String.format("Loading HPO from file '%s'", hpOboPath);
-                updateMessage(msg);
-                LOGGER.info(msg);
-                try (final InputStream is = Files.newInputStream(hpOboPath)) {
-                    final Ontology ontology = Utils.deserializeOntology(is);
-                    optionalResources.setOntology(ontology);
-                    updateMessage("Ontology loaded");
-                } catch (IOException e) {
-                    updateMessage(String.format("Error loading HPO file : %s", e.getMessage()));
-                    LOGGER.warn("Error loading HPO file: ", e);
-                    optionalResources.setOntology(null);
-                }
-            } else {
-                optionalResources.setOntology(null);
-            }
-        } else {
+        final Path hpOboPath = preloader.getOboPath();
+        if (hpOboPath == null) {
             String msg = "Need to set path to hp.obo file (See edit menu)";
             updateMessage(msg);
             LOGGER.info(msg);
-            optionalResources.setOntology(null);
+            optionalResources.setOntology(null, null);
+            return null;
+        }
+        String msg = String.format("Loading HPO from file '%s'", hpOboPath);
+        updateMessage(msg);
+        LOGGER.info(msg);
+        try {
+            final Optional<CompactOntology> ontology = preloader.getOntology().get();
+            optionalResources.setOntology(hpOboPath, ontology.orElse(null));
+            if (ontology.isPresent()) {
+                updateMessage("Ontology loaded");
+                LOGGER.info("Ontology ready {} ms after JVM start", ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+        } catch (ExecutionException e) {
+            updateMessage(String.format("Error loading HPO file : %s", e.getCause().getMessage()));
+            LOGGER.warn("Error loading HPO file: ", e.getCause());
+            optionalResources.setOntology(null, null);
+        } catch (IOException e) {
+            updateMessage(String.format("Error loading HPO file : %s", e.getMessage()));
+            LOGGER.warn("Error loading HPO file: ", e);
+            optionalResources.setOntology(null, null);
         }
         return null;
     }
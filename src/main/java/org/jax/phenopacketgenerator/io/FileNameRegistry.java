@@ -0,0 +1,86 @@
+package org.jax.phenopacketgenerator.io;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * File names given to the phenopackets of an output directory, so that two phenopackets whose IDs map to the same file
+ * name do not overwrite each other. Names differing only in case collide as well, as they do on Windows and macOS.
+ * Writing a phenopacket with the same ID again replaces the file, e.g. when the watch mode exports a changed table.
+ * <p>
+ * Each file is written into a temporary file in the same directory and then moved into place, writers of the same file
+ * are serialized. Two tables exported in parallel that contain the same phenopacket ID therefore leave one complete
+ * file, never a mix of both. Instances are thread-safe.
+ */
+final class FileNameRegistry {
+
+    private final Path outputDir;
+
+    /**
+     * Phenopacket IDs by lower-case file name, the value is locked while its file is written.
+     */
+    private final ConcurrentMap<String, Owner> owners = new ConcurrentHashMap<>();
+
+    FileNameRegistry(Path outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Write the file of the phenopacket, see {@link JsonDirectoryWriter#fileName(String, String)} for its name.
+     *
+     * @param content writes the content into the temporary file it is given
+     * @return path of the file
+     * @throws FileAlreadyExistsException if a phenopacket with another ID has been given the same file name
+     * @throws IOException                if writing fails, a previous file of the phenopacket is kept then
+     */
+    Path write(String phenopacketId, String suffix, Content content) throws IOException {
+        String name = JsonDirectoryWriter.fileName(phenopacketId, suffix);
+        Path path = outputDir.resolve(name);
+        Owner owner = owners.computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> new Owner(phenopacketId));
+        if (!owner.phenopacketId.equals(phenopacketId)) {
+            throw new FileAlreadyExistsException(path.toString(), null,
+                    String.format("phenopacket IDs `%s` and `%s` map to the same file", owner.phenopacketId,
+                            phenopacketId));
+        }
+        synchronized (owner) {
+            // hidden and with a suffix that is not read back by the importer or the watcher
+            Path tmp = Files.createTempFile(outputDir, "." + name, ".tmp");
+            try {
+                content.writeTo(tmp);
+                try {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Content of a phenopacket file.
+     */
+    @FunctionalInterface
+    interface Content {
+
+        void writeTo(Path path) throws IOException;
+    }
+
+    private static final class Owner {
+
+        private final String phenopacketId;
+
+        private Owner(String phenopacketId) {
+            this.phenopacketId = phenopacketId;
+        }
+    }
+}
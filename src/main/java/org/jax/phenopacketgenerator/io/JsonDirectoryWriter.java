@@ -0,0 +1,53 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes each phenopacket as a JSON file named after the phenopacket ID into a directory. A phenopacket whose file name
+ * collides with the file of another phenopacket written before fails with {@link FileAlreadyExistsException}.
+ */
+public class JsonDirectoryWriter implements PhenopacketWriter {
+
+    private final FileNameRegistry fileNames;
+
+    private final boolean pretty;
+
+    private final boolean gzip;
+
+    public JsonDirectoryWriter(Path outputDir) throws IOException {
+        this(outputDir, true, false);
+    }
+
+    /**
+     * @param pretty indent the JSON
+     * @param gzip   compress each file with gzip, the files are named <code>*.json.gz</code>
+     */
+    public JsonDirectoryWriter(Path outputDir, boolean pretty, boolean gzip) throws IOException {
+        this.fileNames = new FileNameRegistry(Files.createDirectories(outputDir));
+        this.pretty = pretty;
+        this.gzip = gzip;
+    }
+
+    /**
+     * @return phenopacket ID with characters that are not safe for file names replaced by <code>_</code>
+     */
+    public static String fileName(String phenopacketId, String suffix) {
+        return phenopacketId.replaceAll("[^A-Za-z0-9._-]", "_") + suffix;
+    }
+
+    @Override
+    public void write(Phenopacket phenopacket) throws IOException {
+        fileNames.write(phenopacket.getId(), gzip ? ".json.gz" : ".json",
+                path -> PhenopacketJson.write(phenopacket, path, pretty, gzip));
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
@@ -0,0 +1,66 @@
+package org.jax.phenopacketgenerator.io;
+
+import com.google.protobuf.util.JsonFormat;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads phenopackets from a newline-delimited JSON file in a single pass, one phenopacket at a time. Gzipped files are
+ * detected automatically.
+ *
+ * @see NdjsonPhenopacketWriter
+ */
+public class NdjsonPhenopacketReader implements Closeable {
+
+    private static final JsonFormat.Parser PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+
+    public NdjsonPhenopacketReader(Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    public NdjsonPhenopacketReader(InputStream is) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(maybeGunzip(is), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static InputStream maybeGunzip(InputStream is) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(is, BUFFER_SIZE);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == 0x1f && b2 == 0x8b) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    /**
+     * @return the next phenopacket or <code>null</code> if there are no more phenopackets
+     * @throws IOException if reading or parsing fails
+     */
+    public Phenopacket next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                Phenopacket.Builder builder = Phenopacket.newBuilder();
+                PARSER.merge(line, builder);
+                return builder.build();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,58 @@
+package org.jax.phenopacketgenerator.io;
+
+import com.google.protobuf.util.JsonFormat;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams phenopackets into a single newline-delimited JSON file, one compact phenopacket per line.
+ * <p>
+ * Each phenopacket is printed straight into the buffered output, so the writer never holds more than the phenopacket
+ * being written. Writes are serialized, the writer can be shared by several threads.
+ *
+ * @see NdjsonPhenopacketReader
+ */
+public class NdjsonPhenopacketWriter implements PhenopacketWriter {
+
+    private static final JsonFormat.Printer PRINTER = PhenopacketJson.printer(false);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+
+    private long count = 0;
+
+    public NdjsonPhenopacketWriter(Path path, boolean gzip) throws IOException {
+        this(gzip
+                ? new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE)
+                : Files.newOutputStream(path));
+    }
+
+    public NdjsonPhenopacketWriter(OutputStream os) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void write(Phenopacket phenopacket) throws IOException {
+        PRINTER.appendTo(phenopacket, writer);
+        writer.write('\n');
+        count++;
+    }
+
+    /**
+     * @return number of phenopackets written so far
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
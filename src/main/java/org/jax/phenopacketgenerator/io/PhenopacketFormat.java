@@ -0,0 +1,58 @@
+package org.jax.phenopacketgenerator.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Output formats supported by the batch mode.
+ */
+public enum PhenopacketFormat {
+    /**
+     * One JSON file per phenopacket, the output path is a directory.
+     */
+    JSON,
+    /**
+     * Newline-delimited JSON, one compact phenopacket per line in a single file.
+     */
+    NDJSON,
+    /**
+     * Length-delimited protobuf messages in a single file.
+     */
+    PB,
+    /**
+     * One <code>.pb</code> (or <code>.pb.gz</code>) file with a length-delimited protobuf message per phenopacket, the
+     * output path is a directory.
+     */
+    PB_DIR;
+
+    public static PhenopacketFormat fromString(String value) {
+        String name = value.replace('-', '_');
+        for (PhenopacketFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown output format `" + value + "`");
+    }
+
+    /**
+     * @param output  directory or file, depending on the format
+     * @param gzip    compress the output with gzip, each file of the directory formats
+     * @param compact print JSON files without whitespace, the NDJSON format is always compact
+     * @return writer of this format
+     * @throws IOException if the output cannot be opened
+     */
+    public PhenopacketWriter open(Path output, boolean gzip, boolean compact) throws IOException {
+        switch (this) {
+            case NDJSON:
+                return new NdjsonPhenopacketWriter(output, gzip);
+            case PB:
+                return new ProtobufPhenopacketWriter(output, gzip);
+            case PB_DIR:
+                return new ProtobufDirectoryWriter(output, gzip);
+            case JSON:
+            default:
+                return new JsonDirectoryWriter(output, !compact, gzip);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.jax.phenopacketgenerator.io;
+
+import com.google.protobuf.util.JsonFormat;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes and reads phenopackets as JSON. The JSON is printed by {@link JsonFormat.Printer#appendTo} straight into a
+ * buffered writer, so the document is never built as a single <code>String</code> and the memory needed does not grow
+ * with the size of the phenopacket. Likewise, the parser reads straight from the file.
+ */
+public final class PhenopacketJson {
+
+    /**
+     * The default size of {@link BufferedWriter}, big enough for small phenopackets to be written at once while keeping
+     * allocation low when writing many files.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final JsonFormat.Printer PRETTY_PRINTER = JsonFormat.printer();
+
+    private static final JsonFormat.Printer COMPACT_PRINTER = PRETTY_PRINTER.omittingInsignificantWhitespace();
+
+    /**
+     * Phenopackets written by other tools may use fields of newer schema versions.
+     */
+    private static final JsonFormat.Parser PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+    private PhenopacketJson() {
+        // private no-op
+    }
+
+    /**
+     * @param pretty <code>true</code> for indented output, <code>false</code> for compact output without whitespace
+     * @return thread-safe printer
+     */
+    public static JsonFormat.Printer printer(boolean pretty) {
+        return pretty ? PRETTY_PRINTER : COMPACT_PRINTER;
+    }
+
+    /**
+     * Write the phenopacket into <code>path</code>, replacing the file if it exists.
+     *
+     * @param pretty indent the JSON
+     * @param gzip   compress the file with gzip
+     * @throws IOException if writing fails
+     */
+    public static void write(Phenopacket phenopacket, Path path, boolean pretty, boolean gzip) throws IOException {
+        try (OutputStream os = gzip
+                ? new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE)
+                : Files.newOutputStream(path)) {
+            write(phenopacket, os, pretty);
+        }
+    }
+
+    /**
+     * Write the phenopacket into the stream encoded in UTF-8. The stream is flushed, but not closed.
+     *
+     * @param pretty indent the JSON
+     * @throws IOException if writing fails
+     */
+    public static void write(Phenopacket phenopacket, OutputStream os, boolean pretty) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+        printer(pretty).appendTo(phenopacket, writer);
+        writer.flush();
+    }
+
+    /**
+     * Read a phenopacket from a JSON file, gzipped files are detected automatically.
+     *
+     * @throws IOException if reading or parsing fails
+     */
+    public static Phenopacket read(Path path) throws IOException {
+        try (InputStream is = Files.newInputStream(path)) {
+            return read(is);
+        }
+    }
+
+    /**
+     * Read a phenopacket from a JSON document encoded in UTF-8, gzipped streams are detected automatically. The stream
+     * is not closed.
+     *
+     * @throws IOException if reading or parsing fails
+     */
+    public static Phenopacket read(InputStream is) throws IOException {
+        Reader reader = new InputStreamReader(NdjsonPhenopacketReader.maybeGunzip(is), StandardCharsets.UTF_8);
+        Phenopacket.Builder builder = Phenopacket.newBuilder();
+        PARSER.merge(reader, builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,15 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for encoded phenopackets. Implementations must be thread-safe, the batch mode writes from several
+ * worker threads.
+ */
+public interface PhenopacketWriter extends Closeable {
+
+    void write(Phenopacket phenopacket) throws IOException;
+}
@@ -0,0 +1,50 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes each phenopacket as a length-delimited protobuf message into a <code>.pb</code> or <code>.pb.gz</code> file
+ * named after the phenopacket ID. The files can be read by {@link ProtobufPhenopacketReader}. As in {@link JsonDirectoryWriter}, a
+ * phenopacket whose file name collides with the file of another phenopacket fails.
+ */
+public class ProtobufDirectoryWriter implements PhenopacketWriter {
+
+    private final FileNameRegistry fileNames;
+
+    private final boolean gzip;
+
+    public ProtobufDirectoryWriter(Path outputDir) throws IOException {
+        this(outputDir, false);
+    }
+
+    /**
+     * @param gzip compress each file with gzip, the files are named <code>*.pb.gz</code>
+     */
+    public ProtobufDirectoryWriter(Path outputDir, boolean gzip) throws IOException {
+        this.fileNames = new FileNameRegistry(Files.createDirectories(outputDir));
+        this.gzip = gzip;
+    }
+
+    @Override
+    public void write(Phenopacket phenopacket) throws IOException {
+        fileNames.write(phenopacket.getId(), gzip ? ".pb.gz" : ".pb", path -> {
+            try (OutputStream os = new BufferedOutputStream(gzip
+                    ? new GZIPOutputStream(Files.newOutputStream(path))
+                    : Files.newOutputStream(path))) {
+                phenopacket.writeDelimitedTo(os);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+}
@@ -0,0 +1,39 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads length-delimited phenopackets written by {@link ProtobufPhenopacketWriter} or {@link ProtobufDirectoryWriter},
+ * one phenopacket at a time. Gzipped files are detected automatically.
+ */
+public class ProtobufPhenopacketReader implements Closeable {
+
+    private final InputStream is;
+
+    public ProtobufPhenopacketReader(Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    public ProtobufPhenopacketReader(InputStream is) throws IOException {
+        this.is = NdjsonPhenopacketReader.maybeGunzip(is);
+    }
+
+    /**
+     * @return the next phenopacket or <code>null</code> if there are no more phenopackets
+     * @throws IOException if reading or parsing fails
+     */
+    public Phenopacket next() throws IOException {
+        return Phenopacket.parseDelimitedFrom(is);
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+}
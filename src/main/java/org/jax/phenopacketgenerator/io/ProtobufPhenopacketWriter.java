@@ -0,0 +1,44 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams phenopackets into a single file in the protobuf wire format. Each phenopacket is prefixed by its length
+ * ({@link Phenopacket#writeDelimitedTo(OutputStream)}), so the file may contain any number of phenopackets. Writes are
+ * serialized, the writer can be shared by several threads.
+ *
+ * @see ProtobufPhenopacketReader
+ */
+public class ProtobufPhenopacketWriter implements PhenopacketWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream os;
+
+    public ProtobufPhenopacketWriter(Path path, boolean gzip) throws IOException {
+        this(gzip
+                ? new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE)
+                : Files.newOutputStream(path));
+    }
+
+    public ProtobufPhenopacketWriter(OutputStream os) {
+        this.os = new BufferedOutputStream(os, BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void write(Phenopacket phenopacket) throws IOException {
+        phenopacket.writeDelimitedTo(os);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        os.close();
+    }
+}
@@ -0,0 +1,191 @@
+package org.jax.phenopacketgenerator.metrics;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide registry of timers, counters and distribution summaries.
+ * <p>
+ * Meters are created on a composite registry, which has no backing registries until {@link #start(Properties, Path)}
+ * enables metrics. Recording into a meter of an empty composite is a no-op, so instrumented code pays almost nothing
+ * when metrics are disabled. When enabled, the meters are exposed over JMX in the <code>phenopacketgenerator</code>
+ * domain and written periodically into a local log file.
+ */
+public final class PgMetrics {
+
+    /**
+     * Set to <code>true</code> to enable metrics, either in <code>application.properties</code> or as a system property.
+     */
+    public static final String ENABLED_PROPERTY = "pg.metrics.enabled";
+
+    /**
+     * Interval of writing into the metrics log as ISO-8601 duration, e.g. <code>PT1M</code>.
+     */
+    public static final String STEP_PROPERTY = "pg.metrics.step";
+
+    /**
+     * Path to the metrics log, <code>metrics.log</code> in the app home directory by default.
+     */
+    public static final String FILE_PROPERTY = "pg.metrics.file";
+
+    public static final String DEFAULT_FILE_NAME = "metrics.log";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PgMetrics.class);
+
+    private static final CompositeMeterRegistry REGISTRY = new CompositeMeterRegistry();
+
+    private static final List<MeterRegistry> STARTED = new ArrayList<>();
+
+    private static BufferedWriter metricsLog;
+
+    private PgMetrics() {
+        // private no-op
+    }
+
+    public static MeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * @return timer that also tracks the 50th, 95th and 99th percentile
+     */
+    public static Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(.5, .95, .99)
+                .register(REGISTRY);
+    }
+
+    public static Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(REGISTRY);
+    }
+
+    public static DistributionSummary summary(String name, String description, String... tags) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(.5, .95, .99)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Record time elapsed since <code>startNanos</code>, obtained from {@link System#nanoTime()}.
+     */
+    public static void recordSince(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Enable metrics if {@link #ENABLED_PROPERTY} is <code>true</code> in the system properties or in
+     * <code>properties</code>. System properties take precedence.
+     *
+     * @param properties application properties
+     * @param appHomeDir directory for the default metrics log
+     */
+    public static synchronized void start(Properties properties, Path appHomeDir) {
+        if (!Boolean.parseBoolean(property(properties, ENABLED_PROPERTY, "false")) || !STARTED.isEmpty()) {
+            return;
+        }
+        JmxMeterRegistry jmx = new JmxMeterRegistry(new JmxConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public String domain() {
+                return "phenopacketgenerator";
+            }
+        }, Clock.SYSTEM);
+        add(jmx);
+
+        Path logFile = appHomeDir.resolve(property(properties, FILE_PROPERTY, DEFAULT_FILE_NAME));
+        Duration step = Duration.parse(property(properties, STEP_PROPERTY, "PT1M"));
+        try {
+            metricsLog = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            LoggingRegistryConfig config = new LoggingRegistryConfig() {
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public Duration step() {
+                    return step;
+                }
+            };
+            add(LoggingMeterRegistry.builder(config).loggingSink(PgMetrics::writeLine).build());
+            LOGGER.info("Metrics enabled, writing to `{}` every {} s", logFile, step.getSeconds());
+        } catch (IOException e) {
+            LOGGER.warn("Unable to open metrics log `{}`, metrics are available over JMX only", logFile, e);
+        }
+    }
+
+    private static void add(MeterRegistry registry) {
+        REGISTRY.add(registry);
+        STARTED.add(registry);
+    }
+
+    private static synchronized void writeLine(String line) {
+        if (metricsLog == null) {
+            return;
+        }
+        try {
+            metricsLog.write(Instant.now().toString());
+            metricsLog.write(' ');
+            metricsLog.write(line);
+            metricsLog.newLine();
+            metricsLog.flush();
+        } catch (IOException e) {
+            LOGGER.debug("Unable to write metrics", e);
+        }
+    }
+
+    private static String property(Properties properties, String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue));
+    }
+
+    /**
+     * Publish the last values, unregister the JMX beans and close the metrics log. Does nothing if metrics are
+     * disabled.
+     */
+    public static synchronized void stop() {
+        for (MeterRegistry registry : STARTED) {
+            REGISTRY.remove(registry);
+            registry.close();
+        }
+        STARTED.clear();
+        if (metricsLog != null) {
+            try {
+                metricsLog.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to close metrics log", e);
+            }
+            metricsLog = null;
+        }
+    }
+}
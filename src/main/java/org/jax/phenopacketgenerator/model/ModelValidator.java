@@ -0,0 +1,249 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Checks a {@link PgModel} and collects all problems in a single pass, unlike an exception that stops at the first
+ * problem. The checks cover:
+ * <ul>
+ * <li>phenopacket, proband and biocurator IDs</li>
+ * <li>ISO8601 age and sex</li>
+ * <li>HPO term IDs: syntax and, if an ontology is set, unknown, obsolete and alternative IDs and labels</li>
+ * <li>conflicting phenotypes, if an ancestor closure is set</li>
+ * <li>consistency of the genome assembly and the VCF file</li>
+ * </ul>
+ * Instances are immutable and thread-safe, so a single validator can check many models in parallel.
+ */
+public final class ModelValidator {
+
+    private static final String EMPTY_STRING = "";
+
+    /**
+     * ISO8601 duration, e.g. <code>P6Y5M</code>, <code>P3W</code> or <code>P2DT12H</code>. At least one component is
+     * required and the time part must not be empty.
+     */
+    private static final Pattern ISO8601_DURATION = Pattern.compile(
+            "P(?=\\d|T\\d)(?:\\d+Y)?(?:\\d+M)?(?:\\d+W)?(?:\\d+D)?(?:T(?=\\d)(?:\\d+H)?(?:\\d+M)?(?:\\d+(?:[.,]\\d+)?S)?)?");
+
+    private static final Pattern HPO_TERM_ID = Pattern.compile("HP:\\d{7}");
+
+    private static final Set<String> SEX_VALUES = new HashSet<>(Arrays.asList(EMPTY_STRING, "MALE", "FEMALE", "UNKNOWN"));
+
+    /**
+     * Assemblies offered by the GUI and their GRC names, in lower case.
+     */
+    private static final Set<String> ASSEMBLIES = new HashSet<>(Arrays.asList("hg19", "hg38", "hg39", "grch37", "grch38"));
+
+    private static final ModelValidator BASIC = newBuilder().build();
+
+    private final CompactOntology ontology;
+
+    private final AncestorClosure closure;
+
+    private ModelValidator(Builder builder) {
+        this.ontology = builder.ontology;
+        this.closure = builder.closure;
+    }
+
+    /**
+     * @return validator of the parts of the model that do not need an ontology
+     */
+    public static ModelValidator basic() {
+        return BASIC;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return all problems of the model, empty list if there are none
+     */
+    public List<ValidationIssue> validate(PgModel model) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        checkId(model.getPhenopacketId(), "phenopacket_id", "Phenopacket ID",
+                ValidationIssue.Type.MISSING_PHENOPACKET_ID, issues);
+        checkId(model.getProbandId(), "proband_id", "Proband ID", ValidationIssue.Type.MISSING_PROBAND_ID, issues);
+        checkId(model.getBiocurator(), "biocurator", "Biocurator ID (use Edit menu)",
+                ValidationIssue.Type.MISSING_BIOCURATOR_ID, issues);
+        checkAge(model, issues);
+        checkSex(model, issues);
+        checkPhenotypes(model, issues);
+        checkVcf(model, issues);
+        return issues;
+    }
+
+    /**
+     * @return <code>true</code> if any of the issues is an {@link ValidationIssue.Severity#ERROR error}
+     */
+    public static boolean hasErrors(List<ValidationIssue> issues) {
+        for (ValidationIssue issue : issues) {
+            if (issue.getSeverity() == ValidationIssue.Severity.ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkId(String id, String field, String name, ValidationIssue.Type missing,
+                                List<ValidationIssue> issues) {
+        if (id == null || id.trim().isEmpty()) {
+            issues.add(ValidationIssue.of(missing, field, name + " is not initialized"));
+        } else if (!id.equals(id.trim())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.UNTRIMMED_ID, field,
+                    String.format("%s `%s` starts or ends with whitespace", name, id)));
+        }
+    }
+
+    private static void checkAge(PgModel model, List<ValidationIssue> issues) {
+        // age is not required
+        if (model.hasAgeData() && !ISO8601_DURATION.matcher(model.getIsoAge()).matches()) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.INVALID_AGE, "age",
+                    "Invalid age string: " + model.getIsoAge()));
+        }
+    }
+
+    private static void checkSex(PgModel model, List<ValidationIssue> issues) {
+        String sex = model.getSex();
+        if (sex != null && !SEX_VALUES.contains(sex)) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.UNKNOWN_SEX, "sex",
+                    String.format("Sex `%s` is not recognized, the phenopacket is exported without sex", sex)));
+        }
+    }
+
+    private void checkPhenotypes(PgModel model, List<ValidationIssue> issues) {
+        List<PgOntologyClass> phenotypes = model.getPhenotypes();
+        if (phenotypes.isEmpty()) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.NO_PHENOTYPES, "hpo_ids",
+                    "At least one phenotype term required!"));
+            return;
+        }
+        for (PgOntologyClass phenotype : phenotypes) {
+            checkTerm(phenotype, issues);
+        }
+        for (String id : model.getConflictingPhenotypeIds()) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.CONFLICTING_PHENOTYPES, id,
+                    String.format("%s is both observed and excluded", id)));
+        }
+        if (closure != null) {
+            checkHierarchyConflicts(phenotypes, issues);
+        }
+    }
+
+    private void checkTerm(PgOntologyClass phenotype, List<ValidationIssue> issues) {
+        String id = phenotype.getId();
+        if (id == null || !HPO_TERM_ID.matcher(id).matches()) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.MALFORMED_TERM_ID, String.valueOf(id),
+                    String.format("`%s` is not an HPO term ID", id)));
+            return;
+        }
+        if (ontology == null) {
+            return;
+        }
+        int index = ontology.indexOf(id);
+        if (index < 0) {
+            int replacement = ontology.getReplacement(id);
+            if (replacement >= 0) {
+                issues.add(ValidationIssue.of(ValidationIssue.Type.OBSOLETE_TERM, id,
+                        String.format("Obsolete HPO ID `%s`, replaced by %s [%s]", id,
+                                ontology.getLabel(replacement), ontology.getTermId(replacement))));
+            } else if (ontology.isObsolete(id)) {
+                issues.add(ValidationIssue.of(ValidationIssue.Type.OBSOLETE_TERM, id,
+                        String.format("Obsolete HPO ID `%s`", id)));
+            } else {
+                issues.add(ValidationIssue.of(ValidationIssue.Type.UNKNOWN_TERM, id,
+                        String.format("Unknown HPO ID `%s`", id)));
+            }
+            return;
+        }
+        String primaryId = ontology.getTermId(index);
+        String label = ontology.getLabel(index);
+        if (!primaryId.equals(id)) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.ALTERNATIVE_TERM_ID, id,
+                    String.format("`%s` is an alternative ID of %s [%s]", id, label, primaryId)));
+        } else if (phenotype.getLabel() != null && !phenotype.getLabel().isEmpty() && !label.equals(phenotype.getLabel())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.LABEL_MISMATCH, id,
+                    String.format("Label of %s is `%s`, not `%s`", id, label, phenotype.getLabel())));
+        }
+    }
+
+    /**
+     * A term must not be excluded if any of its descendants is observed. Terms both observed and excluded are reported
+     * by the model itself.
+     */
+    private void checkHierarchyConflicts(List<PgOntologyClass> phenotypes, List<ValidationIssue> issues) {
+        BitSet observedAncestors = new BitSet(closure.size());
+        for (PgOntologyClass phenotype : phenotypes) {
+            int index = closure.indexOf(phenotype.getId());
+            if (index >= 0 && !phenotype.getNotObserved()) {
+                closure.addAncestors(index, observedAncestors);
+            }
+        }
+        for (PgOntologyClass phenotype : phenotypes) {
+            int index = closure.indexOf(phenotype.getId());
+            if (index >= 0 && phenotype.getNotObserved() && observedAncestors.get(index)) {
+                issues.add(ValidationIssue.of(ValidationIssue.Type.CONFLICTING_PHENOTYPES, phenotype.getId(),
+                        String.format("%s [%s] is excluded but its descendant %s is observed", phenotype.getLabel(),
+                                phenotype.getId(), observedDescendant(phenotypes, index))));
+            }
+        }
+    }
+
+    private String observedDescendant(List<PgOntologyClass> phenotypes, int ancestor) {
+        for (PgOntologyClass phenotype : phenotypes) {
+            int index = closure.indexOf(phenotype.getId());
+            if (index >= 0 && !phenotype.getNotObserved() && closure.isAncestor(ancestor, index)) {
+                return String.format("%s [%s]", phenotype.getLabel(), phenotype.getId());
+            }
+        }
+        return EMPTY_STRING;
+    }
+
+    private static void checkVcf(PgModel model, List<ValidationIssue> issues) {
+        if (!model.hasVcf()) {
+            return;
+        }
+        String assembly = model.getGenomeAssembly();
+        if (assembly == null || assembly.trim().isEmpty()) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.MISSING_ASSEMBLY, "assembly",
+                    "Genome assembly of the VCF file is not set"));
+        } else if (!ASSEMBLIES.contains(assembly.toLowerCase())) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.UNKNOWN_ASSEMBLY, "assembly",
+                    String.format("Unknown genome assembly `%s`", assembly)));
+        }
+        String name = model.getVcfPath().toLowerCase();
+        if (!(name.endsWith(".vcf") || name.endsWith(".vcf.gz") || name.endsWith(".vcf.bgz") || name.endsWith(".bcf"))) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.UNEXPECTED_VCF_NAME, "vcf_path",
+                    String.format("`%s` does not look like a VCF file", model.getVcfPath())));
+        }
+    }
+
+    public static class Builder {
+        private CompactOntology ontology;
+        private AncestorClosure closure;
+
+        /**
+         * Check that the HPO terms are current terms of the <code>ontology</code>.
+         */
+        public Builder setOntology(CompactOntology ontology) {
+            this.ontology = ontology;
+            return this;
+        }
+
+        /**
+         * Check that no term is excluded while its descendant is observed.
+         */
+        public Builder setClosure(AncestorClosure closure) {
+            this.closure = closure;
+            return this;
+        }
+
+        public ModelValidator build() {
+            return new ModelValidator(this);
+        }
+    }
+}
@@ -1,25 +1,36 @@
 package org.jax.phenopacketgenerator.model;
 
-import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
 
 /**
  * A POJO class that contains all of the data we need to export a Phenopacket
  */
 public class PgModel {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(PgModel.class);
+
+    private static final Timer QC_TIMER = PgMetrics.timer("pg.qc", "QC of phenopacket data");
+    private static final Counter QC_FAILURES = PgMetrics.counter("pg.qc.failures", "Phenopackets that failed QC");
+    private static final DistributionSummary PHENOTYPE_COUNT = PgMetrics.summary("pg.qc.phenotypes",
+            "Number of phenotypes per QCed phenopacket");
+
     private final static String EMPTY_STRING = "";
 
     private String hpoVersion = EMPTY_STRING;
     private String ecoVersion = EMPTY_STRING;
-    private final TreeSet<PgOntologyClass> phenotypes;
+    private final PhenotypeStore phenotypes;
     private String vcfPath = null;
     private String genomeAssembly;
+    private String vcfChecksum = null;
+    private String vcfSampleId = null;
     private String biocurator = EMPTY_STRING;
     private String probandId = EMPTY_STRING;
     private String phenopacketId = EMPTY_STRING;
@@ -27,11 +38,8 @@ public class PgModel {
     private String isoAge = EMPTY_STRING;
     private String sex = EMPTY_STRING;
 
-    private final String iso8601 = "^P(?=\\d|T\\d)(?:(\\d+)Y)?(?:(\\d+)M)?(?:(\\d+)([DW]))?";
-    private final Pattern pattern = Pattern.compile(iso8601);
-
     public PgModel(List<PgOntologyClass> phenotypes) {
-        this.phenotypes = new TreeSet<>(phenotypes);
+        this.phenotypes = new PhenotypeStore(phenotypes);
     }
 
     public String getIsoAge() {
@@ -88,12 +96,43 @@ public class PgModel {
         this.ecoVersion = ecoVersion;
     }
 
+    /**
+     * @return immutable view of phenotypes sorted by label; the same instance is returned until the phenotypes change,
+     * so the call is cheap
+     */
     public List<PgOntologyClass> getPhenotypes() {
-        ImmutableList.Builder<PgOntologyClass> builder = new ImmutableList.Builder<>();
-        for (PgOntologyClass pgoc : this.phenotypes) {
-            builder.add(pgoc);
-        }
-        return builder.build();
+        return phenotypes.snapshot();
+    }
+
+    /**
+     * Add the phenotype unless a phenotype with the same ID is already present. Adding a term that is already present
+     * with the opposite observation status is a conflict reported by {@link #qc()}.
+     *
+     * @return <code>true</code> if the phenotype was added
+     */
+    public boolean addPhenotype(PgOntologyClass phenotype) {
+        return phenotypes.add(phenotype);
+    }
+
+    /**
+     * @return the removed phenotype or <code>null</code> if no phenotype has the <code>id</code>
+     */
+    public PgOntologyClass removePhenotype(String id) {
+        return phenotypes.remove(id);
+    }
+
+    /**
+     * @return phenotype with the <code>id</code> or <code>null</code>
+     */
+    public PgOntologyClass getPhenotype(String id) {
+        return phenotypes.get(id);
+    }
+
+    /**
+     * @return IDs of terms entered both as observed and as excluded
+     */
+    public Set<String> getConflictingPhenotypeIds() {
+        return phenotypes.getConflictingIds();
     }
 
     public String getVcfPath() {
@@ -104,6 +143,29 @@ public class PgModel {
         this.vcfPath = vcfPath;
     }
 
+    /**
+     * @return checksum of the VCF file, e.g. {@link org.jax.phenopacketgenerator.vcf.ChunkedDigest#getChecksum()}, or
+     * <code>null</code> if not known
+     */
+    public String getVcfChecksum() {
+        return vcfChecksum;
+    }
+
+    public void setVcfChecksum(String vcfChecksum) {
+        this.vcfChecksum = vcfChecksum;
+    }
+
+    /**
+     * @return ID of the proband's sample in the VCF file or <code>null</code> if not known
+     */
+    public String getVcfSampleId() {
+        return vcfSampleId;
+    }
+
+    public void setVcfSampleId(String vcfSampleId) {
+        this.vcfSampleId = vcfSampleId;
+    }
+
     public String getGenomeAssembly() {
         return genomeAssembly;
     }
@@ -137,28 +199,99 @@ public class PgModel {
     }
 
 
+    /**
+     * Check that the model is complete and valid for export.
+     *
+     * @throws PGException with all errors found by {@link ModelValidator#basic()}
+     */
     public void qc() throws PGException {
-        if (this.phenopacketId.equals(EMPTY_STRING) || phenopacketId.isEmpty()) {
-            throw new PGException("Phenopacket ID is not initialized");
-        } else {
-            System.out.println("phenopacket id is "+phenopacketId);
+        qc(ModelValidator.basic());
+    }
+
+    /**
+     * Run {@link #qc()} and check that the phenotypes do not contradict each other: a term must not be excluded if the
+     * term itself or any of its descendants is observed.
+     *
+     * @param closure ancestor closure of the ontology the phenotypes come from
+     * @throws PGException if the model is incomplete or the phenotypes are in conflict
+     */
+    public void qc(AncestorClosure closure) throws PGException {
+        qc(ModelValidator.newBuilder().setClosure(closure).build());
+    }
+
+    /**
+     * Validate the model and fail if the <code>validator</code> finds any error. Warnings are logged.
+     *
+     * @throws PGException with messages of all errors
+     */
+    public void qc(ModelValidator validator) throws PGException {
+        long start = System.nanoTime();
+        List<ValidationIssue> issues;
+        try {
+            issues = validator.validate(this);
+        } finally {
+            PgMetrics.recordSince(QC_TIMER, start);
+        }
+        List<String> errors = new ArrayList<>();
+        for (ValidationIssue issue : issues) {
+            if (issue.getSeverity() == ValidationIssue.Severity.ERROR) {
+                errors.add(issue.getMessage());
+            } else {
+                LOGGER.debug("Phenopacket {}: {}", phenopacketId, issue.getMessage());
+            }
         }
-        if (this.probandId.equals(EMPTY_STRING) || probandId.isEmpty()) {
-            throw new PGException("Proband ID is not initialized");
+        if (!errors.isEmpty()) {
+            QC_FAILURES.increment();
+            throw new PGException(String.join("; ", errors));
         }
-        if (this.isoAge == null || this.isoAge.equals(EMPTY_STRING) || this.isoAge.isEmpty()) {
-            // OK, not required
-        } else {
-            Matcher m = pattern.matcher(isoAge);
-            if (! m.find()) {
-                throw new PGException("Invalid age string: " + isoAge);
+        PHENOTYPE_COUNT.record(phenotypes.size());
+    }
+
+    /**
+     * Find phenotypes that carry no information beyond the other phenotypes. An observed term is redundant if any of
+     * its descendants is observed, and an excluded term is redundant if any of its ancestors is excluded.
+     * Phenotypes with IDs unknown to the <code>closure</code> are never redundant.
+     *
+     * @param closure ancestor closure of the ontology the phenotypes come from
+     * @return redundant phenotypes
+     */
+    public List<PgOntologyClass> getRedundantPhenotypes(AncestorClosure closure) {
+        BitSet observedAncestors = new BitSet(closure.size());
+        BitSet excluded = new BitSet(closure.size());
+        for (PgOntologyClass phenotype : phenotypes.snapshot()) {
+            int index = closure.indexOf(phenotype.getId());
+            if (index < 0) {
+                continue;
+            }
+            if (phenotype.getNotObserved()) {
+                excluded.set(index);
+            } else {
+                closure.addAncestors(index, observedAncestors);
             }
         }
-        if (this.phenotypes.isEmpty()) {
-            throw new PGException("At least one phenotype term required!");
+        List<PgOntologyClass> redundant = new ArrayList<>();
+        for (PgOntologyClass phenotype : phenotypes.snapshot()) {
+            int index = closure.indexOf(phenotype.getId());
+            if (index < 0) {
+                continue;
+            }
+            if (phenotype.getNotObserved()) {
+                for (int ancestor : closure.getAncestors(index)) {
+                    if (excluded.get(ancestor)) {
+                        redundant.add(phenotype);
+                        break;
+                    }
+                }
+            } else if (observedAncestors.get(index)) {
+                redundant.add(phenotype);
+            }
         }
-        if (biocurator == null || biocurator.equals(EMPTY_STRING) || biocurator.isEmpty()) {
-            throw new PGException("Biocurator ID not unitialized (use Edit menu)");
+        return redundant;
+    }
+
+    public void removePhenotypes(Collection<PgOntologyClass> toRemove) {
+        for (PgOntologyClass phenotype : toRemove) {
+            phenotypes.remove(phenotype.getId());
         }
     }
 
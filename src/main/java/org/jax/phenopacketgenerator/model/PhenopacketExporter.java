@@ -1,44 +1,50 @@
 package org.jax.phenopacketgenerator.model;
 
 import com.google.protobuf.Timestamp;
-import com.google.protobuf.util.JsonFormat;
-import org.jax.phenopacketgenerator.gui.PopUps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.jax.phenopacketgenerator.io.PhenopacketJson;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
 import org.phenopackets.schema.v1.Phenopacket;
 import org.phenopackets.schema.v1.core.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 public class PhenopacketExporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PhenopacketExporter.class);
-    private static final JsonFormat.Printer PRINTER = JsonFormat.printer();
 
+    private static final Timer ENCODE_TIMER = PgMetrics.timer("pg.encode", "Encoding of a phenopacket into protobuf");
+    private static final Timer EXPORT_JSON_TIMER = PgMetrics.timer("pg.export", "Export of a phenopacket into a file",
+            "format", "json");
+    private static final Timer EXPORT_PB_TIMER = PgMetrics.timer("pg.export", "Export of a phenopacket into a file",
+            "format", "pb");
+    private static final Counter EXPORT_FAILURES = PgMetrics.counter("pg.export.failures", "Failed phenopacket exports");
 
-    // source https://bioportal.bioontology.org/ontologies/ECO/?p=classes&conceptid=http%3A%2F%2Fpurl.obolibrary.org%2Fobo%2FECO_0000033&jump_to_nav=true
-    private static final OntologyClass TRACEABLE_AUTHOR_STATEMENT = ontologyClass("ECO:0000033", "author statement supported by traceable reference");
-    private static final OntologyClass AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION =
-            ontologyClass("ECO:0000302", "author statement used in manual assertion");
     private final static String UNITIALIZED = "Uninitialized";
 
+    /**
+     * URIs of remote files, e.g. of an imported phenopacket, are exported as they are.
+     */
+    private static final Pattern REMOTE_URI = Pattern.compile("^[A-Za-z][A-Za-z0-9+.-]+://.*");
+
     private final List<PgOntologyClass> phenotypes;
     private final boolean hasVcf;
     private final String vcfPath;
     private final String genomeAssembly;
+    private final String vcfChecksum;
+    private final String vcfSampleId;
     private final String probandId;
     private final String phenopacketId;
     private final String biocuratorId;
     private final String phenopacketVersion;
-    private final String ecoVersion;
-    private final String hpoVersion;
+    private final PhenopacketFragments fragments;
 
     private final String sex;
     private final String age;
@@ -53,16 +59,19 @@ public class PhenopacketExporter {
         if (model.hasVcf()) {
             this.vcfPath = model.getVcfPath();
             this.genomeAssembly = model.getGenomeAssembly();
+            this.vcfChecksum = model.getVcfChecksum();
+            this.vcfSampleId = model.getVcfSampleId();
         } else {
             this.vcfPath = null;
             this.genomeAssembly = null;
+            this.vcfChecksum = null;
+            this.vcfSampleId = null;
         }
         this.probandId = model.getProbandId();
         this.phenopacketId = model.getPhenopacketId();
         this.biocuratorId = model.getBiocurator();
         this.phenopacketVersion = model.getPhenopacketVersion();
-        this.ecoVersion = model.getEcoVersion();
-        this.hpoVersion = model.getHpoVersion();
+        this.fragments = PhenopacketFragments.of(model.getHpoVersion(), model.getEcoVersion());
         if (model.hasSexData()) {
             this.sex = model.getSex();
         } else {
@@ -76,13 +85,13 @@ public class PhenopacketExporter {
     }
 
     /**
-     * Make sure the file name ends with ".json"
+     * Make sure the file name ends with ".json", ".json.gz" or ".pb"
      * @param f The file name returned by the user from the File chooser dialog
      * @return The corresponding path (with .json appended if necessary)
      */
     private Path getCanonicalPath(File f) {
         String abspath = f.getAbsolutePath();
-        if (abspath.toLowerCase().endsWith("json")) {
+        if (abspath.toLowerCase().endsWith("json") || isGzip(f.toPath()) || isProtobuf(f.toPath())) {
             return f.toPath();
         }
         abspath = abspath + ".json";
@@ -91,49 +100,78 @@ public class PhenopacketExporter {
     }
 
 
+    private static boolean isProtobuf(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".pb");
+    }
+
+    private static boolean isGzip(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".json.gz");
+    }
+
     /**
-     * Create a phenopackets OntologyClass object
-     * @param id, e.g., HP:0001234
-     * @param label e.g., Abnormal X morphology
-     * @return corresponding OntologyClass
+     * Export the phenopacket into <code>fileToWriteTo</code>. Phenopacket is written in the protobuf wire format if the
+     * file name ends with <code>.pb</code>, as gzipped JSON if the name ends with <code>.json.gz</code> and as JSON
+     * otherwise, <code>.json</code> is appended to other names.
+     *
+     * @return path of the written file
+     * @throws IOException if writing fails
      */
-    private static OntologyClass ontologyClass(String id, String label) {
-        return OntologyClass.newBuilder()
-                .setId(id)
-                .setLabel(label)
-                .build();
+    public Path export(File fileToWriteTo) throws IOException {
+        Path mypath = getCanonicalPath(fileToWriteTo);
+        long start = System.nanoTime();
+        try {
+            if (isProtobuf(mypath)) {
+                writeBinary(mypath);
+                PgMetrics.recordSince(EXPORT_PB_TIMER, start);
+            } else {
+                write(mypath);
+                PgMetrics.recordSince(EXPORT_JSON_TIMER, start);
+            }
+            return mypath;
+        } catch (IOException e) {
+            EXPORT_FAILURES.increment();
+            throw e;
+        }
     }
 
     /**
-     * By default, we use the evidence code AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION
-     * for all assertions, because we do not know anything specific about the evidence
-     * that the biocurator has to make the assertion.
-     * @return An Evidence message
+     * Write the phenopacket as pretty-printed JSON into <code>path</code>, compressed with gzip if the file name ends
+     * with <code>.json.gz</code>.
+     *
+     * @param path where to write the phenopacket
+     * @throws IOException if writing fails
      */
-    private static Evidence evidence() {
-        return Evidence.newBuilder()
-                .setEvidenceCode(AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION).build();
+    public void write(Path path) throws IOException {
+        write(path, true, isGzip(path));
     }
 
-
-    private static Function<PgOntologyClass, PhenotypicFeature> hcaPhenotypeToPhenopacketPhenotype() {
-        return oc -> PhenotypicFeature.newBuilder()
-                .setType(ontologyClass(oc.getId(), oc.getLabel()))
-                .setNegated(oc.getNotObserved())
-                .addEvidence(evidence())
-                .build();
+    /**
+     * Write the phenopacket as JSON into <code>path</code>.
+     *
+     * @param path   where to write the phenopacket
+     * @param pretty indent the JSON
+     * @param gzip   compress the file with gzip
+     * @throws IOException if writing fails
+     * @see PhenopacketJson
+     */
+    public void write(Path path, boolean pretty, boolean gzip) throws IOException {
+        Phenopacket packet = encode();
+        LOGGER.trace("Writing phenopacket to '{}'", path.toAbsolutePath());
+        PhenopacketJson.write(packet, path, pretty, gzip);
     }
 
-    public void export(File fileToWriteTo) {
+    /**
+     * Write the phenopacket as a length-delimited protobuf message into <code>path</code>.
+     *
+     * @param path where to write the phenopacket
+     * @throws IOException if writing fails
+     * @see org.jax.phenopacketgenerator.io.ProtobufPhenopacketReader
+     */
+    public void writeBinary(Path path) throws IOException {
         Phenopacket packet = encode();
-        Path mypath = getCanonicalPath(fileToWriteTo);
-        try (BufferedWriter writer = Files.newBufferedWriter(mypath)) {
-            LOGGER.trace("Writing phenopacket to '{}'", mypath.toFile().getAbsolutePath());
-            String jsonString = PRINTER.print(packet);
-            writer.write(jsonString);
-        } catch (IOException e) {
-            LOGGER.warn("Error occurred during phenopacket export", e);
-            PopUps.showException("Error", "Error occurred during phenopacket export", e.getMessage(), e);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            LOGGER.trace("Writing binary phenopacket to '{}'", path.toAbsolutePath());
+            packet.writeDelimitedTo(os);
         }
     }
 
@@ -155,7 +193,7 @@ public class PhenopacketExporter {
 
 
     private String getVcfUri() {
-        if (vcfPath.startsWith("file")){
+        if (vcfPath.startsWith("file") || REMOTE_URI.matcher(vcfPath).matches()) {
             return vcfPath;
         } else if (this.vcfPath.startsWith("//")) {
             return String.format("file:%s",this.vcfPath);
@@ -168,25 +206,34 @@ public class PhenopacketExporter {
     }
 
 
-    private Phenopacket encode() {
+    public Phenopacket encode() {
+        long start = System.nanoTime();
         Phenopacket.Builder builder = Phenopacket.newBuilder()
                 .setId(phenopacketId)
                 // proband
-                .setSubject(subject())
-                // phenotype (HPO) terms
-                .addAllPhenotypicFeatures(phenotypes.stream()
-                        .map(hcaPhenotypeToPhenopacketPhenotype())
-                        .collect(Collectors.toList()));
+                .setSubject(subject());
+        // phenotype (HPO) terms, shared by the phenopackets of the same HPO version
+        for (PgOntologyClass phenotype : phenotypes) {
+            builder.addPhenotypicFeatures(fragments.phenotypicFeature(phenotype));
+        }
         if (this.vcfPath != null) {
-            HtsFile hts = HtsFile.newBuilder()
+            HtsFile.Builder hts = HtsFile.newBuilder()
                     .setHtsFormat(HtsFile.HtsFormat.VCF)
                     .setGenomeAssembly(this.genomeAssembly)
-                    .setUri(getVcfUri())
-                    .build();
+                    .setUri(getVcfUri());
+            if (vcfChecksum != null) {
+                // version 1 of the schema has no checksum field
+                hts.setDescription(vcfChecksum);
+            }
+            if (vcfSampleId != null) {
+                hts.putIndividualToSampleIdentifiers(probandId, vcfSampleId);
+            }
             builder.addHtsFiles(hts);
         }
         builder.setMetaData(metadata());
-        return builder.build();
+        Phenopacket phenopacket = builder.build();
+        PgMetrics.recordSince(ENCODE_TIMER, start);
+        return phenopacket;
     }
 
 
@@ -195,22 +242,8 @@ public class PhenopacketExporter {
         Timestamp timestamp = Timestamp.newBuilder().setSeconds(millis / 1000)
                 .setNanos((int) ((millis % 1000) * 1000000)).build();
         return MetaData.newBuilder()
-                .addResources(Resource.newBuilder()
-                        .setId("hp")
-                        .setName("human phenotype ontology")
-                        .setNamespacePrefix("HP")
-                        .setIriPrefix("http://purl.obolibrary.org/obo/HP_")
-                        .setUrl("http://purl.obolibrary.org/obo/hp.owl")
-                        .setVersion(this.hpoVersion)
-                        .build())
-                .addResources(Resource.newBuilder()
-                        .setId("eco")
-                        .setName("Evidence and Conclusion Ontology")
-                        .setNamespacePrefix("ECO")
-                        .setIriPrefix("http://purl.obolibrary.org/obo/ECO_")
-                        .setUrl("http://purl.obolibrary.org/obo/eco.owl")
-                        .setVersion(this.ecoVersion)
-                        .build())
+                .addResources(fragments.getHpoResource())
+                .addResources(fragments.getEcoResource())
                 .setCreatedBy(this.biocuratorId)
                 .setCreated(timestamp)
                 .setPhenopacketSchemaVersion(this.phenopacketVersion)
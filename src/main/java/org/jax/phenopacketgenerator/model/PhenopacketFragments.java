@@ -0,0 +1,139 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.phenopackets.schema.v1.core.*;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable parts of the phenopackets encoded by {@link PhenopacketExporter} that are the same for every case curated
+ * with the same HPO and ECO versions: the {@link Resource}s of the metadata and the {@link PhenotypicFeature} of each
+ * term, including its {@link OntologyClass} and {@link Evidence}. Protobuf messages are immutable, so the fragments
+ * are shared by all phenopackets and an export only builds the parts that belong to the case.
+ * <p>
+ * The fragments of the latest versions are kept, a change of either version starts with an empty cache.
+ * Instances are thread-safe.
+ */
+final class PhenopacketFragments {
+
+    // source https://bioportal.bioontology.org/ontologies/ECO/?p=classes&conceptid=http%3A%2F%2Fpurl.obolibrary.org%2Fobo%2FECO_0000033&jump_to_nav=true
+    static final OntologyClass TRACEABLE_AUTHOR_STATEMENT = ontologyClass("ECO:0000033", "author statement supported by traceable reference");
+    static final OntologyClass AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION =
+            ontologyClass("ECO:0000302", "author statement used in manual assertion");
+
+    /**
+     * By default, we use the evidence code AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION
+     * for all assertions, because we do not know anything specific about the evidence
+     * that the biocurator has to make the assertion.
+     */
+    static final Evidence EVIDENCE = Evidence.newBuilder()
+            .setEvidenceCode(AUTHOR_STATEMENT_USED_IN_MANUAL_ASSERTION).build();
+
+    private static volatile PhenopacketFragments latest;
+
+    private final String hpoVersion;
+
+    private final String ecoVersion;
+
+    private final Resource hpoResource;
+
+    private final Resource ecoResource;
+
+    /**
+     * Observed and excluded feature of each term, built on first use. HPO has less than 20k terms, so the map stays
+     * small enough to be kept without eviction.
+     */
+    private final ConcurrentMap<String, TermFeatures> features = new ConcurrentHashMap<>();
+
+    private PhenopacketFragments(String hpoVersion, String ecoVersion) {
+        this.hpoVersion = hpoVersion;
+        this.ecoVersion = ecoVersion;
+        this.hpoResource = Resource.newBuilder()
+                .setId("hp")
+                .setName("human phenotype ontology")
+                .setNamespacePrefix("HP")
+                .setIriPrefix("http://purl.obolibrary.org/obo/HP_")
+                .setUrl("http://purl.obolibrary.org/obo/hp.owl")
+                .setVersion(hpoVersion)
+                .build();
+        this.ecoResource = Resource.newBuilder()
+                .setId("eco")
+                .setName("Evidence and Conclusion Ontology")
+                .setNamespacePrefix("ECO")
+                .setIriPrefix("http://purl.obolibrary.org/obo/ECO_")
+                .setUrl("http://purl.obolibrary.org/obo/eco.owl")
+                .setVersion(ecoVersion)
+                .build();
+    }
+
+    /**
+     * @return fragments of the given versions, shared with other exporters of the same versions
+     */
+    static PhenopacketFragments of(String hpoVersion, String ecoVersion) {
+        PhenopacketFragments fragments = latest;
+        if (fragments == null
+                || !Objects.equals(fragments.hpoVersion, hpoVersion)
+                || !Objects.equals(fragments.ecoVersion, ecoVersion)) {
+            // concurrent callers may each create an instance, the last one wins, which is harmless
+            fragments = new PhenopacketFragments(hpoVersion, ecoVersion);
+            latest = fragments;
+        }
+        return fragments;
+    }
+
+    /**
+     * Create a phenopackets OntologyClass object
+     * @param id, e.g., HP:0001234
+     * @param label e.g., Abnormal X morphology
+     * @return corresponding OntologyClass
+     */
+    static OntologyClass ontologyClass(String id, String label) {
+        return OntologyClass.newBuilder()
+                .setId(id)
+                .setLabel(label)
+                .build();
+    }
+
+    Resource getHpoResource() {
+        return hpoResource;
+    }
+
+    Resource getEcoResource() {
+        return ecoResource;
+    }
+
+    /**
+     * @return feature of the term with {@link #EVIDENCE}, negated if the term is not observed
+     */
+    PhenotypicFeature phenotypicFeature(PgOntologyClass term) {
+        TermFeatures termFeatures = features.get(term.getId());
+        if (termFeatures == null || !termFeatures.label.equals(term.getLabel())) {
+            // the label is part of the cache key as the model may hold a label of another HPO version
+            termFeatures = new TermFeatures(term.getId(), term.getLabel());
+            features.put(term.getId(), termFeatures);
+        }
+        return term.getNotObserved() ? termFeatures.excluded : termFeatures.observed;
+    }
+
+    private static final class TermFeatures {
+
+        private final String label;
+
+        private final PhenotypicFeature observed;
+
+        private final PhenotypicFeature excluded;
+
+        private TermFeatures(String id, String label) {
+            this.label = label;
+            OntologyClass type = ontologyClass(id, label);
+            this.observed = PhenotypicFeature.newBuilder()
+                    .setType(type)
+                    .addEvidence(EVIDENCE)
+                    .build();
+            this.excluded = observed.toBuilder()
+                    .setNegated(true)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.jax.phenopacketgenerator.io.PhenopacketJson;
+import org.jax.phenopacketgenerator.io.ProtobufPhenopacketReader;
+import org.jax.phenopacketgenerator.vcf.ChunkedDigest;
+import org.phenopackets.schema.v1.Phenopacket;
+import org.phenopackets.schema.v1.core.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The reverse of {@link PhenopacketExporter}: reads a phenopacket written by this or another tool back into a
+ * {@link PgModel}, so that the phenopacket can be edited, QCed and exported again.
+ * <p>
+ * Only the data the generator edits are imported: the subject, phenotypic features, the first VCF file and the
+ * metadata. Other parts of the phenopacket, e.g. diseases or genes, are not part of the model and are dropped.
+ */
+public final class PhenopacketImporter {
+
+    private static final String EMPTY_STRING = "";
+
+    private static final String CHECKSUM_PREFIX = ChunkedDigest.NAME + ":";
+
+    /**
+     * URIs written by {@link PhenopacketExporter} for relative and absolute paths, e.g. <code>file://data/a.vcf</code>.
+     */
+    private static final Pattern FILE_URI_PREFIX = Pattern.compile("^file:/*");
+
+    private static final Pattern WINDOWS_DRIVE = Pattern.compile("^[A-Za-z]:.*");
+
+    private PhenopacketImporter() {
+        // private no-op
+    }
+
+    /**
+     * Read a phenopacket from a <code>.json</code>, <code>.json.gz</code> or <code>.pb</code> file. The binary format
+     * is the length-delimited message written by {@link PhenopacketExporter#writeBinary(Path)}.
+     *
+     * @return model of the phenopacket, not QCed yet
+     * @throws IOException if reading or parsing fails
+     */
+    public static PgModel read(Path path) throws IOException {
+        return toModel(readPhenopacket(path));
+    }
+
+    /**
+     * @see #read(Path)
+     */
+    public static Phenopacket readPhenopacket(Path path) throws IOException {
+        if (!isProtobuf(path)) {
+            return PhenopacketJson.read(path);
+        }
+        try (ProtobufPhenopacketReader reader = new ProtobufPhenopacketReader(path)) {
+            Phenopacket phenopacket = reader.next();
+            if (phenopacket == null) {
+                throw new IOException("No phenopacket in " + path);
+            }
+            return phenopacket;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the file name ends with an extension written by the exporter or the batch mode
+     */
+    public static boolean isPhenopacketFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".json") || name.endsWith(".json.gz") || isProtobuf(path);
+    }
+
+    private static boolean isProtobuf(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".pb") || name.endsWith(".pb.gz");
+    }
+
+    /**
+     * @return model with the data of the <code>phenopacket</code>, not QCed yet
+     */
+    public static PgModel toModel(Phenopacket phenopacket) {
+        List<PgOntologyClass> phenotypes = new ArrayList<>(phenopacket.getPhenotypicFeaturesCount());
+        for (PhenotypicFeature feature : phenopacket.getPhenotypicFeaturesList()) {
+            phenotypes.add(PgOntologyClass.newBuilder()
+                    .setId(feature.getType().getId())
+                    .setLabel(feature.getType().getLabel())
+                    .setNotObserved(feature.getNegated())
+                    .build());
+        }
+        PgModel model = new PgModel(phenotypes);
+        model.setPhenopacketId(phenopacket.getId());
+        Individual subject = phenopacket.getSubject();
+        model.setProbandId(subject.getId());
+        if (subject.hasAgeAtCollection()) {
+            model.setIsoAge(subject.getAgeAtCollection().getAge());
+        }
+        model.setSex(toSex(subject.getSex()));
+        for (HtsFile hts : phenopacket.getHtsFilesList()) {
+            if (hts.getHtsFormat() == HtsFile.HtsFormat.VCF) {
+                setVcf(model, hts, subject.getId());
+                // the model has a single VCF file
+                break;
+            }
+        }
+        MetaData metaData = phenopacket.getMetaData();
+        model.setBiocurator(metaData.getCreatedBy());
+        model.setPhenopacketVersion(metaData.getPhenopacketSchemaVersion());
+        for (Resource resource : metaData.getResourcesList()) {
+            if (resource.getId().equals("hp")) {
+                model.setHpoVersion(resource.getVersion());
+            } else if (resource.getId().equals("eco")) {
+                model.setEcoVersion(resource.getVersion());
+            }
+        }
+        return model;
+    }
+
+    private static String toSex(Sex sex) {
+        switch (sex) {
+            case MALE:
+                return "MALE";
+            case FEMALE:
+                return "FEMALE";
+            default:
+                // the exporter writes male and female only
+                return EMPTY_STRING;
+        }
+    }
+
+    private static void setVcf(PgModel model, HtsFile hts, String probandId) {
+        model.setVcfPath(toVcfPath(hts.getUri()));
+        model.setGenomeAssembly(hts.getGenomeAssembly());
+        if (hts.getDescription().startsWith(CHECKSUM_PREFIX)) {
+            model.setVcfChecksum(hts.getDescription());
+        }
+        String sampleId = hts.getIndividualToSampleIdentifiersMap().get(probandId);
+        if (sampleId != null) {
+            model.setVcfSampleId(sampleId);
+        }
+    }
+
+    /**
+     * @return local path of a <code>file:</code> URI, other URIs are returned unchanged
+     */
+    static String toVcfPath(String uri) {
+        if (!uri.startsWith("file:")) {
+            return uri;
+        }
+        String path = FILE_URI_PREFIX.matcher(uri).replaceFirst(EMPTY_STRING);
+        return WINDOWS_DRIVE.matcher(path).matches() ? path : "/" + path;
+    }
+}
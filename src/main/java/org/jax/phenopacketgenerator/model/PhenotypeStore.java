@@ -0,0 +1,101 @@
+package org.jax.phenopacketgenerator.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.*;
+
+/**
+ * Phenotypes of a {@link PgModel} keyed by term ID.
+ * <p>
+ * Adding, removing and looking up a term is O(1). A term added both as observed and as excluded is a conflict; the
+ * first occurrence is kept and the ID is remembered, so that {@link PgModel#qc()} can report it. The sorted
+ * {@link #snapshot()} is built lazily and reused until the store changes, so repeated reads do not copy.
+ * <p>
+ * Instances are not thread-safe.
+ */
+class PhenotypeStore {
+
+    /**
+     * Order of the snapshot, by label for a stable and readable output. The ID breaks ties between distinct terms
+     * with the same label.
+     */
+    private static final Comparator<PgOntologyClass> SNAPSHOT_ORDER = Comparator
+            .comparing(PgOntologyClass::getLabel, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(PgOntologyClass::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<String, PgOntologyClass> phenotypes;
+
+    private final Set<String> conflictingIds = new HashSet<>();
+
+    private ImmutableList<PgOntologyClass> snapshot;
+
+    PhenotypeStore(Collection<PgOntologyClass> phenotypes) {
+        this.phenotypes = new HashMap<>(Math.max(16, phenotypes.size() * 2));
+        for (PgOntologyClass phenotype : phenotypes) {
+            add(phenotype);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the store changed
+     */
+    boolean add(PgOntologyClass phenotype) {
+        PgOntologyClass previous = phenotypes.putIfAbsent(phenotype.getId(), phenotype);
+        if (previous == null) {
+            snapshot = null;
+            return true;
+        }
+        if (previous.getNotObserved() != phenotype.getNotObserved()) {
+            conflictingIds.add(phenotype.getId());
+        }
+        return false;
+    }
+
+    /**
+     * @return the removed phenotype or <code>null</code> if there is no phenotype with the ID
+     */
+    PgOntologyClass remove(String id) {
+        PgOntologyClass removed = phenotypes.remove(id);
+        if (removed != null) {
+            conflictingIds.remove(id);
+            snapshot = null;
+        }
+        return removed;
+    }
+
+    PgOntologyClass get(String id) {
+        return phenotypes.get(id);
+    }
+
+    boolean isEmpty() {
+        return phenotypes.isEmpty();
+    }
+
+    int size() {
+        return phenotypes.size();
+    }
+
+    /**
+     * @return IDs of terms that were added both as observed and as excluded
+     */
+    Set<String> getConflictingIds() {
+        return ImmutableSet.copyOf(conflictingIds);
+    }
+
+    boolean hasConflicts() {
+        return !conflictingIds.isEmpty();
+    }
+
+    /**
+     * @return immutable list of phenotypes sorted by label, the same instance is returned until the store changes
+     */
+    ImmutableList<PgOntologyClass> snapshot() {
+        if (snapshot == null) {
+            PgOntologyClass[] sorted = phenotypes.values().toArray(new PgOntologyClass[0]);
+            Arrays.sort(sorted, SNAPSHOT_ORDER);
+            snapshot = ImmutableList.copyOf(sorted);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,145 @@
+package org.jax.phenopacketgenerator.model;
+
+import java.util.Objects;
+
+/**
+ * A single problem found by {@link ModelValidator}. The {@link Type} identifies the kind of problem for machine
+ * processing of validation reports, while the message is meant for the biocurator.
+ * <p>
+ * Instances are immutable.
+ */
+public final class ValidationIssue {
+
+    private final Type type;
+
+    private final String field;
+
+    private final String message;
+
+    private ValidationIssue(Type type, String field, String message) {
+        this.type = type;
+        this.field = field;
+        this.message = message;
+    }
+
+    /**
+     * @param field   the part of the model that has the problem, e.g. <code>phenopacket_id</code> or an HPO term ID
+     * @param message description of the problem
+     */
+    public static ValidationIssue of(Type type, String field, String message) {
+        return new ValidationIssue(Objects.requireNonNull(type), Objects.requireNonNull(field),
+                Objects.requireNonNull(message));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Severity getSeverity() {
+        return type.getSeverity();
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ValidationIssue that = (ValidationIssue) o;
+        return type == that.type && field.equals(that.field) && message.equals(that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, field, message);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %s", type.getSeverity(), type, message);
+    }
+
+    public enum Severity {
+        /**
+         * The phenopacket must not be exported.
+         */
+        ERROR,
+        /**
+         * The phenopacket can be exported, but it may not be what the biocurator intended.
+         */
+        WARNING
+    }
+
+    public enum Type {
+        MISSING_PHENOPACKET_ID(Severity.ERROR),
+        MISSING_PROBAND_ID(Severity.ERROR),
+        MISSING_BIOCURATOR_ID(Severity.ERROR),
+        /**
+         * An ID starts or ends with whitespace.
+         */
+        UNTRIMMED_ID(Severity.WARNING),
+        /**
+         * The same phenopacket ID is used by another case of the batch.
+         */
+        DUPLICATE_PHENOPACKET_ID(Severity.ERROR),
+        INVALID_AGE(Severity.ERROR),
+        /**
+         * Sex other than <code>MALE</code> or <code>FEMALE</code>, the phenopacket is exported without sex.
+         */
+        UNKNOWN_SEX(Severity.WARNING),
+        NO_PHENOTYPES(Severity.ERROR),
+        MALFORMED_TERM_ID(Severity.ERROR),
+        UNKNOWN_TERM(Severity.ERROR),
+        OBSOLETE_TERM(Severity.ERROR),
+        /**
+         * The term is referenced by an alternative ID, the primary ID should be used.
+         */
+        ALTERNATIVE_TERM_ID(Severity.WARNING),
+        /**
+         * The label differs from the label of the term in the ontology.
+         */
+        LABEL_MISMATCH(Severity.WARNING),
+        /**
+         * A term is both observed and excluded, or it is excluded while its descendant is observed.
+         */
+        CONFLICTING_PHENOTYPES(Severity.ERROR),
+        MISSING_ASSEMBLY(Severity.ERROR),
+        UNKNOWN_ASSEMBLY(Severity.WARNING),
+        /**
+         * The file name does not look like a VCF file.
+         */
+        UNEXPECTED_VCF_NAME(Severity.WARNING),
+        /**
+         * The proband is not one of the samples of the VCF file.
+         */
+        PROBAND_NOT_IN_VCF(Severity.WARNING),
+        /**
+         * The sample of the case is not a sample of the VCF file shared by all cases.
+         */
+        SAMPLE_NOT_IN_VCF(Severity.ERROR),
+        /**
+         * The case names a VCF file other than the VCF file shared by all cases.
+         */
+        CONFLICTING_VCF(Severity.ERROR),
+        /**
+         * The genome assembly differs from the assembly indicated by the header of the VCF file.
+         */
+        ASSEMBLY_MISMATCH(Severity.WARNING);
+
+        private final Severity severity;
+
+        Type(Severity severity) {
+            this.severity = severity;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Precomputed transitive closure of the <em>is a</em> relation of an ontology.
+ * <p>
+ * Terms are identified by their index in the {@link CompactOntology} and the indices of all (strict) ancestors of a
+ * term are stored as a sorted <code>int[]</code>. This is far smaller than a dense bit matrix (a few ancestors per term instead of one bit for each
+ * pair of terms), and allows to build a {@link BitSet} of all ancestors of a set of terms by a single pass over their
+ * arrays. Subsumption is then a constant-time {@link BitSet#get(int)}.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public class AncestorClosure {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AncestorClosure.class);
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Marks terms whose ancestors are being computed, compared by identity.
+     */
+    private static final int[] IN_PROGRESS = new int[0];
+
+    /**
+     * Term indices are indices of this ontology.
+     */
+    private final CompactOntology ontology;
+
+    private final int[][] ancestors;
+
+    private AncestorClosure(CompactOntology ontology, int[][] ancestors) {
+        this.ontology = ontology;
+        this.ancestors = ancestors;
+    }
+
+    /**
+     * @throws IOException if the <em>is a</em> relation of the ontology has a cycle
+     */
+    public static AncestorClosure of(CompactOntology ontology) throws IOException {
+        long start = System.nanoTime();
+        int[][] parents = new int[ontology.size()][];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = ontology.getParents(i);
+        }
+        int[][] ancestors = new int[parents.length][];
+        for (int i = 0; i < parents.length; i++) {
+            if (ancestors[i] == null) {
+                computeAncestors(i, ontology, parents, ancestors);
+            }
+        }
+        LOGGER.debug("Computed ancestor closure of {} terms in {} ms", parents.length,
+                (System.nanoTime() - start) / 1_000_000);
+        return new AncestorClosure(ontology, ancestors);
+    }
+
+    /**
+     * Compute ancestors of the term and of all its ancestors that are not computed yet, ancestors of a term are merged
+     * from ancestors of its parents. The terms are visited depth-first with an explicit stack, so that the depth of the
+     * ontology is not bounded by the depth of the call stack. A term on the stack is marked as in progress, reaching it
+     * again from one of its ancestors means that the ontology has a cycle.
+     */
+    private static void computeAncestors(int term, CompactOntology ontology, int[][] parents, int[][] ancestors)
+            throws IOException {
+        int[] stack = new int[16];
+        // index of the next parent to visit of each term on the stack
+        int[] next = new int[16];
+        int depth = 0;
+        stack[0] = term;
+        ancestors[term] = IN_PROGRESS;
+        while (depth >= 0) {
+            int current = stack[depth];
+            int[] p = parents[current];
+            if (next[depth] < p.length) {
+                int parent = p[next[depth]++];
+                if (ancestors[parent] == IN_PROGRESS) {
+                    throw new IOException(String.format("Cycle in the ontology, %s is its own ancestor",
+                            ontology.getTermId(parent)));
+                }
+                if (ancestors[parent] == null) {
+                    if (++depth == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * depth);
+                        next = Arrays.copyOf(next, 2 * depth);
+                    }
+                    stack[depth] = parent;
+                    next[depth] = 0;
+                    ancestors[parent] = IN_PROGRESS;
+                }
+                continue;
+            }
+            ancestors[current] = merge(p, ancestors);
+            depth--;
+        }
+    }
+
+    /**
+     * @return sorted parents and their ancestors, which are computed already
+     */
+    private static int[] merge(int[] p, int[][] ancestors) {
+        if (p.length == 0) {
+            return EMPTY;
+        }
+        if (p.length == 1) {
+            // the most common case, a single parent
+            int[] parentAncestors = ancestors[p[0]];
+            int[] result = Arrays.copyOf(parentAncestors, parentAncestors.length + 1);
+            result[parentAncestors.length] = p[0];
+            Arrays.sort(result);
+            return result;
+        }
+        BitSet union = new BitSet();
+        for (int parent : p) {
+            union.set(parent);
+            for (int a : ancestors[parent]) {
+                union.set(a);
+            }
+        }
+        return union.stream().toArray();
+    }
+
+    /**
+     * @return number of terms in the closure, the upper bound of term indices
+     */
+    public int size() {
+        return ancestors.length;
+    }
+
+    /**
+     * @param termId primary or alternative term ID, e.g. <code>HP:0001744</code>
+     * @return index of the term or <code>-1</code> if the term is not part of the ontology
+     */
+    public int indexOf(String termId) {
+        return ontology.indexOf(termId);
+    }
+
+    public String getTermId(int index) {
+        return ontology.getTermId(index);
+    }
+
+    /**
+     * @return sorted indices of strict ancestors of the term, the array must not be modified
+     */
+    public int[] getAncestors(int index) {
+        return ancestors[index];
+    }
+
+    /**
+     * @return <code>true</code> if <code>ancestor</code> is a strict ancestor of <code>descendant</code>
+     */
+    public boolean isAncestor(int ancestor, int descendant) {
+        return Arrays.binarySearch(ancestors[descendant], ancestor) >= 0;
+    }
+
+    /**
+     * Add strict ancestors of the term into the <code>bitSet</code>.
+     */
+    public void addAncestors(int index, BitSet bitSet) {
+        for (int a : ancestors[index]) {
+            bitSet.set(a);
+        }
+    }
+}
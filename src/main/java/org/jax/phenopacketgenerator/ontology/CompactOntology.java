@@ -0,0 +1,721 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import io.micrometer.core.instrument.Timer;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only projection of an ontology with just the data Phenopacket Generator needs: term IDs, labels, synonyms,
+ * parents, alternative and obsolete IDs with their replacements and the version.
+ * <p>
+ * Each non-obsolete term has a dense index. Term IDs are stored as the numeric local part (<code>HP:0001744</code> is
+ * <code>1744</code>) in an <code>int[]</code> that is sorted for each prefix, so that a lookup is a binary search and the
+ * index order is the ID order. Labels and synonyms of all terms are packed into a single UTF-8 byte array addressed by
+ * offsets, and parents are stored as one <code>int[]</code> of term indices with per-term offsets. This takes a small
+ * fraction of the heap used by phenol's {@link Ontology} with its term, ID, synonym and graph objects. The arrays are
+ * accessed through {@link IntBuffer}s and a {@link ByteBuffer}, so that the same data can also be memory-mapped from an
+ * {@link OntologyImage} and shared by several processes without a copy on the heap.
+ * <p>
+ * Alternative IDs resolve to the index of their primary term. Obsolete terms are not indexed, their IDs are only
+ * remembered so that they can be reported as obsolete, together with the term that replaces them. Only IDs in the
+ * <code>PREFIX:digits</code> form are supported, which is the case for all HPO terms. Other IDs, e.g. the artificial
+ * <code>owl:Thing</code> root phenol adds to an ontology with several roots, are left out.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class CompactOntology {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactOntology.class);
+
+    private static final Timer READ_TIMER = PgMetrics.timer("pg.ontology.read", "Reading of OBO file into compact ontology");
+
+    /**
+     * The longest local ID that fits into an <code>int</code>.
+     */
+    private static final int MAX_ID_DIGITS = 9;
+
+    /**
+     * Number of <code>int</code> sections, see {@link #intSections()}.
+     */
+    static final int N_INT_SECTIONS = 12;
+
+    /**
+     * Key of the version in phenol's metadata and tag of the version in the OBO header.
+     */
+    static final String DATA_VERSION = "data-version";
+
+    /**
+     * Phenol turns <code>data-version: hp/releases/2019-11-08</code> into
+     * <code>http://purl.obolibrary.org/obo/hp/hp/releases/2019-11-08/hp.owl</code>.
+     */
+    private static final Pattern VERSION_IRI = Pattern.compile("^http://purl\\.obolibrary\\.org/obo/([^/]+)/(.+)/\\1\\.owl$");
+
+    /**
+     * Value of the <code>data-version</code> header of the OBO file, e.g. <code>hp/releases/2019-11-08</code>,
+     * <code>null</code> if absent.
+     */
+    private final String version;
+
+    /**
+     * Sorted prefixes of all IDs, e.g. <code>HP</code>.
+     */
+    private final String[] prefixes;
+
+    /**
+     * Number of digits of local IDs for each prefix, shorter IDs are padded with zeros.
+     */
+    private final int[] idWidths;
+
+    private final int root;
+
+    private final IdTable termIds;
+
+    private final ByteBuffer strings;
+
+    /**
+     * String <code>s</code> occupies <code>strings[stringOffsets[s]]</code> up to <code>strings[stringOffsets[s + 1]]</code>.
+     */
+    private final IntBuffer stringOffsets;
+
+    /**
+     * String <code>firstStrings[t]</code> is the label of term <code>t</code>, the following strings up to
+     * <code>firstStrings[t + 1]</code> are its synonyms.
+     */
+    private final IntBuffer firstStrings;
+
+    /**
+     * Parents of term <code>t</code> are <code>parents[parentOffsets[t]]</code> up to
+     * <code>parents[parentOffsets[t + 1]]</code>.
+     */
+    private final IntBuffer parentOffsets;
+
+    private final IntBuffer parents;
+
+    private final IdTable altIds;
+
+    /**
+     * Index of the primary term for each alternative ID, in the order of {@link #altIds}.
+     */
+    private final IntBuffer altTargets;
+
+    private final IdTable obsoleteIds;
+
+    /**
+     * Index of the replacing term (<code>replaced_by</code>) or <code>-1</code> for each obsolete ID, in the order of
+     * {@link #obsoleteIds}.
+     */
+    private final IntBuffer obsoleteReplacements;
+
+    /**
+     * The data is held in buffers, which either wrap arrays on the heap or are views of a memory-mapped
+     * {@link OntologyImage}. Lookups read the buffers directly in both cases.
+     *
+     * @param intSections <code>int</code> sections in the order of {@link #intSections()}
+     * @param strings     packed labels and synonyms
+     */
+    CompactOntology(String version, String[] prefixes, int[] idWidths, int root, IntBuffer[] intSections,
+                    ByteBuffer strings) {
+        this.version = version;
+        this.prefixes = prefixes;
+        this.idWidths = idWidths;
+        this.root = root;
+        this.termIds = new IdTable(intSections[0], intSections[1]);
+        this.stringOffsets = intSections[2];
+        this.firstStrings = intSections[3];
+        this.parentOffsets = intSections[4];
+        this.parents = intSections[5];
+        this.altIds = new IdTable(intSections[6], intSections[7]);
+        this.altTargets = intSections[8];
+        this.obsoleteIds = new IdTable(intSections[9], intSections[10]);
+        this.obsoleteReplacements = intSections[11];
+        this.strings = strings;
+    }
+
+    /**
+     * Project the ontology loaded by phenol. The projection does not reference the <code>ontology</code>, which can be
+     * garbage collected afterwards.
+     */
+    public static CompactOntology of(Ontology ontology) {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        builder.setVersion(dataVersion(ontology.getMetaInfo().get(DATA_VERSION)));
+        builder.setRootId(ontology.getRootTermId().getValue());
+        DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+        Map<TermId, Term> termMap = ontology.getTermMap();
+        for (TermId termId : ontology.getNonObsoleteTermIds()) {
+            Term term = termMap.get(termId);
+            if (term == null) {
+                continue;
+            }
+            List<String> synonyms = new ArrayList<>();
+            if (term.getSynonyms() != null) {
+                for (TermSynonym synonym : term.getSynonyms()) {
+                    synonyms.add(synonym.getValue());
+                }
+            }
+            List<String> parentIds = new ArrayList<>();
+            if (graph.containsVertex(termId)) {
+                // edges lead from a term to its parent
+                for (IdLabeledEdge edge : graph.outgoingEdgesOf(termId)) {
+                    parentIds.add(graph.getEdgeTarget(edge).getValue());
+                }
+            }
+            builder.addTerm(termId.getValue(), term.getName(), synonyms, parentIds);
+        }
+        // alternative IDs are keys of the term map that lead to a term with a different ID
+        for (Map.Entry<TermId, Term> entry : termMap.entrySet()) {
+            if (!entry.getKey().equals(entry.getValue().getId())) {
+                builder.addAltId(entry.getKey().getValue(), entry.getValue().getId().getValue());
+            }
+        }
+        for (TermId termId : ontology.getObsoleteTermIds()) {
+            // phenol does not keep obsolete terms, hence the replacements are unknown
+            builder.addObsoleteId(termId.getValue(), null);
+        }
+        CompactOntology compact = builder.build();
+        LOGGER.debug("Projected {} terms into {} kB in {} ms", compact.size(), compact.estimateSize() / 1024,
+                (System.nanoTime() - start) / 1_000_000);
+        return compact;
+    }
+
+    /**
+     * @return the version as written in the OBO header, so that both ways of loading the ontology report the same
+     */
+    static String dataVersion(String phenolVersion) {
+        if (phenolVersion == null) {
+            return null;
+        }
+        Matcher matcher = VERSION_IRI.matcher(phenolVersion);
+        return matcher.matches() ? matcher.group(2) : phenolVersion;
+    }
+
+    /**
+     * Read the projection directly from an OBO file, without building phenol's object graph first. Only the
+     * <code>data-version</code> header and <code>[Term]</code> stanzas are read, and only the <code>id</code>, <code>name</code>, <code>synonym</code>,
+     * <code>is_a</code>, <code>alt_id</code>, <code>is_obsolete</code> and <code>replaced_by</code> tags. The file is parsed in parallel in the
+     * common {@link ForkJoinPool}.
+     *
+     * @param oboPath path to the OBO file
+     * @return the projection
+     * @throws IOException if the file cannot be read or if IDs with the same prefix have different widths
+     */
+    public static CompactOntology read(Path oboPath) throws IOException {
+        return read(oboPath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Read the projection from an OBO file, see {@link #read(Path)}. The chunks of the file are parsed in the
+     * <code>pool</code>.
+     */
+    public static CompactOntology read(Path oboPath, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        // the file is not memory-mapped, a mapping would keep it locked on Windows until garbage collected, and the
+        // user may replace the file while the app runs
+        ByteBuffer obo = ByteBuffer.wrap(Files.readAllBytes(oboPath));
+        Builder builder = new Builder();
+        OboParser.parse(obo, pool, builder);
+        CompactOntology compact;
+        try {
+            compact = builder.build();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Error reading `%s`: %s", oboPath, e.getMessage()), e);
+        }
+        PgMetrics.recordSince(READ_TIMER, start);
+        LOGGER.debug("Read {} terms into {} kB from `{}` using {} threads in {} ms", compact.size(),
+                compact.estimateSize() / 1024, oboPath, pool.getParallelism(), (System.nanoTime() - start) / 1_000_000);
+        return compact;
+    }
+
+    /**
+     * @return number of non-obsolete terms, the upper bound of term indices
+     */
+    public int size() {
+        return termIds.size();
+    }
+
+    /**
+     * @param termId primary or alternative term ID, e.g. <code>HP:0001744</code>
+     * @return index of the (primary) term or <code>-1</code> if the ID is unknown or obsolete
+     */
+    public int indexOf(String termId) {
+        int prefix = prefixOf(termId);
+        if (prefix < 0) {
+            return -1;
+        }
+        int local = localIdOf(termId, prefix);
+        if (local < 0) {
+            return -1;
+        }
+        int index = termIds.find(prefix, local);
+        if (index >= 0) {
+            return index;
+        }
+        int alt = altIds.find(prefix, local);
+        return alt < 0 ? -1 : altTargets.get(alt);
+    }
+
+    /**
+     * @return <code>true</code> if the ID belongs to an obsolete term
+     */
+    public boolean isObsolete(String termId) {
+        int prefix = prefixOf(termId);
+        int local = prefix < 0 ? -1 : localIdOf(termId, prefix);
+        return local >= 0 && obsoleteIds.find(prefix, local) >= 0;
+    }
+
+    /**
+     * @return index of the term that replaces the obsolete term or <code>-1</code> if the ID is not obsolete or the
+     * replacement is unknown
+     */
+    public int getReplacement(String termId) {
+        int prefix = prefixOf(termId);
+        int local = prefix < 0 ? -1 : localIdOf(termId, prefix);
+        int obsolete = local < 0 ? -1 : obsoleteIds.find(prefix, local);
+        return obsolete < 0 ? -1 : obsoleteReplacements.get(obsolete);
+    }
+
+    /**
+     * @return primary ID of the term, e.g. <code>HP:0001744</code>
+     */
+    public String getTermId(int index) {
+        int prefix = termIds.prefixAt(index);
+        String local = Integer.toString(termIds.localIds.get(index));
+        StringBuilder builder = new StringBuilder(prefixes[prefix].length() + 1 + idWidths[prefix])
+                .append(prefixes[prefix]).append(':');
+        for (int i = local.length(); i < idWidths[prefix]; i++) {
+            builder.append('0');
+        }
+        return builder.append(local).toString();
+    }
+
+    public String getLabel(int index) {
+        return string(firstStrings.get(index));
+    }
+
+    /**
+     * @return synonyms of the term, sorted
+     */
+    public List<String> getSynonyms(int index) {
+        int from = firstStrings.get(index) + 1, to = firstStrings.get(index + 1);
+        if (from == to) {
+            return Collections.emptyList();
+        }
+        List<String> synonyms = new ArrayList<>(to - from);
+        for (int s = from; s < to; s++) {
+            synonyms.add(string(s));
+        }
+        return synonyms;
+    }
+
+    /**
+     * @return indices of direct parents of the term, sorted
+     */
+    public int[] getParents(int index) {
+        int from = parentOffsets.get(index);
+        int[] result = new int[parentOffsets.get(index + 1) - from];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = parents.get(from + i);
+        }
+        return result;
+    }
+
+    /**
+     * @return index of the root term or <code>-1</code> if the ontology does not have a single root
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    public Optional<String> getVersion() {
+        return Optional.ofNullable(version);
+    }
+
+    /**
+     * @return approximate number of bytes taken by the data of the projection, either on the heap or in a mapped file
+     */
+    public long estimateSize() {
+        long size = strings.capacity();
+        for (IntBuffer section : intSections()) {
+            size += 4L * section.capacity();
+        }
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the data is not on the heap but in a memory-mapped {@link OntologyImage}
+     */
+    public boolean isMapped() {
+        return strings.isDirect();
+    }
+
+    String[] getPrefixes() {
+        return prefixes;
+    }
+
+    int[] getIdWidths() {
+        return idWidths;
+    }
+
+    /**
+     * @return views of the <code>int</code> sections, in the order expected by the constructor
+     */
+    IntBuffer[] intSections() {
+        return new IntBuffer[]{termIds.prefixStarts, termIds.localIds, stringOffsets, firstStrings, parentOffsets,
+                parents, altIds.prefixStarts, altIds.localIds, altTargets, obsoleteIds.prefixStarts,
+                obsoleteIds.localIds, obsoleteReplacements};
+    }
+
+    ByteBuffer stringSection() {
+        return strings.duplicate();
+    }
+
+    private String string(int s) {
+        int from = stringOffsets.get(s);
+        byte[] bytes = new byte[stringOffsets.get(s + 1) - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = strings.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int prefixOf(String termId) {
+        int colon = termId.indexOf(':');
+        if (colon < 0) {
+            return -1;
+        }
+        for (int p = 0; p < prefixes.length; p++) {
+            if (prefixes[p].length() == colon && termId.startsWith(prefixes[p])) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return local part of the ID or <code>-1</code> if it is not a number of the expected width
+     */
+    private int localIdOf(String termId, int prefix) {
+        int begin = prefixes[prefix].length() + 1;
+        if (termId.length() - begin != idWidths[prefix]) {
+            return -1;
+        }
+        int local = 0;
+        for (int i = begin; i < termId.length(); i++) {
+            char c = termId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            local = local * 10 + (c - '0');
+        }
+        return local;
+    }
+
+    /**
+     * Sorted set of term IDs. IDs of prefix <code>p</code> occupy indices <code>prefixStarts[p]</code> up to
+     * <code>prefixStarts[p + 1]</code> and are sorted by their local part.
+     */
+    private static final class IdTable {
+
+        private final IntBuffer prefixStarts;
+
+        private final IntBuffer localIds;
+
+        private IdTable(IntBuffer prefixStarts, IntBuffer localIds) {
+            this.prefixStarts = prefixStarts;
+            this.localIds = localIds;
+        }
+
+        /**
+         * @param keys sorted keys, <code>(prefix << 32) | local</code>
+         * @return prefix starts and local IDs
+         */
+        private static IntBuffer[] of(long[] keys, int nPrefixes) {
+            int[] prefixStarts = new int[nPrefixes + 1];
+            int[] localIds = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                prefixStarts[(int) (keys[i] >>> 32) + 1]++;
+                localIds[i] = (int) keys[i];
+            }
+            for (int p = 0; p < nPrefixes; p++) {
+                prefixStarts[p + 1] += prefixStarts[p];
+            }
+            return new IntBuffer[]{IntBuffer.wrap(prefixStarts), IntBuffer.wrap(localIds)};
+        }
+
+        int size() {
+            return localIds.capacity();
+        }
+
+        int find(int prefix, int local) {
+            int lo = prefixStarts.get(prefix), hi = prefixStarts.get(prefix + 1) - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int value = localIds.get(mid);
+                if (value < local) {
+                    lo = mid + 1;
+                } else if (value > local) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the last prefix whose range starts at or before the index, i.e. the prefix of the ID at the index
+         */
+        int prefixAt(int index) {
+            int p = 0;
+            while (p + 1 < prefixStarts.capacity() - 1 && prefixStarts.get(p + 1) <= index) {
+                p++;
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Collects terms in any order and packs them into a {@link CompactOntology}. Parents and targets of alternative
+     * IDs may be added before the terms they refer to.
+     */
+    static final class Builder {
+
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final List<List<String>> synonyms = new ArrayList<>();
+        private final List<List<String>> parentIds = new ArrayList<>();
+        private final Map<String, String> altIds = new HashMap<>();
+        /**
+         * Obsolete ID to the ID that replaces it, <code>null</code> if there is no replacement.
+         */
+        private final Map<String, String> obsoleteIds = new HashMap<>();
+        private String version;
+        private String rootId;
+
+        void setVersion(String version) {
+            this.version = version;
+        }
+
+        /**
+         * Set the root explicitly, otherwise the only term without parents is the root.
+         */
+        void setRootId(String rootId) {
+            this.rootId = rootId;
+        }
+
+        void addTerm(String id, String label, List<String> synonyms, List<String> parentIds) {
+            this.ids.add(id);
+            this.labels.add(label == null ? "" : label);
+            this.synonyms.add(synonyms);
+            this.parentIds.add(parentIds);
+        }
+
+        void addAltId(String altId, String primaryId) {
+            altIds.put(altId, primaryId);
+        }
+
+        void addObsoleteId(String id, String replacedBy) {
+            obsoleteIds.put(id, replacedBy);
+        }
+
+        /**
+         * Terms, alternative and obsolete IDs that are not in the <code>PREFIX:digits</code> form are left out, as are
+         * references to them.
+         *
+         * @throws IllegalArgumentException if IDs with the same prefix have different widths
+         */
+        CompactOntology build() {
+            altIds.keySet().removeIf(id -> !isSupportedId(id));
+            obsoleteIds.keySet().removeIf(id -> !isSupportedId(id));
+            // prefixes and widths of all IDs
+            SortedMap<String, Integer> widths = new TreeMap<>();
+            int unsupported = 0;
+            for (String id : ids) {
+                if (isSupportedId(id)) {
+                    registerPrefix(id, widths);
+                } else {
+                    unsupported++;
+                    LOGGER.debug("Leaving out term `{}`, only IDs like HP:0000001 are supported", id);
+                }
+            }
+            if (unsupported > 0) {
+                LOGGER.info("Left out {} terms with unsupported IDs", unsupported);
+            }
+            for (String id : altIds.keySet()) {
+                registerPrefix(id, widths);
+            }
+            for (String id : obsoleteIds.keySet()) {
+                registerPrefix(id, widths);
+            }
+            String[] prefixes = widths.keySet().toArray(new String[0]);
+            int[] idWidths = widths.values().stream().mapToInt(Integer::intValue).toArray();
+            Map<String, Integer> prefixIndices = new HashMap<>();
+            for (int p = 0; p < prefixes.length; p++) {
+                prefixIndices.put(prefixes[p], p);
+            }
+
+            // sort terms by ID, the first occurrence of a duplicate ID wins
+            Map<Long, Integer> keyToInput = new HashMap<>(ids.size() * 2);
+            for (int i = 0; i < ids.size(); i++) {
+                if (isSupportedId(ids.get(i))) {
+                    keyToInput.putIfAbsent(key(ids.get(i), prefixIndices), i);
+                }
+            }
+            long[] termKeys = keyToInput.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int n = termKeys.length;
+            int[] order = new int[n];
+            Map<String, Integer> indices = new HashMap<>(n * 2);
+            for (int t = 0; t < n; t++) {
+                order[t] = keyToInput.get(termKeys[t]);
+                indices.put(ids.get(order[t]), t);
+            }
+
+            // labels and synonyms
+            ByteArrayOutputStream stringBytes = new ByteArrayOutputStream(n * 64);
+            List<Integer> offsets = new ArrayList<>(n * 3);
+            int[] firstStrings = new int[n + 1];
+            for (int t = 0; t < n; t++) {
+                firstStrings[t] = offsets.size();
+                offsets.add(stringBytes.size());
+                writeUtf8(labels.get(order[t]), stringBytes);
+                // a synonym repeated in the source is stored once, sorted as phenol and the OBO file differ in order
+                for (String synonym : new TreeSet<>(synonyms.get(order[t]))) {
+                    offsets.add(stringBytes.size());
+                    writeUtf8(synonym, stringBytes);
+                }
+            }
+            firstStrings[n] = offsets.size();
+            offsets.add(stringBytes.size());
+            int[] stringOffsets = offsets.stream().mapToInt(Integer::intValue).toArray();
+
+            // alternative IDs that lead to a known primary term
+            SortedMap<Long, Integer> alts = new TreeMap<>();
+            for (Map.Entry<String, String> entry : altIds.entrySet()) {
+                Integer target = indices.get(entry.getValue());
+                if (target != null && !indices.containsKey(entry.getKey())) {
+                    alts.put(key(entry.getKey(), prefixIndices), target);
+                }
+            }
+            long[] altKeys = alts.keySet().stream().mapToLong(Long::longValue).toArray();
+            int[] altTargets = alts.values().stream().mapToInt(Integer::intValue).toArray();
+
+            // parents, referred to by primary or alternative ID
+            int[] parentOffsets = new int[n + 1];
+            int[] parents = new int[16];
+            int nParents = 0;
+            for (int t = 0; t < n; t++) {
+                parentOffsets[t] = nParents;
+                Set<Integer> resolved = new TreeSet<>();
+                for (String parentId : parentIds.get(order[t])) {
+                    Integer parent = indices.get(parentId);
+                    if (parent == null && altIds.containsKey(parentId)) {
+                        parent = indices.get(altIds.get(parentId));
+                    }
+                    if (parent != null && parent != t) {
+                        resolved.add(parent);
+                    }
+                }
+                if (nParents + resolved.size() > parents.length) {
+                    parents = Arrays.copyOf(parents, Math.max(parents.length * 2, nParents + resolved.size()));
+                }
+                for (int parent : resolved) {
+                    parents[nParents++] = parent;
+                }
+            }
+            parentOffsets[n] = nParents;
+
+            // obsolete IDs that are not used by any current term, replacements referred to by primary or alternative ID
+            SortedMap<Long, Integer> obsolete = new TreeMap<>();
+            for (Map.Entry<String, String> entry : obsoleteIds.entrySet()) {
+                if (!indices.containsKey(entry.getKey()) && !altIds.containsKey(entry.getKey())) {
+                    String replacedBy = entry.getValue();
+                    Integer replacement = replacedBy == null ? null : indices.get(replacedBy);
+                    if (replacement == null && replacedBy != null && altIds.containsKey(replacedBy)) {
+                        replacement = indices.get(altIds.get(replacedBy));
+                    }
+                    obsolete.put(key(entry.getKey(), prefixIndices), replacement == null ? -1 : replacement);
+                }
+            }
+            long[] obsoleteKeys = obsolete.keySet().stream().mapToLong(Long::longValue).toArray();
+            int[] obsoleteReplacements = obsolete.values().stream().mapToInt(Integer::intValue).toArray();
+
+            int root = rootId == null ? -1 : indices.getOrDefault(rootId, -1);
+            if (rootId == null) {
+                for (int t = 0; t < n; t++) {
+                    if (parentOffsets[t] == parentOffsets[t + 1]) {
+                        // a second term without parents means there is no single root
+                        root = root == -1 ? t : -2;
+                    }
+                }
+                root = Math.max(root, -1);
+            }
+
+            IntBuffer[] terms = IdTable.of(termKeys, prefixes.length);
+            IntBuffer[] alternatives = IdTable.of(altKeys, prefixes.length);
+            IntBuffer[] obsoletes = IdTable.of(obsoleteKeys, prefixes.length);
+            IntBuffer[] intSections = {terms[0], terms[1], IntBuffer.wrap(stringOffsets), IntBuffer.wrap(firstStrings),
+                    IntBuffer.wrap(parentOffsets), IntBuffer.wrap(Arrays.copyOf(parents, nParents)),
+                    alternatives[0], alternatives[1], IntBuffer.wrap(altTargets), obsoletes[0], obsoletes[1],
+                    IntBuffer.wrap(obsoleteReplacements)};
+            return new CompactOntology(version, prefixes, idWidths, root, intSections,
+                    ByteBuffer.wrap(stringBytes.toByteArray()));
+        }
+
+        /**
+         * @return <code>true</code> if the ID is in the <code>PREFIX:digits</code> form
+         */
+        static boolean isSupportedId(String id) {
+            int colon = id.indexOf(':');
+            int width = id.length() - colon - 1;
+            if (colon <= 0 || width <= 0 || width > MAX_ID_DIGITS) {
+                return false;
+            }
+            for (int i = colon + 1; i < id.length(); i++) {
+                if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void registerPrefix(String id, Map<String, Integer> widths) {
+            int colon = id.indexOf(':');
+            int width = id.length() - colon - 1;
+            Integer previous = widths.putIfAbsent(id.substring(0, colon), width);
+            if (previous != null && previous != width) {
+                throw new IllegalArgumentException(String.format("Term IDs with prefix `%s` have different lengths",
+                        id.substring(0, colon)));
+            }
+        }
+
+        private static long key(String id, Map<String, Integer> prefixIndices) {
+            int colon = id.indexOf(':');
+            long prefix = prefixIndices.get(id.substring(0, colon));
+            return (prefix << 32) | Integer.parseInt(id.substring(colon + 1));
+        }
+
+        private static void writeUtf8(String value, ByteArrayOutputStream out) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+}
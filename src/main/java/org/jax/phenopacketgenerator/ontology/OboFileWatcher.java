@@ -0,0 +1,153 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches an OBO file and reports each new version of the file to a listener.
+ * <p>
+ * The listener is called once the file has not changed for a quiet period, so that a file that is being downloaded or
+ * copied is not read half-written. Changes that leave the content as it was, e.g. touching the file, are not reported,
+ * the file is compared as in {@link OntologySnapshotCache}. The listener runs on the watcher thread and should hand
+ * any long work over to an executor.
+ */
+public final class OboFileWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OboFileWatcher.class);
+
+    private final Path oboPath;
+
+    private final Duration quietPeriod;
+
+    private final Consumer<Path> listener;
+
+    private final WatchService watchService;
+
+    /**
+     * Key of the last version of the file, accessed only by the watcher thread after the start.
+     */
+    private OntologySnapshot.SourceKey sourceKey;
+
+    private OboFileWatcher(Path oboPath, Duration quietPeriod, Consumer<Path> listener, WatchService watchService,
+                           OntologySnapshot.SourceKey sourceKey) {
+        this.oboPath = oboPath;
+        this.quietPeriod = quietPeriod;
+        this.listener = listener;
+        this.watchService = watchService;
+        this.sourceKey = sourceKey;
+    }
+
+    /**
+     * Start watching the file on a daemon thread. The current version of the file is not reported.
+     *
+     * @param oboPath     path to OBO file
+     * @param quietPeriod time without changes of the file after which the file is reported
+     * @param listener    receives <code>oboPath</code> whenever the file changes
+     * @return the watcher, close it to stop watching
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public static OboFileWatcher start(Path oboPath, Duration quietPeriod, Consumer<Path> listener) throws IOException {
+        Path absolute = oboPath.toAbsolutePath();
+        WatchService watchService = absolute.getFileSystem().newWatchService();
+        try {
+            // the directory is watched, the file may be replaced by moving a new version in place
+            absolute.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            OntologySnapshot.SourceKey sourceKey = Files.isRegularFile(absolute)
+                    ? OntologySnapshot.SourceKey.of(absolute)
+                    : null;
+            OboFileWatcher watcher = new OboFileWatcher(absolute, quietPeriod, listener, watchService, sourceKey);
+            Thread thread = new Thread(watcher::watch, "obo-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            LOGGER.debug("Watching `{}` for changes", absolute);
+            return watcher;
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isFileEvent(watchService.take())) {
+                    continue;
+                }
+                // wait until the writes are over
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    isFileEvent(key);
+                }
+                reportIfChanged();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            LOGGER.debug("Stopped watching `{}`", oboPath);
+        } finally {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing watch service", e);
+            }
+        }
+    }
+
+    /**
+     * Consume events of the key.
+     *
+     * @return <code>true</code> if an event concerns the OBO file or if events have been lost
+     */
+    private boolean isFileEvent(WatchKey key) {
+        boolean fileEvent = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            fileEvent |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || oboPath.getFileName().equals(event.context());
+        }
+        if (!key.reset()) {
+            // e.g. the directory has been deleted, there is nothing to watch anymore
+            LOGGER.warn("Directory of `{}` is no longer accessible", oboPath);
+            throw new ClosedWatchServiceException();
+        }
+        return fileEvent;
+    }
+
+    private void reportIfChanged() {
+        try {
+            if (!Files.isRegularFile(oboPath)) {
+                return;
+            }
+            OntologySnapshot.SourceKey current = sourceKey == null
+                    ? null
+                    : OntologySnapshotCache.currentKey(sourceKey, oboPath);
+            if (current != null) {
+                // a touched file is hashed only once
+                sourceKey = current;
+                return;
+            }
+            sourceKey = OntologySnapshot.SourceKey.of(oboPath);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to check `{}` for changes", oboPath, e);
+            return;
+        }
+        LOGGER.info("OBO file `{}` changed", oboPath);
+        try {
+            listener.accept(oboPath);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error handling change of `{}`", oboPath, e);
+        }
+    }
+
+    /**
+     * Stop watching the file, the listener is not called afterwards unless it is running right now.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
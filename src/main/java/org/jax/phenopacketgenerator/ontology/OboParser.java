@@ -0,0 +1,235 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Minimal reader of the OBO format that feeds <code>[Term]</code> stanzas into a {@link CompactOntology.Builder}. Only
+ * the <code>data-version</code> of the header is read, other stanzas, e.g. <code>[Typedef]</code>, are skipped, as are
+ * tags the projection does not need.
+ * <p>
+ * The file is split at stanza boundaries, i.e. at lines starting with <code>[</code>, into chunks that are parsed in
+ * parallel by a {@link ForkJoinPool}. The stanzas are then added to the builder in file order, so the result does not
+ * depend on the number of threads.
+ */
+final class OboParser {
+
+    /**
+     * Chunks up to this many bytes are not split further. hp.obo has more than a hundred chunks of this size, enough to
+     * keep 16 threads busy.
+     */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private OboParser() {
+        // private no-op
+    }
+
+    /**
+     * @param obo  content of the OBO file encoded in UTF-8, from position 0 up to the limit
+     * @param pool pool to parse the chunks in
+     */
+    static void parse(ByteBuffer obo, ForkJoinPool pool, CompactOntology.Builder builder) {
+        builder.setVersion(parseDataVersion(obo));
+        for (Stanza stanza : pool.invoke(new ChunkTask(obo, 0, obo.limit()))) {
+            stanza.addTo(builder);
+        }
+    }
+
+    /**
+     * @return value of the <code>data-version</code> tag of the header or <code>null</code> if there is none
+     */
+    static String parseDataVersion(ByteBuffer obo) {
+        ByteBuffer header = obo.duplicate();
+        header.limit(nextStanzaStart(obo, 0, obo.limit()));
+        header.position(0);
+        String prefix = CompactOntology.DATA_VERSION + ":";
+        for (String line : StandardCharsets.UTF_8.decode(header).toString().split("\n")) {
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length()).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return <code>[Term]</code> stanzas of the text, which starts with a stanza header or with the file header
+     */
+    private static List<Stanza> parseChunk(String text) {
+        List<Stanza> stanzas = new ArrayList<>();
+        Stanza stanza = null;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String line = text.substring(start, end).trim();
+            start = end + 1;
+            if (line.isEmpty() || line.charAt(0) == '!') {
+                continue;
+            }
+            if (line.charAt(0) == '[') {
+                stanza = line.equals("[Term]") ? new Stanza() : null;
+                if (stanza != null) {
+                    stanzas.add(stanza);
+                }
+                continue;
+            }
+            if (stanza != null) {
+                stanza.readTag(line);
+            }
+        }
+        return stanzas;
+    }
+
+    /**
+     * @return position of the first stanza header in <code>[from, to)</code> or <code>to</code> if there is none
+     */
+    private static int nextStanzaStart(ByteBuffer obo, int from, int to) {
+        for (int i = Math.max(from, 1); i < to; i++) {
+            if (obo.get(i) == '[' && obo.get(i - 1) == '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return the ID at the start of the value, without trailing modifiers and comments
+     */
+    private static String idValue(String value) {
+        int end = 0;
+        while (end < value.length() && !Character.isWhitespace(value.charAt(end))
+                && value.charAt(end) != '!' && value.charAt(end) != '{') {
+            end++;
+        }
+        return value.substring(0, end);
+    }
+
+    /**
+     * @return the quoted text at the start of the value with escapes resolved, or <code>null</code> if the value does
+     * not start with a quote
+     */
+    private static String quotedValue(String value) {
+        if (value.isEmpty() || value.charAt(0) != '"') {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                text.append(c == 'n' ? '\n' : c == 't' ? '\t' : c);
+            } else if (c == '"') {
+                return text.toString();
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses bytes <code>[from, to)</code> of the file, splitting the range in halves at stanza boundaries while it is
+     * longer than {@link #CHUNK_SIZE}. Splitting at a line break keeps multi-byte UTF-8 characters intact.
+     */
+    private static final class ChunkTask extends RecursiveTask<List<Stanza>> {
+
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized, they are only forked in the pool
+        private final transient ByteBuffer obo;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ByteBuffer obo, int from, int to) {
+            this.obo = obo;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Stanza> compute() {
+            if (to - from > CHUNK_SIZE) {
+                int split = nextStanzaStart(obo, from + (to - from) / 2, to);
+                if (split < to) {
+                    ChunkTask first = new ChunkTask(obo, from, split);
+                    first.fork();
+                    List<Stanza> second = new ChunkTask(obo, split, to).compute();
+                    List<Stanza> stanzas = first.join();
+                    stanzas.addAll(second);
+                    return stanzas;
+                }
+            }
+            // only absolute gets are used on the shared buffer, the duplicate has its own position and limit
+            ByteBuffer chunk = obo.duplicate();
+            chunk.limit(to);
+            chunk.position(from);
+            return parseChunk(StandardCharsets.UTF_8.decode(chunk).toString());
+        }
+    }
+
+    private static final class Stanza {
+        private final List<String> synonyms = new ArrayList<>();
+        private final List<String> parentIds = new ArrayList<>();
+        private final List<String> altIds = new ArrayList<>();
+        private String id;
+        private String name;
+        private boolean obsolete;
+        private String replacedBy;
+
+        void readTag(String line) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                return;
+            }
+            String value = line.substring(colon + 1).trim();
+            switch (line.substring(0, colon)) {
+                case "id":
+                    id = idValue(value);
+                    break;
+                case "name":
+                    name = value;
+                    break;
+                case "synonym":
+                    String synonym = quotedValue(value);
+                    if (synonym != null) {
+                        synonyms.add(synonym);
+                    }
+                    break;
+                case "is_a":
+                    parentIds.add(idValue(value));
+                    break;
+                case "alt_id":
+                    altIds.add(idValue(value));
+                    break;
+                case "is_obsolete":
+                    obsolete = value.startsWith("true");
+                    break;
+                case "replaced_by":
+                    replacedBy = idValue(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void addTo(CompactOntology.Builder builder) {
+            if (id == null || id.isEmpty()) {
+                return;
+            }
+            if (obsolete) {
+                builder.addObsoleteId(id, replacedBy);
+                return;
+            }
+            builder.addTerm(id, name, synonyms, parentIds);
+            for (String altId : altIds) {
+                builder.addAltId(altId, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import java.util.*;
+
+/**
+ * Changes of the terms of an ontology between two versions, as seen by the user of the previous version.
+ * <p>
+ * Each primary ID of the previous version falls into one of these cases:
+ * <ul>
+ * <li>{@link ChangeType#REPLACED} - the ID is an alternative ID of another term now (terms have been merged) or the
+ * term is obsolete and names its replacement</li>
+ * <li>{@link ChangeType#OBSOLETE} - the term is obsolete or missing and there is no replacement</li>
+ * <li>{@link ChangeType#RELABELLED} - the term has a different label</li>
+ * <li>unchanged, not part of the diff</li>
+ * </ul>
+ * Instances are immutable and thread-safe.
+ */
+public final class OntologyDiff {
+
+    private final Map<String, TermChange> changes;
+
+    private OntologyDiff(Map<String, TermChange> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Compare each term of the <code>previous</code> ontology with the term of the same ID in the <code>current</code>
+     * one.
+     */
+    public static OntologyDiff of(CompactOntology previous, CompactOntology current) {
+        Map<String, TermChange> changes = new LinkedHashMap<>();
+        for (int t = 0; t < previous.size(); t++) {
+            String termId = previous.getTermId(t);
+            int index = current.indexOf(termId);
+            if (index < 0) {
+                index = current.getReplacement(termId);
+            }
+            if (index < 0) {
+                changes.put(termId, new TermChange(ChangeType.OBSOLETE, termId, null, null));
+                continue;
+            }
+            String currentId = current.getTermId(index);
+            String currentLabel = current.getLabel(index);
+            if (!currentId.equals(termId)) {
+                changes.put(termId, new TermChange(ChangeType.REPLACED, termId, currentId, currentLabel));
+            } else if (!currentLabel.equals(previous.getLabel(t))) {
+                changes.put(termId, new TermChange(ChangeType.RELABELLED, termId, currentId, currentLabel));
+            }
+        }
+        return new OntologyDiff(Collections.unmodifiableMap(changes));
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return changed terms in the order of the previous ontology
+     */
+    public Collection<TermChange> getChanges() {
+        return changes.values();
+    }
+
+    /**
+     * @param termId primary ID of a term of the previous ontology
+     * @return the change or empty {@link Optional} if the term is unchanged or unknown
+     */
+    public Optional<TermChange> getChange(String termId) {
+        return Optional.ofNullable(changes.get(termId));
+    }
+
+    public long count(ChangeType type) {
+        return changes.values().stream().filter(change -> change.getType() == type).count();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OntologyDiff{replaced=%d, obsolete=%d, relabelled=%d}", count(ChangeType.REPLACED),
+                count(ChangeType.OBSOLETE), count(ChangeType.RELABELLED));
+    }
+
+    public enum ChangeType {
+        REPLACED,
+        OBSOLETE,
+        RELABELLED
+    }
+
+    public static final class TermChange {
+
+        private final ChangeType type;
+
+        private final String termId;
+
+        private final String currentId;
+
+        private final String currentLabel;
+
+        private TermChange(ChangeType type, String termId, String currentId, String currentLabel) {
+            this.type = type;
+            this.termId = termId;
+            this.currentId = currentId;
+            this.currentLabel = currentLabel;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * @return ID of the term in the previous ontology
+         */
+        public String getTermId() {
+            return termId;
+        }
+
+        /**
+         * @return ID of the term in the current ontology or empty {@link Optional} if the term is obsolete
+         */
+        public Optional<String> getCurrentId() {
+            return Optional.ofNullable(currentId);
+        }
+
+        /**
+         * @return label of the term in the current ontology or empty {@link Optional} if the term is obsolete
+         */
+        public Optional<String> getCurrentLabel() {
+            return Optional.ofNullable(currentLabel);
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case REPLACED:
+                    return String.format("%s replaced by %s [%s]", termId, currentLabel, currentId);
+                case RELABELLED:
+                    return String.format("%s relabelled to %s", termId, currentLabel);
+                default:
+                    return String.format("%s is obsolete", termId);
+            }
+        }
+    }
+}
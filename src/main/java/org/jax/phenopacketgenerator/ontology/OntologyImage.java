@@ -0,0 +1,198 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Read-only file image of a {@link CompactOntology} that is used through {@link FileChannel#map}.
+ * <p>
+ * The image consists of a small header and the sections of the compact ontology stored as they are kept in memory,
+ * <code>int</code>s in little-endian order and the packed strings. Mapping the image is constant-time, lookups then
+ * read the mapped pages directly and nothing but the header is copied to the heap. Processes mapping the same image
+ * share a single copy in the OS page cache.
+ * <p>
+ * The header records the {@link OntologySnapshot.SourceKey} of the OBO file the image was created from.
+ *
+ * @see OntologyImageCache
+ */
+public final class OntologyImage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologyImage.class);
+
+    /**
+     * "PGOI" - Phenopacket Generator Ontology Image.
+     */
+    private static final int MAGIC = 0x50474F49;
+
+    /**
+     * Version 2 added replacements of obsolete terms, images of version 3 store the <code>data-version</code> of the
+     * OBO file, which was missing before, and images of version 4 sorted synonyms.
+     */
+    private static final int FORMAT_VERSION = 4;
+
+    /**
+     * Magic, format version and header length.
+     */
+    private static final int PREAMBLE_LENGTH = 12;
+
+    /**
+     * The source key starts the header.
+     */
+    static final int SOURCE_KEY_OFFSET = PREAMBLE_LENGTH;
+
+    private OntologyImage() {
+        // private no-op
+    }
+
+    /**
+     * Write the image of <code>ontology</code> into <code>imagePath</code>. The image is written into a temporary file
+     * first and then moved to the target location, so that a concurrent reader never maps a partially written image.
+     *
+     * @param ontology  ontology to store
+     * @param sourceKey key of the OBO file the ontology has been read from
+     * @param imagePath where to write the image
+     * @throws IOException if writing fails
+     */
+    public static void write(CompactOntology ontology, OntologySnapshot.SourceKey sourceKey, Path imagePath) throws IOException {
+        IntBuffer[] sections = ontology.intSections();
+        ByteBuffer strings = ontology.stringSection();
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream header = new DataOutputStream(headerBytes)) {
+            sourceKey.write(header);
+            header.writeBoolean(ontology.getVersion().isPresent());
+            header.writeUTF(ontology.getVersion().orElse(""));
+            header.writeInt(ontology.getRoot());
+            String[] prefixes = ontology.getPrefixes();
+            header.writeInt(prefixes.length);
+            for (int p = 0; p < prefixes.length; p++) {
+                header.writeUTF(prefixes[p]);
+                header.writeInt(ontology.getIdWidths()[p]);
+            }
+            for (IntBuffer section : sections) {
+                header.writeInt(section.capacity());
+            }
+            header.writeInt(strings.capacity());
+            // sections start at an int boundary
+            while ((PREAMBLE_LENGTH + header.size()) % Integer.BYTES != 0) {
+                header.writeByte(0);
+            }
+        }
+
+        Path tmp = Files.createTempFile(imagePath.toAbsolutePath().getParent(), imagePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_LENGTH);
+                preamble.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(headerBytes.size()).flip();
+                writeFully(channel, preamble);
+                writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+                ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                for (IntBuffer section : sections) {
+                    for (int i = 0; i < section.capacity(); i++) {
+                        if (chunk.remaining() < Integer.BYTES) {
+                            chunk.flip();
+                            writeFully(channel, chunk);
+                            chunk.clear();
+                        }
+                        chunk.putInt(section.get(i));
+                    }
+                }
+                chunk.flip();
+                writeFully(channel, chunk);
+                strings.rewind();
+                writeFully(channel, strings);
+                channel.force(true);
+            }
+            Files.move(tmp, imagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        LOGGER.debug("Wrote ontology image with {} terms to `{}`", ontology.size(), imagePath);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read just the source key from the image header.
+     *
+     * @return the key or empty {@link Optional} if the file is not an image of the current format
+     */
+    public static Optional<OntologySnapshot.SourceKey> readSourceKey(Path imagePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(imagePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            in.readInt();
+            return Optional.of(OntologySnapshot.SourceKey.read(in));
+        }
+    }
+
+    /**
+     * Map the image into memory. The mapping stays valid after the image file is replaced or deleted.
+     *
+     * @param imagePath path to the image
+     * @return ontology backed by the mapped image or empty {@link Optional} if the file is not an image of the current
+     * format
+     * @throws IOException if the image cannot be mapped or is truncated
+     */
+    public static Optional<CompactOntology> map(Path imagePath) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mapped.capacity() < PREAMBLE_LENGTH || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+            return Optional.empty();
+        }
+        int headerLength = mapped.getInt(8);
+        if (headerLength < 0 || headerLength > mapped.capacity() - PREAMBLE_LENGTH) {
+            throw new IOException("Truncated ontology image `" + imagePath + "`");
+        }
+        byte[] headerBytes = new byte[headerLength];
+        ((ByteBuffer) mapped.duplicate().position(PREAMBLE_LENGTH)).get(headerBytes);
+        try (DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes))) {
+            OntologySnapshot.SourceKey.read(header);
+            boolean hasVersion = header.readBoolean();
+            String version = header.readUTF();
+            int root = header.readInt();
+            String[] prefixes = new String[header.readInt()];
+            int[] idWidths = new int[prefixes.length];
+            for (int p = 0; p < prefixes.length; p++) {
+                prefixes[p] = header.readUTF();
+                idWidths[p] = header.readInt();
+            }
+            IntBuffer[] sections = new IntBuffer[CompactOntology.N_INT_SECTIONS];
+            int offset = PREAMBLE_LENGTH + headerLength;
+            for (int i = 0; i < sections.length; i++) {
+                int length = header.readInt();
+                sections[i] = slice(mapped, offset, length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                offset += length * Integer.BYTES;
+            }
+            ByteBuffer strings = slice(mapped, offset, header.readInt());
+            return Optional.of(new CompactOntology(hasVersion ? version : null, prefixes, idWidths, root, sections, strings));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated ontology image `" + imagePath + "`", e);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length).position(offset);
+        return view.slice();
+    }
+}
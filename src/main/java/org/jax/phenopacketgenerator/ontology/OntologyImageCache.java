@@ -0,0 +1,117 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Keeps an {@link OntologyImage} of each used OBO file in the app home directory, so that concurrent batch processes on
+ * one machine map a single copy of the ontology instead of each reading and holding its own.
+ * <p>
+ * The image of an OBO file is named after the file and a hash of its absolute path, e.g.
+ * <code>hp.obo.3f2a9c1d7e6b5a40.image</code>, so that processes using different OBO files do not replace each other's
+ * image. The image is valid under the same conditions as the {@link OntologySnapshotCache} snapshot. A stale or missing
+ * image is rebuilt by the first process that needs it; the others wait on a file lock and then map the new image.
+ */
+public class OntologyImageCache {
+
+    public static final String IMAGE_SUFFIX = ".image";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologyImageCache.class);
+
+    /**
+     * Number of hex digits of the path hash in the image name.
+     */
+    private static final int PATH_HASH_LENGTH = 16;
+
+    private final Path appHomeDir;
+
+    public OntologyImageCache(Path appHomeDir) {
+        this.appHomeDir = appHomeDir;
+    }
+
+    /**
+     * @return path to the image of the OBO file, the image may not exist
+     */
+    public Path getImagePath(Path oboPath) {
+        Path absolute = oboPath.toAbsolutePath();
+        String pathHash = Utils.toHex(Utils.sha256().digest(absolute.toString().getBytes(StandardCharsets.UTF_8)))
+                .substring(0, PATH_HASH_LENGTH);
+        return appHomeDir.resolve(absolute.getFileName() + "." + pathHash + IMAGE_SUFFIX);
+    }
+
+    /**
+     * Map the image if it is up-to-date with respect to the OBO file.
+     *
+     * @param oboPath path to OBO file
+     * @return ontology backed by the image or empty {@link Optional} if the image is missing, stale or unreadable
+     */
+    public Optional<CompactOntology> load(Path oboPath) {
+        Path imagePath = getImagePath(oboPath);
+        if (!Files.isRegularFile(imagePath)) {
+            return Optional.empty();
+        }
+        try {
+            Optional<OntologySnapshot.SourceKey> stored = OntologyImage.readSourceKey(imagePath);
+            if (!stored.isPresent() || !OntologySnapshotCache.isUpToDate(imagePath, OntologyImage.SOURCE_KEY_OFFSET,
+                    stored.get(), oboPath)) {
+                LOGGER.debug("Ontology image at `{}` is stale", imagePath);
+                return Optional.empty();
+            }
+            return OntologyImage.map(imagePath);
+        } catch (IOException | RuntimeException e) {
+            // corrupted image must never prevent loading of the ontology
+            LOGGER.warn("Unable to map ontology image at `{}`: {}", imagePath, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Map the image of the OBO file, building the image first if it is missing or stale. If the image cannot be
+     * used, the ontology read from the OBO file is returned on the heap.
+     *
+     * @param oboPath path to OBO file
+     * @return the ontology, memory-mapped unless writing the image failed
+     * @throws IOException if the OBO file cannot be read
+     */
+    public synchronized CompactOntology loadOrBuild(Path oboPath) throws IOException {
+        Optional<CompactOntology> image = load(oboPath);
+        if (image.isPresent()) {
+            return image.get();
+        }
+        Path imagePath = getImagePath(oboPath);
+        Path lockPath = imagePath.resolveSibling(imagePath.getFileName() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // released when the channel is closed
+            channel.lock();
+            // another process may have built the image while we were waiting for the lock
+            image = load(oboPath);
+            if (image.isPresent()) {
+                return image.get();
+            }
+            OntologySnapshot.SourceKey key = OntologySnapshot.SourceKey.of(oboPath);
+            CompactOntology ontology = CompactOntology.read(oboPath);
+            try {
+                OntologyImage.write(ontology, key, imagePath);
+                LOGGER.info("Stored ontology image at `{}`", imagePath);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to store ontology image at `{}`", imagePath, e);
+                return ontology;
+            }
+            // map the image we have just written, so that this process shares the page cache with the others
+            return load(oboPath).orElse(ontology);
+        } catch (IOException e) {
+            // e.g. read-only app home, the OBO file is read again and the error is reported if the file is the cause
+            LOGGER.warn("Unable to use ontology image at `{}`: {}", imagePath, e.getMessage());
+            return CompactOntology.read(oboPath);
+        }
+    }
+}
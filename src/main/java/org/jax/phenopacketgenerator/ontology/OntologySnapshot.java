@@ -0,0 +1,437 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import org.jax.phenopacketgenerator.Utils;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.data.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Compact binary snapshot of a parsed {@link Ontology}.
+ * <p>
+ * Parsing <code>hp.obo</code> through phenol/OWLAPI takes several seconds. The snapshot stores just the data phenol needs
+ * to rebuild the {@link ImmutableOntology} (metadata, terms, graph and relationships), which is an order of magnitude
+ * faster than parsing the OBO text. Database cross-references with trailing modifiers
+ * ({@link Term#getXrefs()}) are not stored, the app does not use them.
+ * <p>
+ * The header of each snapshot records the {@link SourceKey} of the OBO file the snapshot was created from, the snapshot
+ * is only used if the key still matches the OBO file.
+ *
+ * @see OntologySnapshotCache
+ */
+public final class OntologySnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologySnapshot.class);
+
+    /**
+     * "PGOS" - Phenopacket Generator Ontology Snapshot.
+     */
+    private static final int MAGIC = 0x50474F53;
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The source key follows the magic and the format version.
+     */
+    static final int SOURCE_KEY_OFFSET = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private OntologySnapshot() {
+        // private no-op
+    }
+
+    /**
+     * Write <code>ontology</code> into <code>snapshotPath</code>. The file is written into a temporary file first and then
+     * moved to the target location, so that a concurrent reader never sees a partially written snapshot.
+     *
+     * @param ontology     ontology to store
+     * @param sourceKey    key of the OBO file the ontology has been parsed from
+     * @param snapshotPath where to write the snapshot
+     * @throws IOException if writing fails
+     */
+    public static void write(Ontology ontology, SourceKey sourceKey, Path snapshotPath) throws IOException {
+        // unique name, so that concurrent writers of the same snapshot do not write into the same file
+        Path tmp = Files.createTempFile(snapshotPath.toAbsolutePath().getParent(), snapshotPath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                sourceKey.write(out);
+
+                // meta info
+                Map<String, String> metaInfo = ontology.getMetaInfo();
+                out.writeInt(metaInfo.size());
+                for (Map.Entry<String, String> entry : metaInfo.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                }
+                writeString(out, ontology.getRootTermId().getValue());
+
+                // terms - term map contains entries for alternative IDs as well, these are stored as aliases
+                List<Term> terms = new ArrayList<>();
+                List<Map.Entry<TermId, Term>> aliases = new ArrayList<>();
+                for (Map.Entry<TermId, Term> entry : ontology.getTermMap().entrySet()) {
+                    if (entry.getKey().equals(entry.getValue().getId())) {
+                        terms.add(entry.getValue());
+                    } else {
+                        aliases.add(entry);
+                    }
+                }
+                out.writeInt(terms.size());
+                for (Term term : terms) {
+                    writeTerm(out, term);
+                }
+                out.writeInt(aliases.size());
+                for (Map.Entry<TermId, Term> alias : aliases) {
+                    writeString(out, alias.getKey().getValue());
+                    writeString(out, alias.getValue().getId().getValue());
+                }
+                writeTermIds(out, ontology.getNonObsoleteTermIds());
+                writeTermIds(out, ontology.getObsoleteTermIds());
+
+                // graph
+                DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+                writeTermIds(out, graph.vertexSet());
+                Set<IdLabeledEdge> edges = graph.edgeSet();
+                out.writeInt(edges.size());
+                for (IdLabeledEdge edge : edges) {
+                    writeString(out, graph.getEdgeSource(edge).getValue());
+                    writeString(out, graph.getEdgeTarget(edge).getValue());
+                    out.writeInt(edge.getId());
+                }
+
+                // relationships
+                Map<Integer, Relationship> relationMap = ontology.getRelationMap();
+                out.writeInt(relationMap.size());
+                for (Map.Entry<Integer, Relationship> entry : relationMap.entrySet()) {
+                    Relationship relationship = entry.getValue();
+                    out.writeInt(entry.getKey());
+                    writeString(out, relationship.getSource().getValue());
+                    writeString(out, relationship.getTarget().getValue());
+                    out.writeInt(relationship.getId());
+                    out.writeByte(relationship.getRelationshipType().ordinal());
+                }
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        LOGGER.debug("Wrote ontology snapshot with {} terms to `{}`", ontology.countAllTerms(), snapshotPath);
+    }
+
+    /**
+     * Read the {@link SourceKey} stored in the snapshot header.
+     *
+     * @param snapshotPath path to snapshot
+     * @return the key or empty {@link Optional} if the file is not a snapshot of a supported version
+     * @throws IOException if reading fails
+     */
+    public static Optional<SourceKey> readSourceKey(Path snapshotPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            return readHeader(in);
+        }
+    }
+
+    /**
+     * Read the ontology from <code>snapshotPath</code>.
+     *
+     * @param snapshotPath path to snapshot
+     * @return the ontology or empty {@link Optional} if the file is not a snapshot of a supported version
+     * @throws IOException if reading fails
+     */
+    public static Optional<Ontology> read(Path snapshotPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), BUFFER_SIZE))) {
+            if (!readHeader(in).isPresent()) {
+                return Optional.empty();
+            }
+            int nMetaInfo = in.readInt();
+            Map<String, String> metaInfo = new LinkedHashMap<>(nMetaInfo * 2);
+            for (int i = 0; i < nMetaInfo; i++) {
+                metaInfo.put(readString(in), readString(in));
+            }
+
+            // TermId instances are shared between terms, graph and relationships
+            Map<String, TermId> termIds = new HashMap<>();
+            TermId rootTermId = termId(readString(in), termIds);
+
+            int nTerms = in.readInt();
+            ImmutableMap.Builder<TermId, Term> termMap = ImmutableMap.builder();
+            Map<TermId, Term> primaryTerms = new HashMap<>(nTerms * 2);
+            for (int i = 0; i < nTerms; i++) {
+                Term term = readTerm(in, termIds);
+                termMap.put(term.getId(), term);
+                primaryTerms.put(term.getId(), term);
+            }
+            int nAliases = in.readInt();
+            for (int i = 0; i < nAliases; i++) {
+                TermId alias = termId(readString(in), termIds);
+                termMap.put(alias, primaryTerms.get(termId(readString(in), termIds)));
+            }
+            List<TermId> nonObsoleteTermIds = readTermIds(in, termIds);
+            List<TermId> obsoleteTermIds = readTermIds(in, termIds);
+
+            DefaultDirectedGraph<TermId, IdLabeledEdge> graph = new DefaultDirectedGraph<>(IdLabeledEdge.class);
+            for (TermId vertex : readTermIds(in, termIds)) {
+                graph.addVertex(vertex);
+            }
+            int nEdges = in.readInt();
+            for (int i = 0; i < nEdges; i++) {
+                TermId source = termId(readString(in), termIds);
+                TermId target = termId(readString(in), termIds);
+                graph.addEdge(source, target, new IdLabeledEdge(in.readInt()));
+            }
+
+            int nRelationships = in.readInt();
+            RelationshipType[] types = RelationshipType.values();
+            ImmutableMap.Builder<Integer, Relationship> relationMap = ImmutableMap.builder();
+            for (int i = 0; i < nRelationships; i++) {
+                int key = in.readInt();
+                TermId source = termId(readString(in), termIds);
+                TermId target = termId(readString(in), termIds);
+                int id = in.readInt();
+                RelationshipType type = types[in.readByte()];
+                relationMap.put(key, new Relationship(source, target, id, type));
+            }
+
+            return Optional.of(new ImmutableOntology(ImmutableSortedMap.copyOf(metaInfo), graph, rootTermId,
+                    nonObsoleteTermIds, obsoleteTermIds, termMap.build(), relationMap.build()));
+        }
+    }
+
+    private static Optional<SourceKey> readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            LOGGER.debug("Not an ontology snapshot");
+            return Optional.empty();
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            LOGGER.debug("Unsupported snapshot format version {}", version);
+            return Optional.empty();
+        }
+        return Optional.of(SourceKey.read(in));
+    }
+
+    private static void writeTerm(DataOutputStream out, Term term) throws IOException {
+        writeString(out, term.getId().getValue());
+        writeString(out, term.getName());
+        writeString(out, term.getDefinition());
+        writeString(out, term.getComment());
+        out.writeBoolean(term.isObsolete());
+        writeString(out, term.getCreatedBy());
+        out.writeLong(term.getCreationDate().map(Date::getTime).orElse(-1L));
+
+        List<TermId> altTermIds = nullToEmpty(term.getAltTermIds());
+        out.writeInt(altTermIds.size());
+        for (TermId altTermId : altTermIds) {
+            writeString(out, altTermId.getValue());
+        }
+
+        List<TermSynonym> synonyms = nullToEmpty(term.getSynonyms());
+        out.writeInt(synonyms.size());
+        for (TermSynonym synonym : synonyms) {
+            writeString(out, synonym.getValue());
+            out.writeByte(synonym.getScope() == null ? -1 : synonym.getScope().ordinal());
+            writeString(out, synonym.getSynonymTypeName());
+        }
+
+        List<String> subsets = nullToEmpty(term.getSubsets());
+        out.writeInt(subsets.size());
+        for (String subset : subsets) {
+            writeString(out, subset);
+        }
+
+        List<SimpleXref> xrefs = nullToEmpty(term.getDatabaseXrefs());
+        out.writeInt(xrefs.size());
+        for (SimpleXref xref : xrefs) {
+            writeString(out, xref.getCurie());
+        }
+    }
+
+    private static Term readTerm(DataInputStream in, Map<String, TermId> termIds) throws IOException {
+        Term.Builder builder = Term.builder()
+                .id(termId(readString(in), termIds))
+                .name(readString(in))
+                .definition(readString(in))
+                .comment(readString(in))
+                .obsolete(in.readBoolean())
+                .createdBy(readString(in));
+        long creationDate = in.readLong();
+        if (creationDate >= 0) {
+            builder.creationDate(new Date(creationDate));
+        }
+
+        int nAltTermIds = in.readInt();
+        List<TermId> altTermIds = new ArrayList<>(nAltTermIds);
+        for (int i = 0; i < nAltTermIds; i++) {
+            altTermIds.add(termId(readString(in), termIds));
+        }
+        builder.altTermIds(altTermIds);
+
+        TermSynonymScope[] scopes = TermSynonymScope.values();
+        int nSynonyms = in.readInt();
+        List<TermSynonym> synonyms = new ArrayList<>(nSynonyms);
+        for (int i = 0; i < nSynonyms; i++) {
+            String value = readString(in);
+            byte scope = in.readByte();
+            String typeName = readString(in);
+            synonyms.add(new TermSynonym(value, scope < 0 ? null : scopes[scope], typeName, Collections.emptyList()));
+        }
+        builder.synonyms(synonyms);
+
+        int nSubsets = in.readInt();
+        List<String> subsets = new ArrayList<>(nSubsets);
+        for (int i = 0; i < nSubsets; i++) {
+            subsets.add(readString(in));
+        }
+        builder.subsets(subsets);
+
+        int nXrefs = in.readInt();
+        List<SimpleXref> xrefs = new ArrayList<>(nXrefs);
+        for (int i = 0; i < nXrefs; i++) {
+            xrefs.add(new SimpleXref(readString(in)));
+        }
+        return builder.databaseXrefs(xrefs).build();
+    }
+
+    private static void writeTermIds(DataOutputStream out, Collection<TermId> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (TermId id : ids) {
+            writeString(out, id.getValue());
+        }
+    }
+
+    private static List<TermId> readTermIds(DataInputStream in, Map<String, TermId> termIds) throws IOException {
+        int n = in.readInt();
+        List<TermId> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ids.add(termId(readString(in), termIds));
+        }
+        return ids;
+    }
+
+    private static TermId termId(String value, Map<String, TermId> termIds) {
+        return termIds.computeIfAbsent(value, TermId::of);
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    /**
+     * Write nullable UTF-8 string prefixed by its length. Unlike {@link DataOutputStream#writeUTF(String)}, the string
+     * length is not limited to 64kB.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identity of the OBO file a snapshot was created from: absolute path, size, last modification time and SHA-256
+     * digest of the content.
+     */
+    public static final class SourceKey {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String sha256;
+
+        SourceKey(String path, long size, long lastModified, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * Compute the key for the OBO file at <code>oboPath</code>. This reads the entire file in order to compute
+         * the digest.
+         */
+        public static SourceKey of(Path oboPath) throws IOException {
+            Path absolute = oboPath.toAbsolutePath();
+            return new SourceKey(absolute.toString(), Files.size(absolute),
+                    Files.getLastModifiedTime(absolute).toMillis(), Utils.sha256Hex(absolute));
+        }
+
+        static SourceKey read(DataInputStream in) throws IOException {
+            return new SourceKey(readString(in), in.readLong(), in.readLong(), readString(in));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, path);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            writeString(out, sha256);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SourceKey sourceKey = (SourceKey) o;
+            return size == sourceKey.size &&
+                    lastModified == sourceKey.lastModified &&
+                    Objects.equals(path, sourceKey.path) &&
+                    Objects.equals(sha256, sourceKey.sha256);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, lastModified, sha256);
+        }
+
+        @Override
+        public String toString() {
+            return "SourceKey{" +
+                    "path='" + path + '\'' +
+                    ", size=" + size +
+                    ", lastModified=" + lastModified +
+                    ", sha256='" + sha256 + '\'' +
+                    '}';
+        }
+    }
+}
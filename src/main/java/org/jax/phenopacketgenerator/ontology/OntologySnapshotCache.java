@@ -0,0 +1,183 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Keeps an {@link OntologySnapshot} of the most recently loaded OBO file in the app home directory.
+ * <p>
+ * A snapshot is valid if it has been created from the OBO file at the same path. If the size and the modification time
+ * of the file are unchanged, the snapshot is used right away. If only the modification time differs (e.g. the file has
+ * been copied or touched), the content digest decides, and if it matches, the new modification time is written into the
+ * snapshot, so that the file is hashed only once.
+ */
+public class OntologySnapshotCache {
+
+    public static final String SNAPSHOT_FILE_NAME = "hp.obo.snapshot";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologySnapshotCache.class);
+
+    private final Path snapshotPath;
+
+    public OntologySnapshotCache(Path appHomeDir) {
+        this.snapshotPath = appHomeDir.resolve(SNAPSHOT_FILE_NAME);
+    }
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Load ontology from the snapshot if the snapshot is up-to-date with respect to the OBO file.
+     *
+     * @param oboPath path to OBO file
+     * @return ontology or empty {@link Optional} if the snapshot is missing, stale or unreadable
+     */
+    public Optional<Ontology> load(Path oboPath) {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return Optional.empty();
+        }
+        try {
+            Optional<OntologySnapshot.SourceKey> stored = OntologySnapshot.readSourceKey(snapshotPath);
+            if (!stored.isPresent()
+                    || !isUpToDate(snapshotPath, OntologySnapshot.SOURCE_KEY_OFFSET, stored.get(), oboPath)) {
+                LOGGER.debug("Ontology snapshot at `{}` is stale", snapshotPath);
+                return Optional.empty();
+            }
+            return OntologySnapshot.read(snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            // corrupted snapshot must never prevent loading of the ontology
+            LOGGER.warn("Unable to read ontology snapshot at `{}`", snapshotPath, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Load ontology from the snapshot, or parse the OBO file and rebuild the snapshot for the next time if the snapshot
+     * is missing or stale.
+     *
+     * @param oboPath path to OBO file
+     * @return the ontology
+     * @throws IOException if the OBO file cannot be read
+     */
+    public Ontology loadOrParse(Path oboPath) throws IOException {
+        long start = System.nanoTime();
+        Optional<Ontology> snapshot = load(oboPath);
+        if (snapshot.isPresent()) {
+            LOGGER.info("Loaded HPO from snapshot in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return snapshot.get();
+        }
+        // the key is computed first, the file may be replaced while it is being parsed, then the snapshot is stale
+        OntologySnapshot.SourceKey key = OntologySnapshot.SourceKey.of(oboPath);
+        Ontology parsed;
+        try (InputStream is = Files.newInputStream(oboPath)) {
+            parsed = Utils.deserializeOntology(is);
+        }
+        LOGGER.info("Parsed HPO OBO file in {} ms", (System.nanoTime() - start) / 1_000_000);
+        store(parsed, key);
+        return parsed;
+    }
+
+    /**
+     * Store the snapshot of <code>ontology</code>. Errors are logged and swallowed, the snapshot is merely a cache.
+     *
+     * @param ontology ontology parsed from the OBO file
+     * @param key      key of the OBO file computed before it was parsed
+     */
+    public void store(Ontology ontology, OntologySnapshot.SourceKey key) {
+        try {
+            OntologySnapshot.write(ontology, key, snapshotPath);
+            LOGGER.info("Stored ontology snapshot at `{}`", snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to store ontology snapshot at `{}`", snapshotPath, e);
+        }
+    }
+
+    /**
+     * @return key of the OBO file if the <code>stored</code> key still describes its content, i.e. the
+     * <code>stored</code> key itself or, if only the modification time differs, the key with the current modification
+     * time, <code>null</code> if the file has changed
+     */
+    static OntologySnapshot.SourceKey currentKey(OntologySnapshot.SourceKey stored, Path oboPath) throws IOException {
+        Path absolute = oboPath.toAbsolutePath();
+        if (!stored.getPath().equals(absolute.toString()) || stored.getSize() != Files.size(absolute)) {
+            return null;
+        }
+        if (stored.getLastModified() == Files.getLastModifiedTime(absolute).toMillis()) {
+            return stored;
+        }
+        // the modification time is read before the file is hashed, a change during hashing is detected next time
+        OntologySnapshot.SourceKey current = OntologySnapshot.SourceKey.of(absolute);
+        return stored.getSha256().equals(current.getSha256()) ? current : null;
+    }
+
+    /**
+     * Check the key <code>stored</code> at <code>keyOffset</code> of a snapshot or image file. If the OBO file has only
+     * been touched, its new modification time is written into the stored key, so that the file is not hashed again on
+     * the next load.
+     *
+     * @return <code>true</code> if the <code>stored</code> key still describes the OBO file
+     */
+    static boolean isUpToDate(Path cacheFile, long keyOffset, OntologySnapshot.SourceKey stored, Path oboPath)
+            throws IOException {
+        OntologySnapshot.SourceKey current = currentKey(stored, oboPath);
+        if (current == null) {
+            return false;
+        }
+        if (current != stored) {
+            try {
+                replaceKey(cacheFile, keyOffset, stored, current);
+            } catch (IOException e) {
+                // e.g. read-only app home, the file is hashed again next time
+                LOGGER.debug("Unable to update the key of `{}`: {}", cacheFile, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Overwrite the key in place, the keys differ only in the modification time and have the same length. The key is
+     * not overwritten if the file has been replaced by another process meanwhile.
+     */
+    private static void replaceKey(Path file, long offset, OntologySnapshot.SourceKey expected,
+                                   OntologySnapshot.SourceKey replacement) throws IOException {
+        byte[] expectedBytes = encode(expected);
+        byte[] replacementBytes = encode(replacement);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer current = ByteBuffer.allocate(expectedBytes.length);
+            while (current.hasRemaining() && channel.read(current, offset + current.position()) >= 0) {
+                // read the whole key
+            }
+            if (!Arrays.equals(current.array(), expectedBytes)) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(replacementBytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        }
+        LOGGER.debug("Updated modification time of the OBO file in `{}`", file);
+    }
+
+    private static byte[] encode(OntologySnapshot.SourceKey key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            key.write(out);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,375 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory index for interactive lookup of ontology terms by label, synonym or ID.
+ * <p>
+ * Labels, synonyms and IDs are split into lowercase words. The words are kept in a sorted array that serves as a
+ * flattened prefix trie: all words starting with a prefix occupy a contiguous range of word IDs, which is found by two
+ * binary searches. Every query word must be a prefix of some word of a term; the candidates are collected from the
+ * most selective query word and checked against the remaining ones. A query word that does not start any indexed word
+ * (a typo) is matched through a trigram index against similar words instead.
+ * <p>
+ * The index is immutable and safe for use from multiple threads.
+ */
+public class TermSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TermSearchIndex.class);
+
+    /**
+     * Fraction of trigrams of a query word that must be present in an indexed word to accept it as a fuzzy match.
+     */
+    private static final double MIN_TRIGRAM_OVERLAP = .6;
+
+    private static final int MIN_FUZZY_WORD_LENGTH = 4;
+
+    private final CompactOntology ontology;
+
+    /**
+     * Indexed terms as indices of {@link #ontology}, in the order of ranking.
+     */
+    private final int[] terms;
+
+    /**
+     * Sorted vocabulary, word ID is the index into the array.
+     */
+    private final String[] words;
+
+    /**
+     * Indices of terms that contain the word, sorted.
+     */
+    private final int[][] postings;
+
+    /**
+     * <code>cumulativePostings[i]</code> is the number of postings of words with ID lower than <code>i</code>, so that
+     * the number of candidates for a prefix range is computed in constant time.
+     */
+    private final long[] cumulativePostings;
+
+    /**
+     * Sorted IDs of the words of the label, synonyms and ID of a term.
+     */
+    private final int[][] termWords;
+
+    /**
+     * Sorted IDs of the words of the label of a term.
+     */
+    private final int[][] labelWords;
+
+    private final Map<String, int[]> trigrams;
+
+    private TermSearchIndex(CompactOntology ontology, int[] terms, String[] words, int[][] postings, int[][] termWords, int[][] labelWords,
+                            Map<String, int[]> trigrams) {
+        this.ontology = ontology;
+        this.terms = terms;
+        this.words = words;
+        this.postings = postings;
+        this.termWords = termWords;
+        this.labelWords = labelWords;
+        this.trigrams = trigrams;
+        this.cumulativePostings = new long[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            cumulativePostings[i + 1] = cumulativePostings[i] + postings[i].length;
+        }
+    }
+
+    /**
+     * Index labels, synonyms and IDs of all non-obsolete terms of the <code>ontology</code> except for the root.
+     */
+    public static TermSearchIndex of(CompactOntology ontology) {
+        long start = System.nanoTime();
+        String[] labels = new String[ontology.size()];
+        List<Integer> termList = new ArrayList<>(ontology.size());
+        for (int t = 0; t < ontology.size(); t++) {
+            if (t != ontology.getRoot()) {
+                labels[t] = ontology.getLabel(t);
+                termList.add(t);
+            }
+        }
+        // the order of terms is the ranking of search results, ties are broken by ID
+        termList.sort(Comparator.comparingInt((Integer t) -> labels[t].length()).thenComparingInt(t -> t));
+        int[] terms = termList.stream().mapToInt(Integer::intValue).toArray();
+
+        // words of each term, as strings first
+        List<Set<String>> allWords = new ArrayList<>(terms.length);
+        List<Set<String>> allLabelWords = new ArrayList<>(terms.length);
+        SortedSet<String> vocabulary = new TreeSet<>();
+        for (int term : terms) {
+            Set<String> label = new HashSet<>(tokenize(labels[term]));
+            Set<String> all = new HashSet<>(label);
+            for (String synonym : ontology.getSynonyms(term)) {
+                all.addAll(tokenize(synonym));
+            }
+            all.addAll(tokenize(ontology.getTermId(term)));
+            vocabulary.addAll(all);
+            allWords.add(all);
+            allLabelWords.add(label);
+        }
+        String[] words = vocabulary.toArray(new String[0]);
+        Map<String, Integer> wordIds = new HashMap<>(words.length * 2);
+        for (int i = 0; i < words.length; i++) {
+            wordIds.put(words[i], i);
+        }
+
+        int[][] termWords = new int[terms.length][];
+        int[][] labelWords = new int[terms.length][];
+        int[] postingCounts = new int[words.length];
+        for (int t = 0; t < terms.length; t++) {
+            termWords[t] = toSortedIds(allWords.get(t), wordIds);
+            labelWords[t] = toSortedIds(allLabelWords.get(t), wordIds);
+            for (int w : termWords[t]) {
+                postingCounts[w]++;
+            }
+        }
+        int[][] postings = new int[words.length][];
+        for (int w = 0; w < words.length; w++) {
+            postings[w] = new int[postingCounts[w]];
+            postingCounts[w] = 0;
+        }
+        for (int t = 0; t < terms.length; t++) { // terms are visited in order, postings end up sorted
+            for (int w : termWords[t]) {
+                postings[w][postingCounts[w]++] = t;
+            }
+        }
+
+        Map<String, List<Integer>> trigramLists = new HashMap<>();
+        for (int w = 0; w < words.length; w++) {
+            for (String trigram : trigrams(words[w])) {
+                trigramLists.computeIfAbsent(trigram, k -> new ArrayList<>()).add(w);
+            }
+        }
+        Map<String, int[]> trigrams = new HashMap<>(trigramLists.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : trigramLists.entrySet()) {
+            trigrams.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).distinct().toArray());
+        }
+
+        TermSearchIndex index = new TermSearchIndex(ontology, terms, words, postings, termWords, labelWords, trigrams);
+        LOGGER.debug("Indexed {} terms with {} words in {} ms", terms.length, words.length,
+                (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * Find terms matching the <code>query</code>. Terms whose label matches are ranked first, then terms matched
+     * through synonyms or ID; shorter labels come first within each group. The search stops as soon as enough
+     * label matches are found, so broad queries like a single letter are as fast as specific ones.
+     *
+     * @param query      text typed by the user, e.g. <code>enl spl</code> or <code>HP:00017</code>
+     * @param maxResults maximum number of terms to return
+     * @return matching terms with ID and label, best match first
+     */
+    public List<Term> search(String query, int maxResults) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || maxResults <= 0) {
+            return Collections.emptyList();
+        }
+        List<WordMatch> matches = new ArrayList<>(tokens.size());
+        for (String token : new LinkedHashSet<>(tokens)) {
+            WordMatch match = prefixMatch(token);
+            if (match.isEmpty()) {
+                match = fuzzyMatch(token);
+                if (match.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            matches.add(match);
+        }
+        // start from the query word with the fewest candidate terms
+        WordMatch seed = Collections.min(matches, Comparator.comparingLong(WordMatch::candidateCount));
+        BitSet candidates = new BitSet(terms.length);
+        seed.forEachWord(word -> {
+            for (int t : postings[word]) {
+                candidates.set(t);
+            }
+        });
+
+        // terms are ordered by label length, so the scan visits candidates from the best to the worst
+        int[] labelHits = new int[maxResults];
+        int[] otherHits = new int[maxResults];
+        int nLabelHits = 0, nOtherHits = 0;
+        for (int t = candidates.nextSetBit(0); t >= 0 && nLabelHits < maxResults; t = candidates.nextSetBit(t + 1)) {
+            if (matchesAll(labelWords[t], matches)) {
+                labelHits[nLabelHits++] = terms[t];
+            } else if (nOtherHits < maxResults && matchesAll(termWords[t], matches)) {
+                otherHits[nOtherHits++] = terms[t];
+            }
+        }
+        // terms are created for the returned hits only
+        List<Term> result = new ArrayList<>(Math.min(maxResults, nLabelHits + nOtherHits));
+        for (int i = 0; i < nLabelHits; i++) {
+            result.add(toTerm(labelHits[i]));
+        }
+        for (int i = 0; i < nOtherHits && result.size() < maxResults; i++) {
+            result.add(toTerm(otherHits[i]));
+        }
+        return result;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    private Term toTerm(int index) {
+        return Term.of(TermId.of(ontology.getTermId(index)), ontology.getLabel(index));
+    }
+
+    private static boolean matchesAll(int[] wordIds, List<WordMatch> matches) {
+        for (WordMatch match : matches) {
+            if (!match.matchesAny(wordIds)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private WordMatch prefixMatch(String prefix) {
+        int lo = lowerBound(prefix);
+        int hi = lowerBound(prefix + Character.MAX_VALUE);
+        return new WordMatch(lo, hi, null);
+    }
+
+    private WordMatch fuzzyMatch(String token) {
+        if (token.length() < MIN_FUZZY_WORD_LENGTH) {
+            return new WordMatch(0, 0, null);
+        }
+        List<String> queryTrigrams = trigrams(token);
+        int minShared = (int) Math.ceil(queryTrigrams.size() * MIN_TRIGRAM_OVERLAP);
+        int[] shared = new int[words.length];
+        int[] similar = new int[words.length];
+        int nSimilar = 0;
+        for (String trigram : queryTrigrams) {
+            int[] wordIds = trigrams.get(trigram);
+            if (wordIds != null) {
+                for (int w : wordIds) {
+                    if (++shared[w] == minShared && words[w].length() >= token.length() - 1) {
+                        similar[nSimilar++] = w;
+                    }
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(similar, nSimilar);
+        Arrays.sort(result);
+        return new WordMatch(0, 0, result);
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0, hi = words.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] toSortedIds(Set<String> words, Map<String, Integer> wordIds) {
+        int[] ids = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            ids[i++] = wordIds.get(word);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Trigrams of the word padded with a leading <code>^</code>, so that the start of a word weighs in.
+     */
+    private static List<String> trigrams(String word) {
+        String padded = "^" + word;
+        List<String> result = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        int i = 0, n = text.length();
+        while (i < n) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                int begin = i;
+                while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(begin, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Words matched by a single query word, either a contiguous range of word IDs or an explicit sorted set.
+     */
+    private final class WordMatch {
+        private final int lo;
+        private final int hi;
+        private final int[] wordIds;
+
+        private WordMatch(int lo, int hi, int[] wordIds) {
+            this.lo = lo;
+            this.hi = hi;
+            this.wordIds = wordIds;
+        }
+
+        boolean isEmpty() {
+            return wordIds == null ? lo >= hi : wordIds.length == 0;
+        }
+
+        long candidateCount() {
+            if (wordIds == null) {
+                return cumulativePostings[hi] - cumulativePostings[lo];
+            }
+            long count = 0;
+            for (int w : wordIds) {
+                count += postings[w].length;
+            }
+            return count;
+        }
+
+        void forEachWord(IntConsumer consumer) {
+            if (wordIds == null) {
+                for (int w = lo; w < hi; w++) {
+                    consumer.accept(w);
+                }
+            } else {
+                for (int w : wordIds) {
+                    consumer.accept(w);
+                }
+            }
+        }
+
+        /**
+         * @param sortedWordIds sorted word IDs of a term
+         */
+        boolean matchesAny(int[] sortedWordIds) {
+            if (wordIds == null) {
+                int i = Arrays.binarySearch(sortedWordIds, lo);
+                int insertion = i >= 0 ? i : -i - 1;
+                return insertion < sortedWordIds.length && sortedWordIds[insertion] < hi;
+            }
+            for (int w : sortedWordIds) {
+                if (Arrays.binarySearch(wordIds, w) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.jax.phenopacketgenerator.textmining;
+
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.monarchinitiative.hpotextmining.core.miners.MinedTerm;
+import org.monarchinitiative.hpotextmining.core.miners.SimpleMinedTerm;
+import org.monarchinitiative.hpotextmining.core.miners.TermMiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * {@link TermMiner} that recognizes HPO terms in text locally, without a remote service.
+ * <p>
+ * Term names and synonyms are normalized into token sequences (see {@link Tokenizer}) and compiled into a token-level
+ * Aho-Corasick automaton, so the text is scanned in a single pass regardless of the number of terms. Overlapping hits
+ * are resolved in favor of the longest match. A hit is reported as excluded if a negation cue (e.g. <em>no</em>,
+ * <em>without</em>) precedes it within the same sentence.
+ */
+public class OfflineTermMiner implements TermMiner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineTermMiner.class);
+
+    /**
+     * Number of tokens preceding a hit that are searched for a negation cue.
+     */
+    private static final int NEGATION_WINDOW = 6;
+
+    private static final Set<String> NEGATION_CUES = new HashSet<>(Arrays.asList(
+            "no", "not", "without", "denie", "denied", "negative", "absent", "absence", "excluded", "never", "nor"));
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "all", "as", "at", "by", "for", "in", "is", "it", "of", "on", "or", "the", "to", "with"));
+
+    private final Map<String, Integer> vocabulary;
+
+    /**
+     * Goto function of the automaton, key is <code>(state << 32) | token</code>.
+     */
+    private final Map<Long, Integer> transitions;
+
+    private final int[] fail;
+
+    /**
+     * Index into {@link #termIds} of the pattern ending in the state or <code>-1</code>.
+     */
+    private final int[] output;
+
+    /**
+     * The nearest state on the failure path that has an output, or <code>0</code>.
+     */
+    private final int[] outputLink;
+
+    /**
+     * Pattern length in tokens for states with output.
+     */
+    private final int[] depth;
+
+    private final String[] termIds;
+
+    private OfflineTermMiner(Builder builder) {
+        this.vocabulary = builder.vocabulary;
+        this.transitions = builder.transitions;
+        this.termIds = builder.termIds.toArray(new String[0]);
+        int nStates = builder.output.size();
+        this.output = new int[nStates];
+        this.depth = new int[nStates];
+        for (int i = 0; i < nStates; i++) {
+            output[i] = builder.output.get(i);
+            depth[i] = builder.depth.get(i);
+        }
+        this.fail = new int[nStates];
+        this.outputLink = new int[nStates];
+        computeFailureLinks(builder.children);
+    }
+
+    /**
+     * Build the miner from names and synonyms of all non-obsolete terms of the <code>ontology</code>.
+     */
+    public static OfflineTermMiner fromOntology(CompactOntology ontology) {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        // names first, so that a name wins over the same synonym of another term
+        for (int t = 0; t < ontology.size(); t++) {
+            if (t != ontology.getRoot()) {
+                builder.add(ontology.getLabel(t), ontology.getTermId(t));
+            }
+        }
+        for (int t = 0; t < ontology.size(); t++) {
+            if (t != ontology.getRoot()) {
+                for (String synonym : ontology.getSynonyms(t)) {
+                    builder.add(synonym, ontology.getTermId(t));
+                }
+            }
+        }
+        OfflineTermMiner miner = new OfflineTermMiner(builder);
+        LOGGER.debug("Built offline term miner with {} patterns and {} states in {} ms",
+                builder.nPatterns, miner.output.length, (System.nanoTime() - start) / 1_000_000);
+        return miner;
+    }
+
+    private void computeFailureLinks(List<List<long[]>> children) {
+        // breadth-first traversal, children of a state are stored as (token, child state) pairs
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (long[] child : children.get(0)) {
+            int state = (int) child[1];
+            fail[state] = 0;
+            outputLink[state] = 0;
+            queue.add(state);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (long[] child : children.get(state)) {
+                int token = (int) child[0];
+                int next = (int) child[1];
+                int f = fail[state];
+                Integer target;
+                while ((target = transitions.get(key(f, token))) == null && f != 0) {
+                    f = fail[f];
+                }
+                fail[next] = target == null || target == next ? 0 : target;
+                outputLink[next] = output[fail[next]] >= 0 ? fail[next] : outputLink[fail[next]];
+                queue.add(next);
+            }
+        }
+    }
+
+    private static long key(int state, int token) {
+        return ((long) state << 32) | (token & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public Collection<MinedTerm> doMining(String query) {
+        List<Tokenizer.Token> tokens = Tokenizer.tokenize(query);
+        List<int[]> hits = new ArrayList<>(); // start token, end token (inclusive), term index
+        int state = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Integer token = vocabulary.get(tokens.get(i).getValue());
+            if (token == null) {
+                state = 0;
+                continue;
+            }
+            Integer next;
+            while ((next = transitions.get(key(state, token))) == null && state != 0) {
+                state = fail[state];
+            }
+            state = next == null ? 0 : next;
+            int s = output[state] >= 0 ? state : outputLink[state];
+            while (s != 0) {
+                hits.add(new int[]{i - depth[s] + 1, i, output[s]});
+                s = outputLink[s];
+            }
+        }
+        return selectLongest(tokens, hits);
+    }
+
+    private List<MinedTerm> selectLongest(List<Tokenizer.Token> tokens, List<int[]> hits) {
+        hits.sort((a, b) -> {
+            int byLength = Integer.compare(b[1] - b[0], a[1] - a[0]);
+            return byLength != 0 ? byLength : Integer.compare(a[0], b[0]);
+        });
+        boolean[] used = new boolean[tokens.size()];
+        List<MinedTerm> mined = new ArrayList<>();
+        for (int[] hit : hits) {
+            boolean free = true;
+            for (int i = hit[0]; i <= hit[1] && free; i++) {
+                free = !used[i];
+            }
+            if (!free) {
+                continue;
+            }
+            Arrays.fill(used, hit[0], hit[1] + 1, true);
+            Tokenizer.Token first = tokens.get(hit[0]);
+            Tokenizer.Token last = tokens.get(hit[1]);
+            mined.add(new SimpleMinedTerm(first.getBegin(), last.getEnd(), termIds[hit[2]], !isNegated(tokens, hit[0])));
+        }
+        mined.sort(SimpleMinedTerm.compareByBegin());
+        return mined;
+    }
+
+    private static boolean isNegated(List<Tokenizer.Token> tokens, int start) {
+        int sentence = tokens.get(start).getSentence();
+        for (int i = start - 1; i >= 0 && i >= start - NEGATION_WINDOW; i--) {
+            Tokenizer.Token token = tokens.get(i);
+            if (token.getSentence() != sentence) {
+                break;
+            }
+            if (NEGATION_CUES.contains(token.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Builder {
+        private final Map<String, Integer> vocabulary = new HashMap<>();
+        private final Map<Long, Integer> transitions = new HashMap<>();
+        private final List<List<long[]>> children = new ArrayList<>();
+        private final List<Integer> output = new ArrayList<>();
+        private final List<Integer> depth = new ArrayList<>();
+        private final List<String> termIds = new ArrayList<>();
+        private int nPatterns = 0;
+
+        private Builder() {
+            newState(0);
+        }
+
+        private int newState(int stateDepth) {
+            children.add(new ArrayList<>(2));
+            output.add(-1);
+            depth.add(stateDepth);
+            return output.size() - 1;
+        }
+
+        private void add(String text, String termId) {
+            if (text == null) {
+                return;
+            }
+            List<Tokenizer.Token> tokens = Tokenizer.tokenize(text);
+            if (tokens.isEmpty() || (tokens.size() == 1 && STOP_WORDS.contains(tokens.get(0).getValue()))) {
+                return;
+            }
+            int state = 0;
+            for (Tokenizer.Token t : tokens) {
+                Integer token = vocabulary.get(t.getValue());
+                if (token == null) {
+                    token = vocabulary.size();
+                    vocabulary.put(t.getValue(), token);
+                }
+                long key = key(state, token);
+                Integer next = transitions.get(key);
+                if (next == null) {
+                    next = newState(depth.get(state) + 1);
+                    transitions.put(key, next);
+                    children.get(state).add(new long[]{token, next});
+                }
+                state = next;
+            }
+            if (output.get(state) < 0) {
+                termIds.add(termId);
+                output.set(state, termIds.size() - 1);
+                nPatterns++;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.jax.phenopacketgenerator.textmining;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.jax.phenopacketgenerator.metrics.PgMetrics;
+import org.monarchinitiative.hpotextmining.core.miners.MinedTerm;
+import org.monarchinitiative.hpotextmining.core.miners.TermMiner;
+import org.monarchinitiative.hpotextmining.core.miners.TermMinerException;
+
+import java.util.Collection;
+
+/**
+ * {@link TermMiner} decorator that records duration, failures and the number of mined terms of each request, tagged
+ * by the text mining engine.
+ */
+public class TimedTermMiner implements TermMiner {
+
+    private final TermMiner delegate;
+
+    private final Timer timer;
+
+    private final Counter failures;
+
+    public TimedTermMiner(TermMiner delegate, String engine) {
+        this.delegate = delegate;
+        this.timer = PgMetrics.timer("pg.textmining.requests", "Text mining requests", "engine", engine);
+        this.failures = PgMetrics.counter("pg.textmining.failures", "Failed text mining requests", "engine", engine);
+    }
+
+    @Override
+    public Collection<MinedTerm> doMining(String query) throws TermMinerException {
+        long start = System.nanoTime();
+        try {
+            return delegate.doMining(query);
+        } catch (TermMinerException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            PgMetrics.recordSince(timer, start);
+        }
+    }
+}
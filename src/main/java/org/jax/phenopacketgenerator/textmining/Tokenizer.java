@@ -0,0 +1,81 @@
+package org.jax.phenopacketgenerator.textmining;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into normalized tokens. A token is a run of letters and digits; it is lowercased and a plural
+ * <em>s</em> or possessive <em>'s</em> is removed, so that e.g. <em>Seizures</em> and <em>seizure</em> are the same
+ * token. Each token remembers its character offsets in the original text and the index of its sentence.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+        // private no-op
+    }
+
+    static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int sentence = 0;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                int begin = i;
+                while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(normalize(text.substring(begin, i)), begin, i, sentence));
+            } else {
+                if (c == '.' || c == '!' || c == '?' || c == ';' || c == '\n') {
+                    sentence++;
+                }
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    static String normalize(String token) {
+        String lower = token.toLowerCase();
+        int length = lower.length();
+        if (length > 3 && lower.endsWith("s") && !lower.endsWith("ss") && !lower.endsWith("us") && !lower.endsWith("is")) {
+            return lower.substring(0, length - 1);
+        }
+        return lower;
+    }
+
+    static final class Token {
+        private final String value;
+        private final int begin;
+        private final int end;
+        private final int sentence;
+
+        private Token(String value, int begin, int end, int sentence) {
+            this.value = value;
+            this.begin = begin;
+            this.end = end;
+            this.sentence = sentence;
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        int getBegin() {
+            return begin;
+        }
+
+        /**
+         * @return offset of the first character after the token
+         */
+        int getEnd() {
+            return end;
+        }
+
+        int getSentence() {
+            return sentence;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.jax.phenopacketgenerator.vcf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checksum of a file computed by several threads, so that a multi-gigabyte VCF file is hashed at the speed of the disk
+ * rather than the speed of a single core.
+ * <p>
+ * The checksum is a SHA-256 tree hash with a single level: the file is split into chunks of {@link #CHUNK_SIZE} bytes
+ * (the last one may be shorter), each chunk is hashed with SHA-256 and the checksum is SHA-256 of the concatenated
+ * chunk hashes. The checksum of an empty file is SHA-256 of no data. It can be verified without this class, e.g.
+ * <pre>
+ * split -b 8M file.vcf.gz chunk. && for c in chunk.*; do sha256sum $c | cut -c1-64 | xxd -r -p; done | sha256sum
+ * </pre>
+ * Chunks are read with positional {@link FileChannel} reads, which do not map the file, so the file is not locked
+ * on Windows after the checksum is computed.
+ * <p>
+ * Instances are immutable.
+ */
+public final class ChunkedDigest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedDigest.class);
+
+    /**
+     * Name of the checksum, used as prefix of {@link #getChecksum()}.
+     */
+    public static final String NAME = "sha256-tree-8MiB";
+
+    public static final int CHUNK_SIZE = 8 << 20;
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * Size of a single read, chunks are hashed in parts of this size to keep the buffers small.
+     */
+    private static final int READ_SIZE = 1 << 20;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path path;
+
+    private final long size;
+
+    private final FileTime lastModified;
+
+    private final String hex;
+
+    private ChunkedDigest(Path path, long size, FileTime lastModified, String hex) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hex = hex;
+    }
+
+    /**
+     * Compute the checksum of the file in the background. Up to <code>parallelism</code> tasks are submitted to the
+     * <code>executor</code>, each of them hashes chunks until all chunks are done, so the number of submitted tasks
+     * does not depend on the size of the file.
+     * <p>
+     * Cancelling the returned future stops the computation after the chunks that are being hashed.
+     *
+     * @param executor    executor for reading and hashing of the chunks, an executor for IO-bound tasks is suitable
+     * @param parallelism maximum number of chunks hashed at the same time
+     * @return future checksum, completed exceptionally with {@link UncheckedIOException} if the file cannot be read or
+     * changes during the computation
+     */
+    public static CompletableFuture<ChunkedDigest> computeAsync(Path path, Executor executor, int parallelism) {
+        CompletableFuture<ChunkedDigest> result = new CompletableFuture<>();
+        FileChannel channel;
+        long size;
+        FileTime lastModified;
+        try {
+            lastModified = Files.getLastModifiedTime(path);
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            result.completeExceptionally(new UncheckedIOException(e));
+            return result;
+        }
+        long start = System.nanoTime();
+        byte[][] chunkHashes = new byte[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)][];
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        int nTasks = Math.max(1, Math.min(parallelism, chunkHashes.length));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[nTasks];
+        for (int i = 0; i < nTasks; i++) {
+            try {
+                tasks[i] = CompletableFuture.runAsync(() -> hashChunks(channel, size, chunkHashes, nextChunk, stop), executor);
+            } catch (RejectedExecutionException e) {
+                // the tasks submitted so far will hash all chunks
+                tasks[i] = CompletableFuture.completedFuture(null);
+                if (i == 0) {
+                    tasks[i] = new CompletableFuture<>();
+                    tasks[i].completeExceptionally(e);
+                }
+            }
+            // the first failure stops the other tasks
+            tasks[i].whenComplete((ignored, e) -> {
+                if (e != null) {
+                    stop.set(true);
+                }
+            });
+        }
+        result.whenComplete((digest, e) -> stop.set(true));
+        CompletableFuture.allOf(tasks).whenComplete((ignored, e) -> {
+            try {
+                channel.close();
+                if (result.isDone()) {
+                    // cancelled, some chunks have not been hashed
+                    return;
+                }
+                if (e != null) {
+                    throw e instanceof CompletionException ? e.getCause() : e;
+                }
+                if (Files.size(path) != size || !Files.getLastModifiedTime(path).equals(lastModified)) {
+                    throw new IOException("File " + path + " changed while its checksum was computed");
+                }
+                ChunkedDigest digest = new ChunkedDigest(path, size, lastModified, combine(chunkHashes));
+                LOGGER.debug("Computed checksum of `{}` ({} bytes) in {} ms", path, size,
+                        (System.nanoTime() - start) / 1_000_000);
+                result.complete(digest);
+            } catch (IOException ex) {
+                result.completeExceptionally(new UncheckedIOException(ex));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Compute the checksum and wait for the result.
+     *
+     * @see #computeAsync(Path, Executor, int)
+     */
+    public static ChunkedDigest compute(Path path, Executor executor, int parallelism) throws IOException, InterruptedException {
+        CompletableFuture<ChunkedDigest> future = computeAsync(path, executor, parallelism);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void hashChunks(FileChannel channel, long size, byte[][] chunkHashes, AtomicInteger nextChunk,
+                                   AtomicBoolean stop) {
+        MessageDigest md = newMessageDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_SIZE);
+        int chunk;
+        try {
+            while (!stop.get() && (chunk = nextChunk.getAndIncrement()) < chunkHashes.length) {
+                long position = (long) chunk * CHUNK_SIZE;
+                long end = Math.min(position + CHUNK_SIZE, size);
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(READ_SIZE, end - position));
+                    int n = channel.read(buffer, position);
+                    if (n < 0) {
+                        throw new IOException("File has been truncated while its checksum was computed");
+                    }
+                    position += n;
+                    buffer.flip();
+                    md.update(buffer);
+                }
+                chunkHashes[chunk] = md.digest();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String combine(byte[][] chunkHashes) {
+        MessageDigest md = newMessageDigest();
+        for (byte[] chunkHash : chunkHashes) {
+            md.update(chunkHash);
+        }
+        byte[] hash = md.digest();
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return hex-encoded tree hash
+     */
+    public String getHex() {
+        return hex;
+    }
+
+    /**
+     * @return checksum with the name of the algorithm, e.g. <code>sha256-tree-8MiB:3a7bd3e2...</code>
+     */
+    public String getChecksum() {
+        return NAME + ":" + hex;
+    }
+
+    /**
+     * @return <code>true</code> if the size and modification time of the file are the same as when the checksum was
+     * computed
+     */
+    public boolean isCurrent() {
+        try {
+            return Files.size(path) == size && Files.getLastModifiedTime(path).equals(lastModified);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getChecksum();
+    }
+}
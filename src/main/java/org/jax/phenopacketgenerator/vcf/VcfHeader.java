@@ -0,0 +1,313 @@
+package org.jax.phenopacketgenerator.vcf;
+
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The parts of a VCF header needed to check a phenopacket: reference, contig lengths, sample IDs and the genome
+ * assembly inferred from them.
+ * <p>
+ * {@link #read(Path)} reads the file only up to the <code>#CHROM</code> line. Files compressed with gzip or bgzip are
+ * inflated as the header is read, so only the first blocks of the file are inflated and the time needed does not
+ * depend on the size of the body.
+ * <p>
+ * Instances are immutable.
+ */
+public final class VcfHeader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VcfHeader.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Header lines longer than this are not expected, the file is most likely not a VCF file. The <code>#CHROM</code>
+     * line of a VCF file with a million samples is about 10 MB long.
+     */
+    private static final int MAX_LINE_LENGTH = 1 << 26;
+
+    /**
+     * The first fixed columns of the <code>#CHROM</code> line, sample IDs follow.
+     */
+    private static final int N_FIXED_COLUMNS = 9;
+
+    /**
+     * Lengths of chromosome 1 in the assemblies offered by the GUI.
+     */
+    private static final Map<Long, String> CHR1_LENGTHS = makeChr1Lengths();
+
+    private final String fileFormat;
+
+    private final String reference;
+
+    private final Map<String, Long> contigLengths;
+
+    private final List<String> sampleIds;
+
+    private final String assembly;
+
+    private VcfHeader(String fileFormat, String reference, Map<String, Long> contigLengths, List<String> sampleIds) {
+        this.fileFormat = fileFormat;
+        this.reference = reference;
+        this.contigLengths = contigLengths;
+        this.sampleIds = sampleIds;
+        this.assembly = inferAssembly(reference, contigLengths);
+    }
+
+    private static Map<Long, String> makeChr1Lengths() {
+        Map<Long, String> lengths = new HashMap<>();
+        lengths.put(249_250_621L, "hg19");
+        lengths.put(248_956_422L, "hg38");
+        return Collections.unmodifiableMap(lengths);
+    }
+
+    /**
+     * Read the header of a <code>.vcf</code> or <code>.vcf.gz</code> file.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws PGException if the file does not start with a VCF header
+     */
+    public static VcfHeader read(Path vcfPath) throws IOException, PGException {
+        long start = System.nanoTime();
+        try (InputStream is = open(vcfPath)) {
+            VcfHeader header = read(is);
+            LOGGER.debug("Read header of `{}` in {} ms", vcfPath, (System.nanoTime() - start) / 1_000_000);
+            return header;
+        }
+    }
+
+    private static InputStream open(Path vcfPath) throws IOException {
+        InputStream is = new BufferedInputStream(Files.newInputStream(vcfPath), BUFFER_SIZE);
+        is.mark(2);
+        boolean gzip = is.read() == 0x1f && is.read() == 0x8b;
+        is.reset();
+        // a bgzip file is a series of gzip members, inflating stops with the reading at the end of the header
+        return gzip ? new GZIPInputStream(is, BUFFER_SIZE) : is;
+    }
+
+    /**
+     * Read the header from an uncompressed stream.
+     */
+    static VcfHeader read(InputStream is) throws IOException, PGException {
+        LineReader reader = new LineReader(is);
+        String line = reader.readLine();
+        if (line == null || !line.startsWith("##fileformat=VCF")) {
+            throw new PGException("Not a VCF file, the first line must be ##fileformat=VCF...");
+        }
+        String fileFormat = line.substring("##fileformat=".length());
+        String reference = null;
+        Map<String, Long> contigLengths = new LinkedHashMap<>();
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("##reference=")) {
+                reference = line.substring("##reference=".length());
+            } else if (line.startsWith("##contig=<")) {
+                parseContig(line, contigLengths);
+            } else if (line.startsWith("#CHROM")) {
+                String[] columns = line.split("\t");
+                List<String> sampleIds = columns.length > N_FIXED_COLUMNS
+                        ? Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(columns, N_FIXED_COLUMNS, columns.length)))
+                        : Collections.emptyList();
+                return new VcfHeader(fileFormat, reference, Collections.unmodifiableMap(contigLengths), sampleIds);
+            } else if (!line.startsWith("##")) {
+                break;
+            }
+        }
+        throw new PGException("VCF header does not end with a #CHROM line");
+    }
+
+    private static void parseContig(String line, Map<String, Long> contigLengths) {
+        String id = null;
+        long length = -1;
+        // ##contig=<ID=chr1,length=248956422,assembly=...>
+        for (String field : line.substring("##contig=<".length(), line.length() - 1).split(",")) {
+            if (field.startsWith("ID=")) {
+                id = field.substring(3);
+            } else if (field.startsWith("length=")) {
+                try {
+                    length = Long.parseLong(field.substring(7));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Invalid contig length in `{}`", line);
+                }
+            }
+        }
+        if (id != null && length >= 0) {
+            contigLengths.put(id, length);
+        }
+    }
+
+    /**
+     * The length of chromosome 1 identifies the assembly, the reference file name is used if contigs are not listed.
+     */
+    private static String inferAssembly(String reference, Map<String, Long> contigLengths) {
+        Long chr1 = contigLengths.containsKey("chr1") ? contigLengths.get("chr1") : contigLengths.get("1");
+        if (chr1 != null && CHR1_LENGTHS.containsKey(chr1)) {
+            return CHR1_LENGTHS.get(chr1);
+        }
+        if (reference == null) {
+            return null;
+        }
+        String name = reference.toLowerCase();
+        if (name.contains("hg38") || name.contains("grch38") || name.contains("hs38")) {
+            return "hg38";
+        }
+        if (name.contains("hg19") || name.contains("grch37") || name.contains("hs37") || name.contains("b37")
+                || name.contains("g1k_v37")) {
+            return "hg19";
+        }
+        return null;
+    }
+
+    /**
+     * @return version from the <code>##fileformat</code> line, e.g. <code>VCFv4.2</code>
+     */
+    public String getFileFormat() {
+        return fileFormat;
+    }
+
+    /**
+     * @return value of the <code>##reference</code> line
+     */
+    public Optional<String> getReference() {
+        return Optional.ofNullable(reference);
+    }
+
+    /**
+     * @return lengths of contigs listed in <code>##contig</code> lines in the order of the header
+     */
+    public Map<String, Long> getContigLengths() {
+        return contigLengths;
+    }
+
+    /**
+     * @return sample IDs in the order of the columns
+     */
+    public List<String> getSampleIds() {
+        return sampleIds;
+    }
+
+    /**
+     * @return assembly in the format used by {@link PgModel#getGenomeAssembly()}, e.g. <code>hg38</code>, or empty
+     * {@link Optional} if the header does not identify the assembly
+     */
+    public Optional<String> getAssembly() {
+        return Optional.ofNullable(assembly);
+    }
+
+    /**
+     * Check that the model matches this header of its VCF file: the proband (or {@link PgModel#getVcfSampleId()} if
+     * set) is one of the samples and the genome assembly is the inferred assembly.
+     *
+     * @return problems found, empty list if there are none
+     */
+    public List<ValidationIssue> validate(PgModel model) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        String probandId = model.getVcfSampleId() != null ? model.getVcfSampleId() : model.getProbandId();
+        if (probandId != null && !probandId.isEmpty() && !sampleIds.contains(probandId)) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.PROBAND_NOT_IN_VCF, "proband_id",
+                    sampleIds.isEmpty()
+                            ? String.format("VCF file has no samples, proband `%s` is not among them", probandId)
+                            : String.format("Proband `%s` is not a sample of the VCF file, samples are %s", probandId,
+                            summarize(sampleIds))));
+        }
+        String modelAssembly = model.getGenomeAssembly();
+        if (assembly != null && modelAssembly != null && !isSameAssembly(assembly, modelAssembly)) {
+            issues.add(ValidationIssue.of(ValidationIssue.Type.ASSEMBLY_MISMATCH, "assembly",
+                    String.format("Genome assembly is `%s`, but the VCF header indicates `%s`", modelAssembly, assembly)));
+        }
+        return issues;
+    }
+
+    /**
+     * @return <code>true</code> if both names denote the same assembly, GRC names are equal to the UCSC names, e.g.
+     * <code>GRCh37</code> and <code>hg19</code>
+     */
+    public static boolean isSameAssembly(String assembly, String other) {
+        return normalizeAssembly(assembly).equals(normalizeAssembly(other));
+    }
+
+    private static String normalizeAssembly(String assembly) {
+        String name = assembly.toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "grch37":
+                return "hg19";
+            case "grch38":
+                return "hg38";
+            default:
+                return name;
+        }
+    }
+
+    private static String summarize(List<String> ids) {
+        int shown = Math.min(ids.size(), 5);
+        String summary = String.join(", ", ids.subList(0, shown));
+        return ids.size() > shown ? String.format("%s and %d more", summary, ids.size() - shown) : summary;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VcfHeader{fileFormat=%s, assembly=%s, contigs=%d, samples=%d}", fileFormat, assembly,
+                contigLengths.size(), sampleIds.size());
+    }
+
+    /**
+     * Reads lines of the header, unlike {@link BufferedReader} with a limit on the line length. Lines are searched for
+     * in chunks, which keeps long <code>#CHROM</code> lines of joint-called VCF files cheap.
+     */
+    private static final class LineReader {
+
+        private final InputStream is;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+        private int position;
+
+        private int limit;
+
+        private LineReader(InputStream is) {
+            this.is = is;
+        }
+
+        private String readLine() throws IOException, PGException {
+            line.reset();
+            while (true) {
+                if (position == limit) {
+                    limit = is.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return line.size() == 0 ? null : toLine();
+                    }
+                }
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                line.write(buffer, position, end - position);
+                if (line.size() > MAX_LINE_LENGTH) {
+                    throw new PGException("VCF header line longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                if (end < limit) {
+                    position = end + 1;
+                    return toLine();
+                }
+                position = limit;
+            }
+        }
+
+        private String toLine() {
+            String s = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.io.JsonDirectoryWriter;
+import org.jax.phenopacketgenerator.io.PhenopacketJson;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.is;
+
+class CaseFolderWatcherTest {
+
+    private static final int N_CASES = 300;
+
+    @TempDir
+    Path tempDir;
+
+    private static void writeTable(Path path, String probandPrefix, String hpoId) throws IOException {
+        StringBuilder table = new StringBuilder("proband_id\tphenopacket_id\thpo_ids\n");
+        for (int i = 0; i < N_CASES; i++) {
+            table.append(probandPrefix).append(i).append("\tPP").append(i).append('\t').append(hpoId).append('\n');
+        }
+        Files.write(path, table.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isProcessed(Path stateFile, String... names) throws IOException {
+        if (!Files.exists(stateFile)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+        return Stream.of(names).allMatch(name -> lines.stream().anyMatch(line -> line.startsWith(name + "\t")));
+    }
+
+    @Test
+    void tablesSharingPhenopacketIdsLeaveCompleteFiles() throws Exception {
+        Path oboPath = Paths.get(CaseFolderWatcherTest.class
+                .getResource("/org/jax/phenopacketgenerator/ontology/hp_small.obo").toURI());
+        CaseModelFactory modelFactory = new CaseModelFactory(CompactOntology.read(oboPath), "eco", "1.0", "HP:me");
+        Path inputDir = Files.createDirectory(tempDir.resolve("in"));
+        Path outputDir = tempDir.resolve("out");
+        Path stateFile = tempDir.resolve("state.tsv");
+        // a corrected copy of the table dropped under another name
+        writeTable(inputDir.resolve("cases.tsv"), "A", "HP:0001744");
+        writeTable(inputDir.resolve("cases-corrected.tsv"), "B", "HP:0030242");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (JsonDirectoryWriter writer = new JsonDirectoryWriter(outputDir);
+             CaseFolderWatcher watcher = new CaseFolderWatcher(inputDir, stateFile, Duration.ofMillis(50),
+                     new BatchExporter(modelFactory, writer, 2), 2)) {
+            Future<?> run = executor.submit(() -> {
+                watcher.run();
+                return null;
+            });
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (!isProcessed(stateFile, "cases.tsv", "cases-corrected.tsv")
+                    && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            watcher.stop();
+            run.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(outputDir)) {
+            files = stream.collect(Collectors.toList());
+        }
+        // no temporary files are left behind
+        assertThat(files.size(), is(N_CASES));
+        for (Path file : files) {
+            Phenopacket phenopacket = PhenopacketJson.read(file);
+            String probandId = phenopacket.getSubject().getId();
+            String hpoId = phenopacket.getPhenotypicFeatures(0).getType().getId();
+            assertThat(probandId.substring(0, 1) + hpoId, anyOf(is("AHP:0001744"), is("BHP:0030242")));
+            assertThat(file.getFileName().toString(), is(phenopacket.getId() + ".json"));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.PgOntologyClass;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CaseModelFactoryTest {
+
+    private CaseModelFactory factory;
+
+    @BeforeEach
+    void setUp() throws IOException, URISyntaxException {
+        Path oboPath = Paths.get(CaseModelFactoryTest.class
+                .getResource("/org/jax/phenopacketgenerator/ontology/hp_small.obo").toURI());
+        factory = new CaseModelFactory(CompactOntology.read(oboPath), "eco", "1.0", "HP:me");
+    }
+
+    private static CaseRow row(String hpoIds) {
+        return CaseRow.newBuilder()
+                .setProbandId("P1")
+                .setPhenopacketId("PP1")
+                .setSex("f")
+                .setHpoIds(hpoIds)
+                .build();
+    }
+
+    private static List<String> describe(PgModel model) {
+        return model.getPhenotypes().stream()
+                .map(p -> (p.getNotObserved() ? "!" : "") + p.getId() + " " + p.getLabel())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void semicolonAndPipeSeparateIds() throws PGException {
+        PgModel model = factory.toModel(row("HP:0001744; HP:0002240|HP:0030242;;"));
+
+        assertThat(describe(model), containsInAnyOrder(
+                "HP:0001744 Splenomegaly",
+                "HP:0002240 Abnormality of the spleen",
+                "HP:0030242 Portal vein thrombosis"));
+        assertThat(model.getSex(), is("FEMALE"));
+        assertThat(model.getBiocurator(), is("HP:me"));
+    }
+
+    @Test
+    void exclamationMarkExcludesTerm() throws PGException {
+        PgModel model = factory.toModel(row("HP:0001744|! HP:0030242;!HP:0002240"));
+
+        assertThat(describe(model), containsInAnyOrder(
+                "HP:0001744 Splenomegaly",
+                "!HP:0030242 Portal vein thrombosis",
+                "!HP:0002240 Abnormality of the spleen"));
+    }
+
+    @Test
+    void alternativeIdIsReplacedByPrimaryId() throws PGException {
+        PgModel model = factory.toModel(row("!HP:0001745"));
+
+        assertThat(describe(model), containsInAnyOrder("!HP:0001744 Splenomegaly"));
+    }
+
+    @Test
+    void unknownAndObsoleteIdsAreRejected() {
+        PGException unknown = assertThrows(PGException.class, () -> factory.toModel(row("HP:0001744;HP:9999999")));
+        PGException obsolete = assertThrows(PGException.class, () -> factory.toModel(row("!HP:0000003")));
+
+        assertThat(unknown.getMessage(), is("Unknown HPO ID `HP:9999999`"));
+        assertThat(obsolete.getMessage(), is("Obsolete HPO ID `HP:0000003`"));
+    }
+
+    @Test
+    void validationModelKeepsIdsAsTheyAre() {
+        PgModel model = factory.toModelForValidation(row("HP:0001745|!HP:0000003;HP:9999999"));
+
+        assertThat(describe(model), containsInAnyOrder("HP:0001745 Splenomegaly", "!HP:0000003 ", "HP:9999999 "));
+        // no VCF path, no assembly
+        assertThat(model.getGenomeAssembly(), is(nullValue()));
+    }
+}
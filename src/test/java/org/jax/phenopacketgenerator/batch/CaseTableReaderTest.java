@@ -0,0 +1,97 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.PGException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CaseTableReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CaseTableReader reader(String table, char delimiter) throws IOException, PGException {
+        return new CaseTableReader(new BufferedReader(new StringReader(table)), delimiter);
+    }
+
+    @Test
+    void quotedCsvFields() throws IOException, PGException {
+        String table = "proband_id,phenopacket_id,hpo_ids,vcf_path\n"
+                + "P1,PP1,\"HP:0001744;!HP:0030242\",\"/data/a,b.vcf\"\n"
+                + "\"P \"\"2\"\"\",PP2,HP:0001744,\n";
+
+        try (CaseTableReader reader = reader(table, ',')) {
+            CaseRow first = reader.next();
+            assertThat(first.getHpoIds(), is("HP:0001744;!HP:0030242"));
+            assertThat(first.getVcfPath(), is("/data/a,b.vcf"));
+            assertThat(first.getLineNumber(), is(2L));
+
+            CaseRow second = reader.next();
+            assertThat(second.getProbandId(), is("P \"2\""));
+            assertThat(second.getVcfPath(), is(""));
+
+            assertThat(reader.next(), is(nullValue()));
+        }
+    }
+
+    @Test
+    void quotesAreKeptInTsv() throws IOException, PGException {
+        try (CaseTableReader reader = reader("proband_id\tphenopacket_id\thpo_ids\n\"P1\"\tPP1\tHP:0001744\n", '\t')) {
+            assertThat(reader.next().getProbandId(), is("\"P1\""));
+        }
+    }
+
+    @Test
+    void columnsAreMatchedByAlias() throws IOException, PGException {
+        String table = "# exported from the clinic\n"
+                + "\n"
+                + "Phenotypes\tProband\tPhenopacket ID\tGenome_Assembly\n"
+                + "HP:0001744\tP1\tPP1\thg38\n";
+
+        try (CaseTableReader reader = reader(table, '\t')) {
+            CaseRow row = reader.next();
+            assertThat(row.getProbandId(), is("P1"));
+            assertThat(row.getPhenopacketId(), is("PP1"));
+            assertThat(row.getHpoIds(), is("HP:0001744"));
+            assertThat(row.getGenomeAssembly(), is("hg38"));
+            assertThat(row.getSex(), is(""));
+            assertThat(row.getLineNumber(), is(4L));
+        }
+    }
+
+    @Test
+    void byteOrderMarkIsIgnored() throws IOException, PGException {
+        Path csv = tempDir.resolve("cases.csv");
+        Files.write(csv, "\uFEFFproband_id,phenopacket_id,hpo_ids\nP1,PP1,HP:0001744\n"
+                .getBytes(StandardCharsets.UTF_8));
+        Path commented = tempDir.resolve("cases.tsv");
+        Files.write(commented, "\uFEFF# comment\nproband_id\tphenopacket_id\thpo_ids\nP1\tPP1\tHP:0001744\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        try (CaseTableReader reader = new CaseTableReader(csv)) {
+            assertThat(reader.next().getProbandId(), is("P1"));
+        }
+        try (CaseTableReader reader = new CaseTableReader(commented)) {
+            assertThat(reader.next().getProbandId(), is("P1"));
+        }
+    }
+
+    @Test
+    void missingColumnIsRejected() {
+        PGException e = assertThrows(PGException.class, () -> reader("proband_id\tphenopacket_id\n", '\t'));
+
+        assertThat(e.getMessage(), is("Case table is missing required column `hpo_ids`"));
+        assertThrows(PGException.class, () -> reader("# only a comment\n", '\t'));
+    }
+}
@@ -0,0 +1,99 @@
+package org.jax.phenopacketgenerator.batch;
+
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.jax.phenopacketgenerator.vcf.VcfHeader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class VcfCohortTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path vcfPath;
+
+    private VcfCohort cohort;
+
+    @BeforeEach
+    void setUp() throws IOException, PGException {
+        Files.createDirectories(tempDir.resolve("data"));
+        vcfPath = tempDir.resolve("data").resolve("trio.vcf");
+        try (InputStream is = VcfCohortTest.class.getResourceAsStream("trio.vcf")) {
+            Files.copy(is, vcfPath);
+        }
+        cohort = new VcfCohort(vcfPath.toString(), VcfHeader.read(vcfPath));
+    }
+
+    private List<ValidationIssue.Type> validate(String vcfPath, String sampleId) {
+        return validate(vcfPath, sampleId, "");
+    }
+
+    private List<ValidationIssue.Type> validate(String vcfPath, String sampleId, String assembly) {
+        CaseRow row = CaseRow.newBuilder()
+                .setProbandId("P1")
+                .setPhenopacketId("PP1")
+                .setVcfPath(vcfPath)
+                .setSampleId(sampleId)
+                .setGenomeAssembly(assembly)
+                .build();
+        PgModel model = new PgModel(Collections.emptyList());
+        cohort.join(row, model);
+        return cohort.validate(row, model).stream().map(ValidationIssue::getType).collect(Collectors.toList());
+    }
+
+    @Test
+    void joinBySampleOrProbandId() {
+        assertThat(validate("", ""), is(empty()));
+        assertThat(validate("", "MOTHER"), is(empty()));
+        assertThat(validate("", "SISTER"), contains(ValidationIssue.Type.SAMPLE_NOT_IN_VCF));
+        assertThat(cohort.getUnjoinedSampleIds(), contains("FATHER"));
+    }
+
+    @Test
+    void samePathSpelledDifferently() {
+        assertThat(validate(tempDir.resolve("data").resolve(".").resolve("trio.vcf").toString(), ""), is(empty()));
+        assertThat(validate(tempDir.resolve("other").resolve("..").resolve("data/trio.vcf").toString(), ""),
+                is(empty()));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS) // creating links needs extra privileges
+    void linkToSharedFile() throws IOException {
+        Path link = Files.createSymbolicLink(tempDir.resolve("link.vcf"), vcfPath);
+
+        assertThat(validate(link.toString(), ""), is(empty()));
+    }
+
+    @Test
+    void otherFileConflicts() throws IOException {
+        Path other = Files.copy(vcfPath, tempDir.resolve("other.vcf"));
+
+        assertThat(validate(other.toString(), ""), contains(ValidationIssue.Type.CONFLICTING_VCF));
+        assertThat(validate(tempDir.resolve("missing.vcf").toString(), ""),
+                contains(ValidationIssue.Type.CONFLICTING_VCF));
+    }
+
+    @Test
+    void grcNameOfInferredAssembly() {
+        assertThat(validate("", "", "GRCh38"), is(empty()));
+        assertThat(validate("", "", "hg19"), contains(ValidationIssue.Type.ASSEMBLY_MISMATCH));
+    }
+}
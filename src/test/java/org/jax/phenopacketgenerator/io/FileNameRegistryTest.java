@@ -0,0 +1,100 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileNameRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writersOfTheSameFileAreSerialized() throws Exception {
+        FileNameRegistry registry = new FileNameRegistry(tempDir);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Path> first = executor.submit(() -> registry.write("PP1", ".json", path -> {
+                events.add("first started");
+                firstStarted.countDown();
+                Files.write(path, "first".getBytes(StandardCharsets.UTF_8));
+                sleep(200);
+                events.add("first finished");
+            }));
+            firstStarted.await();
+            Future<Path> second = executor.submit(() -> registry.write("PP1", ".json", path -> {
+                events.add("second started");
+                Files.write(path, "second".getBytes(StandardCharsets.UTF_8));
+                events.add("second finished");
+            }));
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(events, is(Arrays.asList("first started", "first finished", "second started", "second finished")));
+        assertThat(new String(Files.readAllBytes(tempDir.resolve("PP1.json")), StandardCharsets.UTF_8), is("second"));
+        assertThat(list(tempDir), is(Collections.singletonList(tempDir.resolve("PP1.json"))));
+    }
+
+    @Test
+    void failedWriteKeepsPreviousFile() throws IOException {
+        FileNameRegistry registry = new FileNameRegistry(tempDir);
+        registry.write("PP1", ".json", path -> Files.write(path, "first".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(IOException.class, () -> registry.write("PP1", ".json", path -> {
+            Files.write(path, "half".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+
+        assertThat(new String(Files.readAllBytes(tempDir.resolve("PP1.json")), StandardCharsets.UTF_8), is("first"));
+        assertThat(list(tempDir), is(Collections.singletonList(tempDir.resolve("PP1.json"))));
+    }
+
+    @Test
+    void otherIdWithSameFileNameFails() throws IOException {
+        FileNameRegistry registry = new FileNameRegistry(tempDir);
+        registry.write("PP/1", ".json", path -> Files.write(path, new byte[0]));
+
+        assertThrows(FileAlreadyExistsException.class,
+                () -> registry.write("PP_1", ".json", path -> Files.write(path, new byte[0])));
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonDirectoryWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Phenopacket phenopacket(String id) {
+        return Phenopacket.newBuilder().setId(id).build();
+    }
+
+    @Test
+    void fileNameOfId() {
+        assertThat(JsonDirectoryWriter.fileName("PP/1 a", ".json"), is("PP_1_a.json"));
+    }
+
+    @Test
+    void sameIdReplacesFile() throws IOException {
+        try (JsonDirectoryWriter writer = new JsonDirectoryWriter(tempDir)) {
+            writer.write(phenopacket("PP/1"));
+            writer.write(phenopacket("PP/1"));
+        }
+
+        assertThat(PhenopacketJson.read(tempDir.resolve("PP_1.json")).getId(), is("PP/1"));
+    }
+
+    @Test
+    void collidingIdsFail() throws IOException {
+        try (JsonDirectoryWriter writer = new JsonDirectoryWriter(tempDir)) {
+            writer.write(phenopacket("PP/1"));
+
+            assertThrows(FileAlreadyExistsException.class, () -> writer.write(phenopacket("PP_1")));
+            assertThrows(FileAlreadyExistsException.class, () -> writer.write(phenopacket("pp/1")));
+        }
+
+        assertThat(PhenopacketJson.read(tempDir.resolve("PP_1.json")).getId(), is("PP/1"));
+    }
+
+    @Test
+    void collidingIdsFailInProtobufDirectory() throws IOException {
+        try (ProtobufDirectoryWriter writer = new ProtobufDirectoryWriter(tempDir)) {
+            writer.write(phenopacket("PP/1"));
+
+            assertThrows(FileAlreadyExistsException.class, () -> writer.write(phenopacket("PP_1")));
+        }
+
+        assertThat(Files.exists(tempDir.resolve("PP_1.pb")), is(true));
+    }
+
+    @Test
+    void gzippedProtobufDirectory() throws IOException {
+        try (ProtobufDirectoryWriter writer = new ProtobufDirectoryWriter(tempDir, true)) {
+            writer.write(phenopacket("PP/1"));
+        }
+
+        Path path = tempDir.resolve("PP_1.pb.gz");
+        assertThat(NdjsonPhenopacketWriterTest.isGzipped(path), is(true));
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(path))) {
+            assertThat(Phenopacket.parseDelimitedFrom(is).getId(), is("PP/1"));
+        }
+    }
+}
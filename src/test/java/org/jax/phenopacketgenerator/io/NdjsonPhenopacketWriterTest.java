@@ -0,0 +1,80 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.phenopackets.schema.v1.Phenopacket;
+import org.phenopackets.schema.v1.core.Individual;
+import org.phenopackets.schema.v1.core.OntologyClass;
+import org.phenopackets.schema.v1.core.PhenotypicFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class NdjsonPhenopacketWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @return phenopackets with different IDs and phenotypes, the second one has a negated phenotype
+     */
+    static List<Phenopacket> phenopackets() {
+        List<Phenopacket> phenopackets = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            phenopackets.add(Phenopacket.newBuilder()
+                    .setId("PP" + i)
+                    .setSubject(Individual.newBuilder().setId("P" + i))
+                    .addPhenotypicFeatures(PhenotypicFeature.newBuilder()
+                            .setType(OntologyClass.newBuilder().setId("HP:0001744").setLabel("Splenomegaly"))
+                            .setNegated(i == 2))
+                    .build());
+        }
+        return phenopackets;
+    }
+
+    static boolean isGzipped(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        return bytes.length >= 2 && (bytes[0] & 0xff) == 0x1f && (bytes[1] & 0xff) == 0x8b;
+    }
+
+    @Test
+    void writeAndRead() throws IOException {
+        Path path = tempDir.resolve("cases.ndjson");
+        roundTrip(path, false);
+
+        assertThat(isGzipped(path), is(false));
+        assertThat(Files.readAllLines(path).size(), is(3));
+    }
+
+    @Test
+    void writeAndReadGzipped() throws IOException {
+        // the reader detects gzip by the content, not by the file name
+        Path path = tempDir.resolve("cases.ndjson");
+        roundTrip(path, true);
+
+        assertThat(isGzipped(path), is(true));
+    }
+
+    private static void roundTrip(Path path, boolean gzip) throws IOException {
+        try (NdjsonPhenopacketWriter writer = new NdjsonPhenopacketWriter(path, gzip)) {
+            for (Phenopacket phenopacket : phenopackets()) {
+                writer.write(phenopacket);
+            }
+            assertThat(writer.getCount(), is(3L));
+        }
+        List<Phenopacket> read = new ArrayList<>();
+        try (NdjsonPhenopacketReader reader = new NdjsonPhenopacketReader(path)) {
+            Phenopacket phenopacket;
+            while ((phenopacket = reader.next()) != null) {
+                read.add(phenopacket);
+            }
+        }
+        assertThat(read, is(phenopackets()));
+    }
+}
@@ -0,0 +1,53 @@
+package org.jax.phenopacketgenerator.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.phenopackets.schema.v1.Phenopacket;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.jax.phenopacketgenerator.io.NdjsonPhenopacketWriterTest.isGzipped;
+import static org.jax.phenopacketgenerator.io.NdjsonPhenopacketWriterTest.phenopackets;
+
+class ProtobufPhenopacketWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeAndRead() throws IOException {
+        Path path = tempDir.resolve("cases.pb");
+        roundTrip(path, false);
+
+        assertThat(isGzipped(path), is(false));
+    }
+
+    @Test
+    void writeAndReadGzipped() throws IOException {
+        Path path = tempDir.resolve("cases.pb");
+        roundTrip(path, true);
+
+        assertThat(isGzipped(path), is(true));
+    }
+
+    private static void roundTrip(Path path, boolean gzip) throws IOException {
+        try (ProtobufPhenopacketWriter writer = new ProtobufPhenopacketWriter(path, gzip)) {
+            for (Phenopacket phenopacket : phenopackets()) {
+                writer.write(phenopacket);
+            }
+        }
+        List<Phenopacket> read = new ArrayList<>();
+        try (ProtobufPhenopacketReader reader = new ProtobufPhenopacketReader(path)) {
+            Phenopacket phenopacket;
+            while ((phenopacket = reader.next()) != null) {
+                read.add(phenopacket);
+            }
+        }
+        assertThat(read, is(phenopackets()));
+    }
+}
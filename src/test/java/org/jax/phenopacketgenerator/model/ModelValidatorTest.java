@@ -0,0 +1,200 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.jax.phenopacketgenerator.ontology.AncestorClosure;
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class ModelValidatorTest {
+
+    private static ModelValidator validator;
+
+    @BeforeAll
+    static void setUp() throws IOException, URISyntaxException {
+        Path oboPath = Paths.get(ModelValidatorTest.class
+                .getResource("/org/jax/phenopacketgenerator/ontology/hp_small.obo").toURI());
+        CompactOntology ontology = CompactOntology.read(oboPath);
+        validator = ModelValidator.newBuilder()
+                .setOntology(ontology)
+                .setClosure(AncestorClosure.of(ontology))
+                .build();
+    }
+
+    private static PgOntologyClass observed(String id, String label) {
+        return PgOntologyClass.newBuilder().setId(id).setLabel(label).build();
+    }
+
+    private static PgOntologyClass excluded(String id, String label) {
+        return PgOntologyClass.newBuilder().setId(id).setLabel(label).setNotObserved(true).build();
+    }
+
+    private static PgModel model(PgOntologyClass... phenotypes) {
+        PgModel model = new PgModel(Arrays.asList(phenotypes));
+        model.setPhenopacketId("PP1");
+        model.setProbandId("P1");
+        model.setBiocurator("HP:curator");
+        model.setSex("FEMALE");
+        return model;
+    }
+
+    private static PgModel validModel() {
+        return model(observed("HP:0001744", "Splenomegaly"), excluded("HP:0030242", "Portal vein thrombosis"));
+    }
+
+    private static List<ValidationIssue.Type> types(List<ValidationIssue> issues) {
+        return issues.stream().map(ValidationIssue::getType).collect(Collectors.toList());
+    }
+
+    private static String message(List<ValidationIssue> issues, String field) {
+        return issues.stream()
+                .filter(issue -> issue.getField().equals(field))
+                .map(ValidationIssue::getMessage)
+                .collect(Collectors.joining("; "));
+    }
+
+    private static List<ValidationIssue.Type> validateAge(String isoAge) {
+        PgModel model = validModel();
+        model.setIsoAge(isoAge);
+        return types(validator.validate(model));
+    }
+
+    @Test
+    void validModelHasNoIssues() {
+        PgModel model = validModel();
+        model.setIsoAge("P6Y5M");
+        model.setVcfPath("/data/trio.vcf.gz");
+        model.setGenomeAssembly("GRCh38");
+
+        assertThat(validator.validate(model), is(empty()));
+    }
+
+    @Test
+    void validAges() {
+        for (String age : Arrays.asList("", "P6Y5M", "P3W", "P2DT12H", "P1Y2M3DT4H", "PT36H", "PT1.5S", "P0D")) {
+            assertThat(age, validateAge(age), is(empty()));
+        }
+    }
+
+    @Test
+    void invalidAges() {
+        for (String age : Arrays.asList("P", "PT", "P1YT", "6Y", "P1H", "P1.5Y", "p1y", " P1Y")) {
+            assertThat(age, validateAge(age), contains(ValidationIssue.Type.INVALID_AGE));
+        }
+    }
+
+    @Test
+    void unknownObsoleteAndAlternativeIds() {
+        List<ValidationIssue> issues = validator.validate(model(
+                observed("HP:9999999", ""),
+                observed("HP:0000002", ""),
+                observed("HP:0000003", ""),
+                observed("HP:0001745", "Splenomegaly"),
+                observed("HP:12345", "")));
+
+        assertThat(types(issues), containsInAnyOrder(
+                ValidationIssue.Type.UNKNOWN_TERM,
+                ValidationIssue.Type.OBSOLETE_TERM,
+                ValidationIssue.Type.OBSOLETE_TERM,
+                ValidationIssue.Type.ALTERNATIVE_TERM_ID,
+                ValidationIssue.Type.MALFORMED_TERM_ID));
+        assertThat(message(issues, "HP:9999999"), is("Unknown HPO ID `HP:9999999`"));
+        assertThat(message(issues, "HP:0000002"), is("Obsolete HPO ID `HP:0000002`"));
+        assertThat(message(issues, "HP:0000003"),
+                is("Obsolete HPO ID `HP:0000003`, replaced by Portal vein thrombosis [HP:0030242]"));
+        assertThat(message(issues, "HP:0001745"), is("`HP:0001745` is an alternative ID of Splenomegaly [HP:0001744]"));
+        assertThat(message(issues, "HP:12345"), is("`HP:12345` is not an HPO term ID"));
+        assertThat(ModelValidator.hasErrors(issues), is(true));
+    }
+
+    @Test
+    void relabelledTermIsWarning() {
+        List<ValidationIssue> issues = validator.validate(model(observed("HP:0001744", "Big spleen")));
+
+        assertThat(types(issues), contains(ValidationIssue.Type.LABEL_MISMATCH));
+        assertThat(issues.get(0).getMessage(), is("Label of HP:0001744 is `Splenomegaly`, not `Big spleen`"));
+        assertThat(issues.get(0).getSeverity(), is(ValidationIssue.Severity.WARNING));
+        assertThat(ModelValidator.hasErrors(issues), is(false));
+    }
+
+    @Test
+    void observedAndExcludedTermConflicts() {
+        List<ValidationIssue> issues = validator.validate(model(
+                observed("HP:0001744", "Splenomegaly"), excluded("HP:0001744", "Splenomegaly")));
+
+        assertThat(types(issues), contains(ValidationIssue.Type.CONFLICTING_PHENOTYPES));
+        assertThat(issues.get(0).getField(), is("HP:0001744"));
+        assertThat(ModelValidator.hasErrors(issues), is(true));
+    }
+
+    @Test
+    void excludedAncestorOfObservedTermConflicts() {
+        List<ValidationIssue> issues = validator.validate(model(
+                observed("HP:0001744", "Splenomegaly"),
+                excluded("HP:0000118", "Phenotypic abnormality"),
+                excluded("HP:0001939", "Abnormality of metabolism/homeostasis")));
+
+        assertThat(types(issues), contains(ValidationIssue.Type.CONFLICTING_PHENOTYPES));
+        assertThat(issues.get(0).getMessage(), is("Phenotypic abnormality [HP:0000118] is excluded but its descendant "
+                + "Splenomegaly [HP:0001744] is observed"));
+        // an excluded descendant of an observed term is fine
+        assertThat(validator.validate(model(
+                observed("HP:0002240", "Abnormality of the spleen"), excluded("HP:0001744", "Splenomegaly"))),
+                is(empty()));
+    }
+
+    @Test
+    void vcfWithoutAssembly() {
+        PgModel model = validModel();
+        model.setVcfPath("/data/trio.txt");
+
+        List<ValidationIssue> issues = validator.validate(model);
+
+        assertThat(types(issues), contains(
+                ValidationIssue.Type.MISSING_ASSEMBLY, ValidationIssue.Type.UNEXPECTED_VCF_NAME));
+        assertThat(issues.get(0).getSeverity(), is(ValidationIssue.Severity.ERROR));
+        assertThat(issues.get(1).getSeverity(), is(ValidationIssue.Severity.WARNING));
+
+        model.setGenomeAssembly("mm10");
+        assertThat(types(validator.validate(model)), contains(
+                ValidationIssue.Type.UNKNOWN_ASSEMBLY, ValidationIssue.Type.UNEXPECTED_VCF_NAME));
+        assertThat(ModelValidator.hasErrors(validator.validate(model)), is(false));
+    }
+
+    @Test
+    void missingAndUntrimmedIds() {
+        PgModel model = model();
+        model.setPhenopacketId(" PP1");
+        model.setProbandId("");
+        model.setBiocurator(null);
+        model.setSex("female");
+
+        assertThat(types(validator.validate(model)), containsInAnyOrder(
+                ValidationIssue.Type.UNTRIMMED_ID,
+                ValidationIssue.Type.MISSING_PROBAND_ID,
+                ValidationIssue.Type.MISSING_BIOCURATOR_ID,
+                ValidationIssue.Type.UNKNOWN_SEX,
+                ValidationIssue.Type.NO_PHENOTYPES));
+    }
+
+    @Test
+    void basicValidatorDoesNotNeedOntology() {
+        List<ValidationIssue> issues = ModelValidator.basic().validate(model(
+                observed("HP:9999999", ""), excluded("HP:0000118", ""), observed("HP:0001744", "Big spleen")));
+
+        assertThat(issues, is(empty()));
+    }
+}
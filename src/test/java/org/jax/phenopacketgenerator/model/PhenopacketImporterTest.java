@@ -0,0 +1,97 @@
+package org.jax.phenopacketgenerator.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class PhenopacketImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static PgModel model() {
+        PgModel model = new PgModel(Arrays.asList(
+                PgOntologyClass.newBuilder().setId("HP:0001744").setLabel("Splenomegaly").build(),
+                PgOntologyClass.newBuilder().setId("HP:0030242").setLabel("Portal vein thrombosis")
+                        .setNotObserved(true).build()));
+        model.setPhenopacketId("PP1");
+        model.setProbandId("P1");
+        model.setSex("FEMALE");
+        model.setIsoAge("P3Y2M");
+        model.setVcfPath("/data/trio.vcf.gz");
+        model.setGenomeAssembly("hg38");
+        model.setVcfSampleId("SAMPLE1");
+        model.setVcfChecksum("sha256-tree-8MiB:4f8b42c22dd3729b519ba6f68d2da7cc5b2d606d05daed5ad5128cc03e6c6358");
+        model.setBiocurator("HP:curator");
+        model.setHpoVersion("hp/releases/2019-11-08");
+        model.setEcoVersion("eco/releases/2019-10-16");
+        model.setPhenopacketVersion("1.0.0");
+        return model;
+    }
+
+    private static List<String> phenotypes(PgModel model) {
+        return model.getPhenotypes().stream()
+                .map(p -> (p.getNotObserved() ? "!" : "") + p.getId() + " " + p.getLabel())
+                .collect(Collectors.toList());
+    }
+
+    private static void assertSameModel(PgModel actual, PgModel expected) {
+        assertThat(actual.getPhenopacketId(), is(expected.getPhenopacketId()));
+        assertThat(actual.getProbandId(), is(expected.getProbandId()));
+        assertThat(actual.getSex(), is(expected.getSex()));
+        assertThat(actual.getIsoAge(), is(expected.getIsoAge()));
+        assertThat(phenotypes(actual), is(phenotypes(expected)));
+        assertThat(actual.getVcfPath(), is(expected.getVcfPath()));
+        assertThat(actual.getGenomeAssembly(), is(expected.getGenomeAssembly()));
+        assertThat(actual.getVcfSampleId(), is(expected.getVcfSampleId()));
+        assertThat(actual.getVcfChecksum(), is(expected.getVcfChecksum()));
+        assertThat(actual.getBiocurator(), is(expected.getBiocurator()));
+        assertThat(actual.getHpoVersion(), is(expected.getHpoVersion()));
+        assertThat(actual.getEcoVersion(), is(expected.getEcoVersion()));
+        assertThat(actual.getPhenopacketVersion(), is(expected.getPhenopacketVersion()));
+    }
+
+    @Test
+    void importJson() throws IOException {
+        Path path = new PhenopacketExporter(model()).export(tempDir.resolve("PP1.json").toFile());
+
+        assertSameModel(PhenopacketImporter.read(path), model());
+    }
+
+    @Test
+    void importGzippedJson() throws IOException {
+        Path path = new PhenopacketExporter(model()).export(tempDir.resolve("PP1.json.gz").toFile());
+
+        assertSameModel(PhenopacketImporter.read(path), model());
+    }
+
+    @Test
+    void importProtobuf() throws IOException {
+        Path path = new PhenopacketExporter(model()).export(tempDir.resolve("PP1.pb").toFile());
+
+        assertSameModel(PhenopacketImporter.read(path), model());
+    }
+
+    @Test
+    void vcfPathOfUri() {
+        assertThat(PhenopacketImporter.toVcfPath("file://data/trio.vcf.gz"), is("/data/trio.vcf.gz"));
+        assertThat(PhenopacketImporter.toVcfPath("file:/C:/data/trio.vcf.gz"), is("C:/data/trio.vcf.gz"));
+        assertThat(PhenopacketImporter.toVcfPath("https://example.org/trio.vcf.gz"),
+                is("https://example.org/trio.vcf.gz"));
+    }
+
+    @Test
+    void phenopacketFileNames() {
+        assertThat(PhenopacketImporter.isPhenopacketFile(tempDir.resolve("PP1.JSON")), is(true));
+        assertThat(PhenopacketImporter.isPhenopacketFile(tempDir.resolve("PP1.pb.gz")), is(true));
+        assertThat(PhenopacketImporter.isPhenopacketFile(tempDir.resolve("cases.tsv")), is(false));
+    }
+}
@@ -0,0 +1,54 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AncestorClosureTest {
+
+    @Test
+    void ancestorsOfAllParentsAreMerged() throws IOException {
+        CompactOntology.Builder builder = new CompactOntology.Builder();
+        builder.addTerm("HP:0000004", "Both", Collections.emptyList(), Arrays.asList("HP:0000002", "HP:0000003"));
+        builder.addTerm("HP:0000003", "Right", Collections.emptyList(), Collections.singletonList("HP:0000001"));
+        builder.addTerm("HP:0000002", "Left", Collections.emptyList(), Collections.singletonList("HP:0000001"));
+        builder.addTerm("HP:0000001", "All", Collections.emptyList(), Collections.emptyList());
+        builder.addTerm("HP:0000005", "Below both", Collections.emptyList(), Collections.singletonList("HP:0000004"));
+
+        AncestorClosure closure = AncestorClosure.of(builder.build());
+
+        int all = closure.indexOf("HP:0000001");
+        int left = closure.indexOf("HP:0000002");
+        int right = closure.indexOf("HP:0000003");
+        int both = closure.indexOf("HP:0000004");
+        int belowBoth = closure.indexOf("HP:0000005");
+        assertArrayEquals(new int[0], closure.getAncestors(all));
+        assertArrayEquals(new int[]{all}, closure.getAncestors(left));
+        int[] expected = {all, left, right, both};
+        Arrays.sort(expected);
+        assertArrayEquals(expected, closure.getAncestors(belowBoth));
+        assertThat(closure.isAncestor(right, belowBoth), is(true));
+        assertThat(closure.isAncestor(belowBoth, right), is(false));
+    }
+
+    @Test
+    void cycleIsReported() {
+        CompactOntology.Builder builder = new CompactOntology.Builder();
+        builder.addTerm("HP:0000001", "All", Collections.emptyList(), Collections.emptyList());
+        builder.addTerm("HP:0000002", "Loop", Collections.emptyList(), Arrays.asList("HP:0000001", "HP:0000003"));
+        builder.addTerm("HP:0000003", "Back", Collections.emptyList(), Collections.singletonList("HP:0000002"));
+        CompactOntology ontology = builder.build();
+
+        IOException e = assertThrows(IOException.class, () -> AncestorClosure.of(ontology));
+
+        assertThat(e.getMessage(), containsString("Cycle in the ontology"));
+    }
+}
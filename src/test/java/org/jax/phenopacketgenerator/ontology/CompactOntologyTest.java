@@ -0,0 +1,88 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.jax.phenopacketgenerator.ontology.OboParserTest.assertSameOntology;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class CompactOntologyTest {
+
+    @Test
+    void readEqualsProjectionOfPhenolOntology() throws IOException, URISyntaxException {
+        Path oboPath = Paths.get(CompactOntologyTest.class.getResource("hp_small.obo").toURI());
+        Ontology ontology;
+        try (InputStream is = Files.newInputStream(oboPath)) {
+            ontology = Utils.deserializeOntology(is);
+        }
+
+        CompactOntology expected = CompactOntology.of(ontology);
+        CompactOntology actual = CompactOntology.read(oboPath);
+
+        assertSameOntology(actual, expected);
+        assertThat(actual.getVersion().get(), is("hp/releases/2019-11-08"));
+        for (String id : Arrays.asList("HP:0001745", "HP:0000002", "HP:0000003", "HP:0009999")) {
+            assertThat(actual.indexOf(id), is(expected.indexOf(id)));
+            assertThat(actual.isObsolete(id), is(expected.isObsolete(id)));
+        }
+        // phenol does not keep obsolete terms, only the OBO file tells the replacement
+        assertThat(actual.getReplacement("HP:0000003"), is(actual.indexOf("HP:0030242")));
+        assertThat(actual.getSynonyms(actual.indexOf("HP:0001744")), is(Arrays.asList("Big spleen", "Enlarged spleen")));
+    }
+
+    @Test
+    void dataVersionIsTakenFromVersionIri() {
+        assertThat(CompactOntology.dataVersion("http://purl.obolibrary.org/obo/hp/hp/releases/2019-11-08/hp.owl"),
+                is("hp/releases/2019-11-08"));
+        assertThat(CompactOntology.dataVersion("hp/releases/2019-11-08"), is("hp/releases/2019-11-08"));
+    }
+
+    @Test
+    void artificialRootIsLeftOut() {
+        CompactOntology.Builder builder = new CompactOntology.Builder();
+        builder.setRootId("owl:Thing");
+        builder.addTerm("owl:Thing", "Thing", Collections.emptyList(), Collections.emptyList());
+        builder.addTerm("HP:0000001", "All", Collections.emptyList(), Collections.singletonList("owl:Thing"));
+        builder.addTerm("HP:0000118", "Phenotypic abnormality", Collections.emptyList(),
+                Arrays.asList("HP:0000001", "owl:Thing"));
+        builder.addAltId("owl:Nothing", "HP:0000001");
+        builder.addObsoleteId("owl:Obsolete", null);
+
+        CompactOntology ontology = builder.build();
+
+        assertThat(ontology.size(), is(2));
+        assertThat(ontology.indexOf("owl:Thing"), is(-1));
+        assertThat(ontology.indexOf("owl:Nothing"), is(-1));
+        assertThat(ontology.isObsolete("owl:Obsolete"), is(false));
+        assertThat(ontology.getRoot(), is(-1));
+        int all = ontology.indexOf("HP:0000001");
+        int abnormality = ontology.indexOf("HP:0000118");
+        assertThat(ontology.getTermId(all), is("HP:0000001"));
+        assertArrayEquals(new int[0], ontology.getParents(all));
+        assertArrayEquals(new int[]{all}, ontology.getParents(abnormality));
+    }
+
+    @Test
+    void rootWithoutParentsIsDetected() {
+        CompactOntology.Builder builder = new CompactOntology.Builder();
+        builder.addTerm("HP:0000118", "Phenotypic abnormality", Collections.emptyList(),
+                Collections.singletonList("HP:0000001"));
+        builder.addTerm("HP:0000001", "All", Collections.emptyList(), Collections.emptyList());
+
+        CompactOntology ontology = builder.build();
+
+        assertThat(ontology.getTermId(ontology.getRoot()), is("HP:0000001"));
+    }
+}
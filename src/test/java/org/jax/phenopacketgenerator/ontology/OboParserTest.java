@@ -0,0 +1,106 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class OboParserTest {
+
+    private static final int N_TERMS = 5_000;
+
+    private static final String LABEL = "Abnormalit\u00e4t ";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Terms form a binary tree below <code>HP:0000001</code>. Labels contain multi-byte characters, so that chunk
+     * boundaries fall between lines with them, every tenth term has an alternative ID.
+     */
+    private static String generateObo() {
+        StringBuilder obo = new StringBuilder("format-version: 1.2\ndata-version: hp/releases/2019-11-08\n\n");
+        for (int i = 1; i <= N_TERMS; i++) {
+            obo.append("[Term]\n")
+                    .append(String.format("id: HP:%07d\n", i))
+                    .append("name: " + LABEL + i + "\n")
+                    .append(String.format("synonym: \"Synonym von %d\" EXACT []\n", i));
+            if (i % 10 == 0) {
+                obo.append(String.format("alt_id: HP:1%06d\n", i));
+            }
+            if (i > 1) {
+                obo.append(String.format("is_a: HP:%07d ! %s%d\n", i / 2, LABEL, i / 2));
+            }
+            obo.append('\n');
+            if (i == N_TERMS / 2) {
+                obo.append("[Typedef]\nid: part_of\nname: part of\n\n");
+            }
+        }
+        return obo.toString();
+    }
+
+    /**
+     * Assert that both projections have the same terms, synonyms, parents, root and version.
+     */
+    static void assertSameOntology(CompactOntology actual, CompactOntology expected) {
+        assertThat(actual.size(), is(expected.size()));
+        assertThat(actual.getRoot(), is(expected.getRoot()));
+        assertThat(actual.getVersion(), is(expected.getVersion()));
+        for (int t = 0; t < expected.size(); t++) {
+            assertThat(actual.getTermId(t), is(expected.getTermId(t)));
+            assertThat(actual.getLabel(t), is(expected.getLabel(t)));
+            assertThat(actual.getSynonyms(t), is(expected.getSynonyms(t)));
+            assertArrayEquals(expected.getParents(t), actual.getParents(t));
+        }
+    }
+
+    @Test
+    void parallelParsingEqualsSequentialParsing() throws IOException {
+        byte[] bytes = generateObo().getBytes(StandardCharsets.UTF_8);
+        assertThat(bytes.length, greaterThan(4 * OboParser.CHUNK_SIZE));
+        Path oboPath = tempDir.resolve("hp.obo");
+        Files.write(oboPath, bytes);
+
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            CompactOntology expected = CompactOntology.read(oboPath, sequential);
+            CompactOntology actual = CompactOntology.read(oboPath, parallel);
+
+            assertSameOntology(actual, expected);
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void chunksAreJoinedInFileOrder() throws IOException {
+        Path oboPath = tempDir.resolve("hp.obo");
+        Files.write(oboPath, generateObo().getBytes(StandardCharsets.UTF_8));
+
+        CompactOntology ontology = CompactOntology.read(oboPath);
+
+        assertThat(ontology.size(), is(N_TERMS));
+        assertThat(ontology.getVersion().get(), is("hp/releases/2019-11-08"));
+        assertThat(ontology.getTermId(ontology.getRoot()), is("HP:0000001"));
+        for (int i = 2; i <= N_TERMS; i++) {
+            int term = ontology.indexOf(String.format("HP:%07d", i));
+            assertThat(ontology.getLabel(term), is(LABEL + i));
+            assertThat(ontology.getSynonyms(term).get(0), is("Synonym von " + i));
+            assertArrayEquals(new int[]{ontology.indexOf(String.format("HP:%07d", i / 2))}, ontology.getParents(term));
+            if (i % 10 == 0) {
+                assertThat(ontology.indexOf(String.format("HP:1%06d", i)), is(term));
+            }
+        }
+    }
+}
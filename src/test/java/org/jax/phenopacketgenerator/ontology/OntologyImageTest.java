@@ -0,0 +1,95 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.jax.phenopacketgenerator.ontology.OboParserTest.assertSameOntology;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OntologyImageTest {
+
+    private static Path oboPath;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() throws URISyntaxException {
+        oboPath = Paths.get(OntologyImageTest.class.getResource("hp_small.obo").toURI());
+    }
+
+    @Test
+    void writeAndMap() throws IOException {
+        CompactOntology ontology = CompactOntology.read(oboPath);
+        Path imagePath = tempDir.resolve("hp.obo.image");
+        OntologyImage.write(ontology, OntologySnapshot.SourceKey.of(oboPath), imagePath);
+
+        CompactOntology mapped = OntologyImage.map(imagePath).get();
+
+        assertThat(mapped.isMapped(), is(true));
+        assertSameOntology(mapped, ontology);
+    }
+
+    @Test
+    void headerLengthBeyondEndOfImage() throws IOException {
+        Path imagePath = tempDir.resolve("hp.obo.image");
+        OntologyImage.write(CompactOntology.read(oboPath), OntologySnapshot.SourceKey.of(oboPath), imagePath);
+        try (FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE), 8);
+        }
+
+        assertThrows(IOException.class, () -> OntologyImage.map(imagePath));
+    }
+
+    @Test
+    void imageNameDependsOnPath() {
+        OntologyImageCache cache = new OntologyImageCache(tempDir);
+
+        assertThat(cache.getImagePath(oboPath), is(cache.getImagePath(oboPath)));
+        assertThat(cache.getImagePath(oboPath).equals(cache.getImagePath(tempDir.resolve("hp_small.obo"))), is(false));
+        assertThat(cache.getImagePath(oboPath).getFileName().toString().startsWith("hp_small.obo."), is(true));
+    }
+
+    @Test
+    void cacheRebuildsCorruptedImage() throws IOException {
+        OntologyImageCache cache = new OntologyImageCache(tempDir);
+        Path imagePath = cache.getImagePath(oboPath);
+        cache.loadOrBuild(oboPath);
+        try (FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, -1), 8);
+        }
+
+        assertThat(cache.load(oboPath).isPresent(), is(false));
+        CompactOntology rebuilt = cache.loadOrBuild(oboPath);
+
+        assertThat(rebuilt.isMapped(), is(true));
+        assertSameOntology(rebuilt, CompactOntology.read(oboPath));
+    }
+
+    @Test
+    void touchedOboFileKeepsImage() throws IOException {
+        Path copy = Files.copy(oboPath, tempDir.resolve("hp.obo"));
+        OntologyImageCache cache = new OntologyImageCache(tempDir);
+        cache.loadOrBuild(copy);
+        Files.setLastModifiedTime(copy, FileTime.fromMillis(Files.getLastModifiedTime(copy).toMillis() + 10_000));
+
+        CompactOntology mapped = cache.load(copy).get();
+
+        assertThat(mapped.isMapped(), is(true));
+        assertThat(OntologyImage.readSourceKey(cache.getImagePath(copy)).get(),
+                is(OntologySnapshot.SourceKey.of(copy)));
+    }
+}
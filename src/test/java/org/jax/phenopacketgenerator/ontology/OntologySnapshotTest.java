@@ -0,0 +1,113 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.jax.phenopacketgenerator.Utils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class OntologySnapshotTest {
+
+    private static Path oboPath;
+
+    private static Ontology ontology;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void loadOntology() throws IOException, URISyntaxException {
+        oboPath = Paths.get(OntologySnapshotTest.class.getResource("hp_small.obo").toURI());
+        try (InputStream is = Files.newInputStream(oboPath)) {
+            ontology = Utils.deserializeOntology(is);
+        }
+    }
+
+    @Test
+    void writeAndRead() throws IOException {
+        Path snapshotPath = tempDir.resolve("hp.snapshot");
+        OntologySnapshot.SourceKey sourceKey = OntologySnapshot.SourceKey.of(oboPath);
+        OntologySnapshot.write(ontology, sourceKey, snapshotPath);
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            // the temporary file has been moved
+            assertThat(files.collect(Collectors.toList()), is(Collections.singletonList(snapshotPath)));
+        }
+        assertThat(OntologySnapshot.readSourceKey(snapshotPath), is(Optional.of(sourceKey)));
+        Ontology snapshot = OntologySnapshot.read(snapshotPath).get();
+
+        assertThat(snapshot.getMetaInfo(), is(ontology.getMetaInfo()));
+        assertThat(snapshot.getRootTermId(), is(ontology.getRootTermId()));
+        assertThat(snapshot.getTermMap().keySet(), is(ontology.getTermMap().keySet()));
+        assertThat(snapshot.getNonObsoleteTermIds(), is(ontology.getNonObsoleteTermIds()));
+        assertThat(snapshot.getObsoleteTermIds(), is(ontology.getObsoleteTermIds()));
+        for (TermId id : ontology.getTermMap().keySet()) {
+            Term expected = ontology.getTermMap().get(id);
+            Term actual = snapshot.getTermMap().get(id);
+            assertThat(actual.getId(), is(expected.getId()));
+            assertThat(actual.getName(), is(expected.getName()));
+            assertThat(actual.getDefinition(), is(expected.getDefinition()));
+            assertThat(actual.getAltTermIds(), is(expected.getAltTermIds()));
+            assertThat(actual.isObsolete(), is(expected.isObsolete()));
+            assertThat(synonyms(actual), is(synonyms(expected)));
+        }
+        for (TermId id : ontology.getNonObsoleteTermIds()) {
+            assertThat(snapshot.getAncestorTermIds(id), is(ontology.getAncestorTermIds(id)));
+        }
+        assertThat(snapshot.getRelationMap().size(), is(ontology.getRelationMap().size()));
+    }
+
+    @Test
+    void otherFileIsNotSnapshot() throws IOException {
+        Path snapshotPath = tempDir.resolve("hp.snapshot");
+        Files.write(snapshotPath, "format-version: 1.2\n".getBytes());
+
+        assertThat(OntologySnapshot.readSourceKey(snapshotPath), is(Optional.empty()));
+        assertThat(OntologySnapshot.read(snapshotPath).isPresent(), is(false));
+    }
+
+    @Test
+    void touchedOboFileIsHashedOnce() throws IOException {
+        Path copy = Files.copy(oboPath, tempDir.resolve("hp.obo"));
+        OntologySnapshotCache cache = new OntologySnapshotCache(Files.createDirectory(tempDir.resolve("home")));
+        cache.loadOrParse(copy);
+        FileTime touched = FileTime.fromMillis(Files.getLastModifiedTime(copy).toMillis() + 10_000);
+        Files.setLastModifiedTime(copy, touched);
+
+        assertThat(cache.load(copy).isPresent(), is(true));
+        // the new modification time is stored, the next load does not hash the file
+        OntologySnapshot.SourceKey stored = OntologySnapshot.readSourceKey(cache.getSnapshotPath()).get();
+        assertThat(stored, is(OntologySnapshot.SourceKey.of(copy)));
+        assertThat(cache.load(copy).isPresent(), is(true));
+
+        // same size and modification time, but another content
+        byte[] content = Files.readAllBytes(copy);
+        content[content.length - 2] ^= 1;
+        Files.write(copy, content);
+        Files.setLastModifiedTime(copy, FileTime.fromMillis(touched.toMillis() + 10_000));
+        assertThat(cache.load(copy).isPresent(), is(false));
+    }
+
+    private static List<String> synonyms(Term term) {
+        return term.getSynonyms().stream().map(TermSynonym::getValue).collect(Collectors.toList());
+    }
+}
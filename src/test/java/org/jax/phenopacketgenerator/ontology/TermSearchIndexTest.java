@@ -0,0 +1,88 @@
+package org.jax.phenopacketgenerator.ontology;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class TermSearchIndexTest {
+
+    private static TermSearchIndex index;
+
+    @BeforeAll
+    static void setUp() throws IOException, URISyntaxException {
+        Path oboPath = Paths.get(TermSearchIndexTest.class.getResource("hp_small.obo").toURI());
+        index = TermSearchIndex.of(CompactOntology.read(oboPath));
+    }
+
+    private static List<String> search(String query) {
+        return search(query, 10);
+    }
+
+    private static List<String> search(String query, int maxResults) {
+        return index.search(query, maxResults).stream()
+                .map(term -> term.getId().getValue())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void idPrefix() {
+        assertThat(search("HP:00017"), is(Collections.singletonList("HP:0001744")));
+        assertThat(search("hp:0030242"), is(Collections.singletonList("HP:0030242")));
+        // shorter labels first
+        assertThat(search("HP:0001"), is(Arrays.asList("HP:0001250", "HP:0001744", "HP:0001939")));
+        assertThat(search("HP:99"), is(empty()));
+    }
+
+    @Test
+    void multiWordPrefix() {
+        assertThat(search("abn spl"), is(Collections.singletonList("HP:0002240")));
+        assertThat(search("thr port v"), is(Collections.singletonList("HP:0030242")));
+        assertThat(search("ton-cl seiz"), is(Collections.singletonList("HP:0002069")));
+        // every query word must match
+        assertThat(search("abn portal"), is(empty()));
+    }
+
+    @Test
+    void labelHitsBeforeSynonymHits() {
+        // Splenomegaly has the shorter label, but it is found through its synonym Enlarged spleen
+        assertThat(search("spleen"), is(Arrays.asList("HP:0002240", "HP:0001744")));
+        assertThat(search("seizure"), is(Arrays.asList("HP:0001250", "HP:0002069")));
+        assertThat(search("generalized"), is(Collections.singletonList("HP:0002069")));
+    }
+
+    @Test
+    void typoIsMatchedByTrigrams() {
+        assertThat(search("splenomegoly"), is(Collections.singletonList("HP:0001744")));
+        assertThat(search("splenomgaly"), is(Collections.singletonList("HP:0001744")));
+        assertThat(search("portal thrombsis"), is(Collections.singletonList("HP:0030242")));
+        // too short to guess
+        assertThat(search("spx"), is(empty()));
+        assertThat(search("xylophone"), is(empty()));
+    }
+
+    @Test
+    void resultsAreLimited() {
+        assertThat(search("abnormality", 1), is(Collections.singletonList("HP:0000118")));
+        assertThat(search("abnormality", 0), is(empty()));
+        assertThat(search(" :; "), is(empty()));
+    }
+
+    @Test
+    void rootAndObsoleteTermsAreNotIndexed() {
+        assertThat(search("All"), is(empty()));
+        assertThat(search("body height"), is(empty()));
+        assertThat(search("kidney"), is(empty()));
+    }
+}
@@ -0,0 +1,125 @@
+package org.jax.phenopacketgenerator.textmining;
+
+import org.jax.phenopacketgenerator.ontology.CompactOntology;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class OfflineTermMinerTest {
+
+    private static OfflineTermMiner miner;
+
+    @BeforeAll
+    static void setUp() throws IOException, URISyntaxException {
+        Path oboPath = Paths.get(OfflineTermMinerTest.class
+                .getResource("/org/jax/phenopacketgenerator/ontology/hp_small.obo").toURI());
+        miner = OfflineTermMiner.fromOntology(CompactOntology.read(oboPath));
+    }
+
+    /**
+     * @return hits as <code>[!]term_id begin-end</code>, where <code>!</code> marks an excluded term
+     */
+    private static List<String> mine(String text) {
+        return miner.doMining(text).stream()
+                .map(term -> String.format("%s%s %d-%d", term.isPresent() ? "" : "!", term.getTermId(),
+                        term.getBegin(), term.getEnd()))
+                .collect(Collectors.toList());
+    }
+
+    private static String hit(String text, String match, String termId) {
+        int begin = text.indexOf(match);
+        return String.format("%s %d-%d", termId, begin, begin + match.length());
+    }
+
+    @Test
+    void multiTokenLabel() {
+        String text = "Imaging showed Portal Vein Thrombosis.";
+
+        assertThat(mine(text), is(Collections.singletonList(hit(text, "Portal Vein Thrombosis", "HP:0030242"))));
+    }
+
+    @Test
+    void synonym() {
+        String text = "The boy had an enlarged spleen and a thrombosis of the portal vein.";
+
+        assertThat(mine(text), is(Arrays.asList(
+                hit(text, "enlarged spleen", "HP:0001744"),
+                hit(text, "thrombosis of the portal vein", "HP:0030242"))));
+    }
+
+    @Test
+    void longerOverlappingPatternWins() {
+        String text = "Generalized tonic-clonic seizures since infancy, an epileptic seizure at 3 years.";
+
+        assertThat(mine(text), is(Arrays.asList(
+                hit(text, "Generalized tonic-clonic seizures", "HP:0002069"),
+                hit(text, "epileptic seizure", "HP:0001250"))));
+    }
+
+    @Test
+    void negatedTermIsExcluded() {
+        String text = "There were no seizures.";
+
+        assertThat(mine(text), is(Collections.singletonList("!" + hit(text, "seizures", "HP:0001250"))));
+    }
+
+    @Test
+    void negationDoesNotCrossSentences() {
+        String text = "No fever. Seizures started at the age of 2 years.";
+
+        assertThat(mine(text), is(Collections.singletonList(hit(text, "Seizures", "HP:0001250"))));
+    }
+
+    @Test
+    void negationIsLimitedToPrecedingTokens() {
+        String far = "No fever, cough or rash was noted until the seizures began.";
+        String near = "Splenomegaly, but no fever or seizures.";
+
+        assertThat(mine(far), is(Collections.singletonList(hit(far, "seizures", "HP:0001250"))));
+        // the cue applies to the hits following it only
+        assertThat(mine(near), is(Arrays.asList(
+                hit(near, "Splenomegaly", "HP:0001744"),
+                "!" + hit(near, "seizures", "HP:0001250"))));
+    }
+
+    @Test
+    void partialPatternIsNotMined() {
+        assertThat(mine("Portal vein and spleen are normal, tonic posture."), is(empty()));
+        assertThat(mine(""), is(empty()));
+    }
+
+    @Test
+    void normalize() {
+        assertThat(Tokenizer.normalize("Seizures"), is("seizure"));
+        assertThat(Tokenizer.normalize("SPLEEN"), is("spleen"));
+        // not plurals
+        assertThat(Tokenizer.normalize("abscess"), is("abscess"));
+        assertThat(Tokenizer.normalize("Uterus"), is("uterus"));
+        assertThat(Tokenizer.normalize("pelvis"), is("pelvis"));
+        assertThat(Tokenizer.normalize("has"), is("has"));
+    }
+
+    @Test
+    void tokenize() {
+        List<Tokenizer.Token> tokens = Tokenizer.tokenize("Big spleen; no\nfever?");
+
+        assertThat(tokens.stream().map(Tokenizer.Token::getValue).collect(Collectors.toList()),
+                is(Arrays.asList("big", "spleen", "no", "fever")));
+        assertThat(tokens.stream().map(Tokenizer.Token::getSentence).collect(Collectors.toList()),
+                is(Arrays.asList(0, 0, 1, 2)));
+        assertThat(tokens.get(1).getBegin(), is(4));
+        assertThat(tokens.get(1).getEnd(), is(10));
+    }
+}
@@ -0,0 +1,79 @@
+package org.jax.phenopacketgenerator.vcf;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * The expected digests were computed with the shell recipe of the README:
+ * <pre>
+ * split -b 8M file chunk. &amp;&amp; for c in chunk.*; do sha256sum $c | cut -c1-64 | xxd -r -p; done | sha256sum
+ * </pre>
+ */
+class ChunkedDigestTest {
+
+    private static ExecutorService executor;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    void fileOfSeveralChunks() throws IOException, InterruptedException {
+        // two full chunks and a partial one
+        byte[] content = new byte[2 * ChunkedDigest.CHUNK_SIZE + 1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        Path path = tempDir.resolve("sample.vcf");
+        Files.write(path, content);
+
+        ChunkedDigest digest = ChunkedDigest.compute(path, executor, 4);
+
+        assertThat(digest.getSize(), is((long) content.length));
+        assertThat(digest.getHex(), is("657c8e20f38da060e182fbff83cdd55504a3258bda33105adce7edafa03d7f10"));
+        assertThat(ChunkedDigest.compute(path, executor, 1).getHex(), is(digest.getHex()));
+    }
+
+    @Test
+    void fileOfSingleChunk() throws IOException, InterruptedException {
+        Path path = tempDir.resolve("sample.vcf");
+        Files.write(path, "abc".getBytes(StandardCharsets.US_ASCII));
+
+        ChunkedDigest digest = ChunkedDigest.compute(path, executor, 4);
+
+        assertThat(digest.getChecksum(),
+                is("sha256-tree-8MiB:4f8b42c22dd3729b519ba6f68d2da7cc5b2d606d05daed5ad5128cc03e6c6358"));
+    }
+
+    @Test
+    void emptyFile() throws IOException, InterruptedException {
+        Path path = tempDir.resolve("sample.vcf");
+        Files.createFile(path);
+
+        ChunkedDigest digest = ChunkedDigest.compute(path, executor, 4);
+
+        // SHA-256 of no data
+        assertThat(digest.getHex(), is("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"));
+    }
+}
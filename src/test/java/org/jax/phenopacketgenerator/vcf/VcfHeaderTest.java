@@ -0,0 +1,158 @@
+package org.jax.phenopacketgenerator.vcf;
+
+import org.jax.phenopacketgenerator.model.PGException;
+import org.jax.phenopacketgenerator.model.PgModel;
+import org.jax.phenopacketgenerator.model.ValidationIssue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VcfHeaderTest {
+
+    private static final String TRIO_VCF = "/org/jax/phenopacketgenerator/batch/trio.vcf";
+
+    @TempDir
+    Path tempDir;
+
+    private static VcfHeader read(String header) throws IOException, PGException {
+        return VcfHeader.read(new ByteArrayInputStream(header.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String header(String metaLines) {
+        return "##fileformat=VCFv4.2\n" + metaLines
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tP1\n";
+    }
+
+    private Path copyTrio() throws IOException {
+        Path vcfPath = tempDir.resolve("trio.vcf");
+        try (InputStream is = VcfHeaderTest.class.getResourceAsStream(TRIO_VCF)) {
+            Files.copy(is, vcfPath);
+        }
+        return vcfPath;
+    }
+
+    private static List<ValidationIssue.Type> validate(VcfHeader header, String probandId, String assembly) {
+        PgModel model = new PgModel(Collections.emptyList());
+        model.setProbandId(probandId);
+        model.setGenomeAssembly(assembly);
+        return header.validate(model).stream().map(ValidationIssue::getType).collect(Collectors.toList());
+    }
+
+    @Test
+    void contigLengthIdentifiesAssembly() throws IOException, PGException {
+        VcfHeader header = VcfHeader.read(copyTrio());
+
+        assertThat(header.getFileFormat(), is("VCFv4.2"));
+        assertThat(header.getSampleIds(), is(Arrays.asList("P1", "MOTHER", "FATHER")));
+        assertThat(header.getContigLengths().get("chr1"), is(248_956_422L));
+        // the length of chr1 takes precedence over the name of the reference
+        assertThat(header.getReference(), is(Optional.of("file:///ref/GRCh37.fa")));
+        assertThat(header.getAssembly(), is(Optional.of("hg38")));
+    }
+
+    @Test
+    void referenceIdentifiesAssemblyWithoutContigs() throws IOException, PGException {
+        assertThat(read(header("##reference=file:///ref/human_g1k_v37.fasta\n")).getAssembly(), is(Optional.of("hg19")));
+        assertThat(read(header("##reference=GRCh38_full_analysis_set.fa\n")).getAssembly(), is(Optional.of("hg38")));
+        assertThat(read(header("##reference=hs37d5.fa\n")).getAssembly(), is(Optional.of("hg19")));
+        assertThat(read(header("##contig=<ID=1,length=249250621>\n")).getAssembly(), is(Optional.of("hg19")));
+        assertThat(read(header("##reference=mouse.fa\n")).getAssembly(), is(Optional.empty()));
+        assertThat(read(header("")).getAssembly(), is(Optional.empty()));
+    }
+
+    @Test
+    void crlfLineEndings() throws IOException, PGException {
+        VcfHeader header = read(header("##reference=hg19.fa\n").replace("\n", "\r\n"));
+
+        assertThat(header.getSampleIds(), is(Collections.singletonList("P1")));
+        assertThat(header.getAssembly(), is(Optional.of("hg19")));
+    }
+
+    @Test
+    void gzippedFileIsInflated() throws IOException, PGException {
+        byte[] vcf = Files.readAllBytes(copyTrio());
+        Path gzPath = tempDir.resolve("trio.vcf.gz");
+        try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(gzPath))) {
+            os.write(vcf);
+        }
+        // bgzip writes a series of gzip members
+        Path bgzPath = tempDir.resolve("trio.vcf.bgz");
+        try (OutputStream os = Files.newOutputStream(bgzPath)) {
+            for (int offset = 0; offset < vcf.length; offset += 100) {
+                GZIPOutputStream member = new GZIPOutputStream(os);
+                member.write(vcf, offset, Math.min(100, vcf.length - offset));
+                member.finish();
+            }
+        }
+
+        assertThat(VcfHeader.read(gzPath).getSampleIds(), is(Arrays.asList("P1", "MOTHER", "FATHER")));
+        assertThat(VcfHeader.read(bgzPath).getSampleIds(), is(Arrays.asList("P1", "MOTHER", "FATHER")));
+        assertThat(VcfHeader.read(bgzPath).getAssembly(), is(Optional.of("hg38")));
+    }
+
+    @Test
+    void otherFilesAreRejected() {
+        assertThrows(PGException.class, () -> read("#CHROM\tPOS\n"));
+        assertThrows(PGException.class, () -> read("##fileformat=VCFv4.2\n##reference=hg19.fa\nchr1\t1\n"));
+        assertThrows(PGException.class, () -> read("##fileformat=VCFv4.2\n"));
+    }
+
+    @Test
+    void overlongLineIsRejected() {
+        // a line without end, e.g. a binary file that happens to start like a VCF file
+        InputStream endless = new InputStream() {
+            private final byte[] prefix = "##fileformat=VCFv4.2\n##".getBytes(StandardCharsets.US_ASCII);
+            private int position;
+
+            @Override
+            public int read() {
+                return position < prefix.length ? prefix[position++] : 'x';
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (position < prefix.length) {
+                    b[off] = prefix[position++];
+                    return 1;
+                }
+                Arrays.fill(b, off, off + len, (byte) 'x');
+                return len;
+            }
+        };
+
+        PGException e = assertThrows(PGException.class, () -> VcfHeader.read(endless));
+
+        assertThat(e.getMessage().startsWith("VCF header line longer than"), is(true));
+    }
+
+    @Test
+    void grcNamesMatchUcscNames() throws IOException, PGException {
+        VcfHeader header = VcfHeader.read(copyTrio());
+
+        assertThat(validate(header, "P1", "hg38"), is(empty()));
+        assertThat(validate(header, "P1", "GRCh38"), is(empty()));
+        assertThat(validate(header, "P1", "GRCh37"), contains(ValidationIssue.Type.ASSEMBLY_MISMATCH));
+        assertThat(validate(header, "SISTER", "hg38"), contains(ValidationIssue.Type.PROBAND_NOT_IN_VCF));
+        assertThat(VcfHeader.isSameAssembly("grch37", "HG19"), is(true));
+        assertThat(VcfHeader.isSameAssembly("hg19", "hg38"), is(false));
+    }
+}